@@ -0,0 +1,60 @@
+package sudoku.data;
+
+import org.openjdk.jmh.annotations.*;
+import sudoku.solvers.SolverBenchmark;
+import sudoku.solvers.bitmask.BitmaskSolver;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates the bundled 9x9 puzzles and their solutions one board at a time and in batches, reporting the time per
+ * board
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ValidatorBenchmark {
+    private static final int BOARDS = 1024;
+
+    private final Validator validator = new Validator();
+    private final Board[] boards = new Board[BOARDS];
+    private final int[] conflicts = new int[BOARDS];
+
+    @Setup
+    public void setup() throws IOException {
+        int count = 0;
+        for (String corpus : new String[]{"easy", "hard", "seventeen"}) {
+            for (Board puzzle : SolverBenchmark.load(corpus)) {
+                BitmaskSolver solver = new BitmaskSolver(puzzle);
+                solver.findSingleSolution();
+                boards[count++ % BOARDS] = puzzle;
+                boards[count++ % BOARDS] = solver.getSolution();
+            }
+        }
+        for (int i = count; i < BOARDS; i++) {
+            boards[i] = boards[i % count];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public int single() {
+        int valid = 0;
+        for (Board board : boards) {
+            if (validator.firstConflict(board) < 0) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOARDS)
+    public int batch() {
+        return validator.validate(boards, 0, BOARDS, conflicts);
+    }
+}
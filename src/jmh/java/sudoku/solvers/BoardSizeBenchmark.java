@@ -0,0 +1,45 @@
+package sudoku.solvers;
+
+import org.openjdk.jmh.annotations.*;
+import sudoku.data.Board;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows how solve time scales with the size of the board: hard 9x9 puzzles, then unique 16x16 puzzles with 60% of
+ * the cells empty and unique 25x25 puzzles with half of the cells empty.
+ * <p>
+ * The depth first search solver is left out, it does not finish the larger boards in reasonable time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoardSizeBenchmark {
+    @Param({"bitmask", "parallel", "dlx"})
+    private String solver;
+
+    @Param({"hard", "sixteen", "twentyfive"})
+    private String corpus;
+
+    private Board[] puzzles;
+    private Solver instance;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        puzzles = SolverBenchmark.load(corpus);
+        instance = Solvers.byName(solver).apply(puzzles[0]);
+    }
+
+    @Benchmark
+    public int singleSolution() {
+        instance.reset(puzzles[next]);
+        next = (next + 1) % puzzles.length;
+        instance.findSingleSolution();
+        return instance.solutionCount();
+    }
+}
@@ -0,0 +1,92 @@
+package sudoku.solvers;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import sudoku.data.Board;
+import sudoku.io.PuzzleReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves every puzzle of a bundled corpus in turn, reusing one solver through {@link Solver#reset(Board)}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SolverBenchmark {
+    @Param({"bitmask", "parallel", "dlx", "dfs"})
+    private String solver;
+
+    @Param({"easy", "hard", "seventeen"})
+    private String corpus;
+
+    /**
+     * Whether the solver collects {@link SolverStats}, to measure what they cost
+     */
+    @Param({"false", "true"})
+    private boolean statistics;
+
+    private Board[] puzzles;
+    private Solver instance;
+    private int next;
+
+    public static Board[] load(String corpus) throws IOException {
+        List<Board> puzzles = new ArrayList<>();
+        try (PuzzleReader in = new PuzzleReader(SolverBenchmark.class.getResourceAsStream(corpus + ".txt"))) {
+            while (in.next()) {
+                if (in.board() != null) {
+                    puzzles.add(new Board(in.board()));
+                }
+            }
+        }
+        return puzzles.toArray(new Board[0]);
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        puzzles = load(corpus);
+        instance = Solvers.byName(solver).apply(puzzles[0]);
+        instance.setStatistics(statistics);
+    }
+
+    private Solver nextPuzzle() {
+        instance.reset(puzzles[next]);
+        next = (next + 1) % puzzles.length;
+        return instance;
+    }
+
+    @Benchmark
+    public int singleSolution() {
+        Solver s = nextPuzzle();
+        s.findSingleSolution();
+        return s.solutionCount();
+    }
+
+    @Benchmark
+    public int allSolutions() {
+        Solver s = nextPuzzle();
+        s.findAllSolutions();
+        return s.solutionCount();
+    }
+
+    /**
+     * Runs the benchmarks with the GC profiler attached, accepting the usual JMH command line options
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
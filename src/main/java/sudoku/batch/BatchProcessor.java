@@ -0,0 +1,286 @@
+package sudoku.batch;
+
+import sudoku.data.Board;
+import sudoku.io.PuzzleReader;
+import sudoku.io.PuzzleWriter;
+
+import java.io.*;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Processes a stream of lines on a pool of worker threads, writing one result line per input line.
+ * <p>
+ * Pending results are kept in a bounded queue in input order, so output is written in the order lines were read
+ * and reading blocks once the writer falls too far behind. Empty lines and lines starting with '#' are skipped.
+ */
+public abstract class BatchProcessor {
+    /**
+     * Most consecutive indices a worker takes at a time in {@link #processIndices(ExecutorService, long, IndexTask)}
+     */
+    private static final int BLOCK = 1 << 10;
+
+    private final int threads;
+    private final int bufferSize;
+
+    protected BatchProcessor(int threads, int bufferSize) {
+        this.threads = threads;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Called on a worker thread for every line
+     *
+     * @return the line to write, without a line separator
+     */
+    protected abstract String process(String line);
+
+    /**
+     * @return the number of lines processed
+     */
+    public long process(BufferedReader in, Writer out) throws IOException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<>(bufferSize);
+        Future<String> end = CompletableFuture.completedFuture(null);
+        FutureTask<Long> reader = new FutureTask<>(() -> {
+            long count = 0;
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String input = line;
+                    pending.put(workers.submit(() -> process(input)));
+                    count++;
+                }
+                return count;
+            } finally {
+                pending.put(end);
+            }
+        });
+        Thread readerThread = new Thread(reader, "batch-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+
+        try {
+            Future<String> result;
+            while ((result = pending.take()) != end) {
+                out.write(result.get());
+                out.write('\n');
+            }
+            out.flush();
+            return reader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            reader.cancel(true);
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Processes every record of the input a block at a time, writing the results of each block in input order.
+     * <p>
+     * Records are parsed into the reused boards of three blocks in turn, so nothing is allocated per record. A block
+     * is queued on the workers as soon as it is parsed, so the calling thread writes the block before it and parses
+     * the one after it while it is processed, and workers done with their share of a block go on to the next one
+     * instead of waiting for its slowest record.
+     *
+     * @param newBlock makes each of the three blocks
+     * @param task     called on a worker thread for every task of a block, see {@link #tasks(int)}
+     * @param writer   called on the calling thread to write the results of a block
+     * @return the number of records read
+     */
+    <B extends RecordBlock> long processBlocks(PuzzleReader in, PuzzleWriter out, Supplier<B> newBlock,
+                                               BlockTask<B> task, BlockWriter<B> writer) throws IOException {
+        List<B> blocks = new ArrayList<>(3);
+        for (int b = 0; b < 3; b++) {
+            blocks.add(newBlock.get());
+        }
+        ExecutorService workers = newWorkers();
+        try {
+            long count = 0;
+            B previous = null;
+            for (int b = 0; previous == null || previous.size == previous.puzzles.length; b++) {
+                B block = blocks.get(b % blocks.size());
+                block.load(in);
+                block.running = submitIndices(workers, tasks(block.size), t -> task.process(block, (int) t));
+                count += block.size;
+                if (previous != null) {
+                    await(previous.running);
+                    writer.write(previous, out);
+                }
+                previous = block;
+            }
+            await(previous.running);
+            writer.write(previous, out);
+            out.flush();
+            return count;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the number of tasks {@link #processBlocks} runs for a block of the given size, one per record unless
+     * overridden
+     */
+    int tasks(int size) {
+        return size;
+    }
+
+    /**
+     * Calls the task for every index from 0 to count on a new pool of worker threads, see
+     * {@link #processIndices(ExecutorService, long, IndexTask)}
+     */
+    protected void processIndices(long count, IndexTask task) throws IOException {
+        ExecutorService workers = newWorkers();
+        try {
+            processIndices(workers, count, task);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Calls the task for every index from 0 to count on the worker threads, returning once all calls are done.
+     * Indices are handed out in blocks, so a worker reading records by index mostly reads neighbouring ones.
+     */
+    protected void processIndices(ExecutorService workers, long count, IndexTask task) throws IOException {
+        await(submitIndices(workers, count, task));
+    }
+
+    /**
+     * Queues the calls of {@link #processIndices(ExecutorService, long, IndexTask)} without waiting for them, so
+     * workers done with them go on to whatever is queued next
+     *
+     * @return the calls, to pass to {@link #await(List)}
+     */
+    protected List<Future<Void>> submitIndices(ExecutorService workers, long count, IndexTask task) {
+        int block = (int) Math.max(1, Math.min(BLOCK, count / (threads * 4L)));
+        AtomicLong next = new AtomicLong();
+        List<Future<Void>> results = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            results.add(workers.submit(() -> {
+                long from;
+                while ((from = next.getAndAdd(block)) < count) {
+                    long to = Math.min(count, from + block);
+                    for (long i = from; i < to; i++) {
+                        task.process(i);
+                    }
+                }
+                return null;
+            }));
+        }
+        return results;
+    }
+
+    /**
+     * Waits for the calls queued by {@link #submitIndices(ExecutorService, long, IndexTask)}
+     */
+    protected void await(List<Future<Void>> results) throws IOException {
+        try {
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * @return a pool of as many threads as this processor runs
+     */
+    protected ExecutorService newWorkers() {
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    @FunctionalInterface
+    protected interface IndexTask {
+        void process(long index) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface BlockTask<B extends RecordBlock> {
+        void process(B block, int task);
+    }
+
+    @FunctionalInterface
+    interface BlockWriter<B extends RecordBlock> {
+        void write(B block, PuzzleWriter out) throws IOException;
+    }
+
+    /**
+     * Up to a fixed number of records of the input in reused boards, for {@link #processBlocks}. Subclasses keep the
+     * results of the records.
+     */
+    static class RecordBlock {
+        /**
+         * The puzzle of every record, null for records that are not puzzles
+         */
+        final Board[] puzzles;
+        int size;
+        private final Board[] boards;
+        List<Future<Void>> running;
+
+        RecordBlock(int capacity) {
+            puzzles = new Board[capacity];
+            boards = new Board[capacity];
+        }
+
+        /**
+         * Called when the record at the index gets a board of a new size, before it is filled
+         */
+        void resized(int index, Board board) {
+        }
+
+        /**
+         * Parses the next records, leaving null in place of those that are not puzzles
+         */
+        void load(PuzzleReader in) throws IOException {
+            for (size = 0; size < puzzles.length && in.next(); size++) {
+                Board board = in.board();
+                puzzles[size] = null;
+                if (board != null) {
+                    if (boards[size] == null || boards[size].geometry() != board.geometry()) {
+                        boards[size] = new Board(board.geometry());
+                        resized(size, boards[size]);
+                    }
+                    boards[size].copyFrom(board);
+                    puzzles[size] = boards[size];
+                }
+            }
+        }
+    }
+
+    /**
+     * @param input a file name, or '-' for stdin
+     */
+    static PuzzleReader openPuzzles(String input) throws IOException {
+        return input.equals("-") ? new PuzzleReader(System.in) : PuzzleReader.open(Paths.get(input));
+    }
+
+    /**
+     * @param output a file name, or '-' for stdout
+     */
+    static PuzzleWriter createPuzzles(String output) throws IOException {
+        return output.equals("-") ? new PuzzleWriter(System.out) : PuzzleWriter.create(Paths.get(output), '0');
+    }
+}
@@ -0,0 +1,119 @@
+package sudoku.batch;
+
+import sudoku.data.Board;
+import sudoku.generator.Rater;
+import sudoku.generator.Rating;
+import sudoku.io.PuzzleReader;
+import sudoku.io.PuzzleWriter;
+
+import java.io.IOException;
+
+/**
+ * Rates a stream of puzzles on a pool of worker threads, each with its own {@link Rater}.
+ * <p>
+ * Every output line holds the rating of the puzzle in the same input record, see {@link Rating#toString()}.
+ */
+public class BatchRater extends BatchProcessor {
+    static final String NOT_UNIQUE = "Not unique";
+    /**
+     * Number of puzzles read ahead and rated together by {@link #rate(PuzzleReader, PuzzleWriter)}, fewer than
+     * {@link BatchSolver} solves as rating takes longer
+     */
+    private static final int BLOCK = 1 << 10;
+
+    private final ThreadLocal<Rater> raters = new ThreadLocal<>();
+
+    public BatchRater(int threads, int bufferSize) {
+        super(threads, bufferSize);
+    }
+
+    public BatchRater(int threads) {
+        this(threads, threads * 256);
+    }
+
+    /**
+     * Rates every record of the input, writing one line per record: the rating, {@value #NOT_UNIQUE}, or
+     * {@value BatchSolver#INVALID} if the record is not a puzzle. Puzzles are parsed and rated a block at a time, see
+     * {@link #processBlocks}.
+     *
+     * @return the number of records read
+     */
+    public long rate(PuzzleReader in, PuzzleWriter out) throws IOException {
+        return processBlocks(in, out, Block::new, (block, i) -> {
+            Board puzzle = block.puzzles[i];
+            block.ratings[i] = puzzle == null ? null : raterFor(puzzle).rate(puzzle);
+        }, Block::write);
+    }
+
+    @Override
+    protected String process(String line) {
+        Board puzzle = Board.parse(line);
+        if (puzzle == null) {
+            return BatchSolver.INVALID;
+        }
+        Rating rating = raterFor(puzzle).rate(puzzle);
+        return rating == null ? NOT_UNIQUE : rating.toString();
+    }
+
+    /**
+     * @return the rater of the current thread for boards of the puzzle's size
+     */
+    private Rater raterFor(Board puzzle) {
+        Rater rater = raters.get();
+        if (rater == null || rater.engine().geometry() != puzzle.geometry()) {
+            rater = new Rater(puzzle.geometry());
+            raters.set(rater);
+        }
+        return rater;
+    }
+
+    /**
+     * Up to {@link #BLOCK} records of the input in reused boards, with their ratings
+     */
+    private static final class Block extends RecordBlock {
+        final Rating[] ratings = new Rating[BLOCK];
+
+        Block() {
+            super(BLOCK);
+        }
+
+        private void write(PuzzleWriter out) throws IOException {
+            for (int i = 0; i < size; i++) {
+                if (puzzles[i] == null) {
+                    out.writeLine(BatchSolver.INVALID);
+                } else {
+                    out.writeLine(ratings[i] == null ? NOT_UNIQUE : ratings[i].toString());
+                }
+                ratings[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Usage: BatchRater [-threads n] [input|-] [output|-]
+     * <p>
+     * The input may hold puzzles in the one line or the .sdk grid format, see {@link PuzzleReader}.
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String input = "-";
+        String output = "-";
+        int positional = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (positional++ == 0) {
+                input = args[i];
+            } else {
+                output = args[i];
+            }
+        }
+
+        try (PuzzleReader in = openPuzzles(input); PuzzleWriter out = createPuzzles(output)) {
+            long start = System.nanoTime();
+            long count = new BatchRater(threads).rate(in, out);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf("Rated %d puzzles in %.3fs (%.0f puzzles/sec)%n", count, seconds, count / seconds);
+        }
+    }
+}
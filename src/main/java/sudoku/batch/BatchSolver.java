@@ -0,0 +1,218 @@
+package sudoku.batch;
+
+import sudoku.data.Board;
+import sudoku.io.PuzzleReader;
+import sudoku.io.PuzzleStore;
+import sudoku.io.PuzzleWriter;
+import sudoku.solvers.Solver;
+import sudoku.solvers.Solvers;
+import sudoku.solvers.cache.CachingSolver;
+import sudoku.solvers.cache.SolutionCache;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Solves a stream of puzzles on a pool of worker threads.
+ * <p>
+ * Every worker keeps one {@link Solver} and reuses it through {@link Solver#reset(Board)}. Solutions are written in
+ * the order puzzles were read.
+ */
+public class BatchSolver extends BatchProcessor {
+    static final String NO_SOLUTION = "No solution";
+    static final String INVALID = "Invalid puzzle";
+    /**
+     * Number of puzzles read ahead and solved together by {@link #solve(PuzzleReader, PuzzleWriter)}
+     */
+    private static final int BLOCK = 1 << 12;
+
+    private final Function<Board, Solver> factory;
+    private final ThreadLocal<Solver> solvers = new ThreadLocal<>();
+
+    public BatchSolver(Function<Board, Solver> factory, int threads, int bufferSize) {
+        super(threads, bufferSize);
+        this.factory = factory;
+    }
+
+    public BatchSolver(Function<Board, Solver> factory, int threads) {
+        this(factory, threads, threads * 256);
+    }
+
+    /**
+     * Solves every line of the input, writing one line per puzzle: the solution, {@value #NO_SOLUTION}, or
+     * {@value #INVALID} if the line is not a puzzle
+     *
+     * @return the number of puzzles read
+     */
+    public long solve(BufferedReader in, Writer out) throws IOException {
+        return process(in, out);
+    }
+
+    /**
+     * Solves every record of the input, writing one line per record: the solution, {@value #NO_SOLUTION}, or
+     * {@value #INVALID} if the record is not a puzzle. Puzzles are parsed and solved a block at a time, see
+     * {@link #processBlocks}.
+     *
+     * @return the number of records read
+     */
+    public long solve(PuzzleReader in, PuzzleWriter out) throws IOException {
+        return processBlocks(in, out, Block::new, this::solve, Block::write);
+    }
+
+    /**
+     * Called on a worker thread for every task of a block, solves the puzzle at the index of the task
+     */
+    void solve(Block block, int task) {
+        Board puzzle = block.puzzles[task];
+        block.solved[task] = puzzle != null && solverFor(puzzle).forEachSolution(1, block.sinks.get(task)) > 0;
+    }
+
+    /**
+     * Solves every puzzle of the store, writing each solution into its record, or clearing it if there is none.
+     * Workers read and write records in place, so nothing is allocated per puzzle.
+     *
+     * @return the number of puzzles read
+     */
+    public long solve(PuzzleStore store) throws IOException {
+        if (!store.hasSolutions()) {
+            throw new IllegalArgumentException("The store has no room for solutions");
+        }
+        ThreadLocal<Board> puzzles = ThreadLocal.withInitial(() -> new Board(store.geometry()));
+        ThreadLocal<Board> solutions = ThreadLocal.withInitial(() -> new Board(store.geometry()));
+        long count = store.size();
+        processIndices(count, index -> {
+            Board puzzle = puzzles.get();
+            Board solution = solutions.get();
+            store.read(index, puzzle);
+            boolean solved = solverFor(puzzle).forEachSolution(1, solution::copyFrom) > 0;
+            store.writeSolution(index, solved ? solution : null);
+        });
+        return count;
+    }
+
+    @Override
+    protected String process(String line) {
+        Board puzzle = Board.parse(line);
+        if (puzzle == null) {
+            return INVALID;
+        }
+        Solver solver = solverFor(puzzle);
+        solver.findSingleSolution();
+        return solver.isSolvable() ? solver.getSolution().toString() : NO_SOLUTION;
+    }
+
+    /**
+     * Up to {@link #BLOCK} records of the input in reused boards, each puzzle receiving its own solution
+     */
+    static final class Block extends RecordBlock {
+        final Board[] solutions = new Board[BLOCK];
+        final boolean[] solved = new boolean[BLOCK];
+        private final List<Consumer<Board>> sinks = new ArrayList<>(BLOCK);
+
+        Block() {
+            super(BLOCK);
+            for (int i = 0; i < BLOCK; i++) {
+                int index = i;
+                sinks.add(board -> solutions[index].copyFrom(board));
+            }
+        }
+
+        @Override
+        void resized(int index, Board board) {
+            solutions[index] = new Board(board.geometry());
+        }
+
+        private void write(PuzzleWriter out) throws IOException {
+            for (int i = 0; i < size; i++) {
+                if (solved[i]) {
+                    out.write(solutions[i]);
+                } else {
+                    out.writeLine(puzzles[i] != null ? NO_SOLUTION : INVALID);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the solver of the current thread, reset to the puzzle
+     */
+    private Solver solverFor(Board puzzle) {
+        Solver solver = solvers.get();
+        if (solver == null || solver.geometry() != puzzle.geometry()) {
+            solver = factory.apply(puzzle);
+            solvers.set(solver);
+        } else {
+            solver.reset(puzzle);
+        }
+        return solver;
+    }
+
+    /**
+     * Usage: BatchSolver [-threads n] [-solver bitmask|parallel|dlx|dfs] [-cache entries] [input|-] [output|-]
+     * <p>
+     * The input may hold puzzles in the one line or the .sdk grid format, see {@link PuzzleReader}.
+     * With -cache, puzzles equivalent to one solved before are answered from a shared {@link SolutionCache}.
+     * An input ending in {@value PuzzleStore#EXTENSION} is a {@link PuzzleStore}, solved in place.
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String solver = "bitmask";
+        int cacheSize = 0;
+        String input = "-";
+        String output = "-";
+        int positional = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-solver":
+                    solver = args[++i];
+                    break;
+                case "-cache":
+                    cacheSize = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    if (positional++ == 0) {
+                        input = args[i];
+                    } else {
+                        output = args[i];
+                    }
+            }
+        }
+
+        Function<Board, Solver> factory = Solvers.byName(solver);
+        SolutionCache cache = null;
+        if (cacheSize > 0) {
+            cache = new SolutionCache(cacheSize);
+            factory = CachingSolver.factory(factory, cache);
+        }
+        if (input.endsWith(PuzzleStore.EXTENSION)) {
+            try (PuzzleStore store = PuzzleStore.open(Paths.get(input), true)) {
+                long start = System.nanoTime();
+                long count = new BatchSolver(factory, threads).solve(store);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.err.printf("Solved %d puzzles in %.3fs (%.0f puzzles/sec)%n", count, seconds, count / seconds);
+            }
+            if (cache != null) {
+                System.err.println("Cache: " + cache);
+            }
+            return;
+        }
+        try (PuzzleReader in = openPuzzles(input); PuzzleWriter out = createPuzzles(output)) {
+            long start = System.nanoTime();
+            long count = new BatchSolver(factory, threads).solve(in, out);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf("Solved %d puzzles in %.3fs (%.0f puzzles/sec)%n", count, seconds, count / seconds);
+            if (cache != null) {
+                System.err.println("Cache: " + cache);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package sudoku.data;
+
+import java.util.Arrays;
+
+/**
+ * A compact board: one byte per cell in row-major order (index = row * size + column), 0 for an empty cell.
+ * <p>
+ * Copying, hashing and comparing a board touch a single byte array, which keeps bulk workloads cheap. Candidates
+ * are reported as masks where bit (value - 1) is set if value may be placed in the cell. Boards are 9x9 unless
+ * created with another {@link Geometry}; the static tables below describe the standard 9x9 board.
+ */
+public final class Board {
+    public static final int SIZE = 9;
+    public static final int CELLS = SIZE * SIZE;
+    public static final int ALL_CANDIDATES = (1 << SIZE) - 1;
+
+    /**
+     * Row, column and sector of every cell index
+     */
+    public static final int[] ROW = Geometry.STANDARD.row;
+    public static final int[] COLUMN = Geometry.STANDARD.column;
+    public static final int[] SECTOR = Geometry.STANDARD.sector;
+    /**
+     * The cell indices of the 9 rows, then the 9 columns, then the 9 sectors
+     */
+    public static final int[][] UNITS = Geometry.STANDARD.units;
+    /**
+     * The 20 other cells sharing a row, column or sector with each cell
+     */
+    public static final int[][] PEERS = Geometry.STANDARD.peers;
+
+    private final Geometry geometry;
+    private final byte[] cells;
+
+    public Board() {
+        this(Geometry.STANDARD);
+    }
+
+    public Board(Geometry geometry) {
+        this.geometry = geometry;
+        cells = new byte[geometry.cells];
+    }
+
+    public Board(Board other) {
+        this(other.geometry);
+        copyFrom(other);
+    }
+
+    /**
+     * @param matrix a column-major matrix, as used by {@link GameModel#toMatrix()}
+     */
+    public static Board fromMatrix(int[][] matrix) {
+        Geometry geometry = Geometry.ofSize(matrix.length);
+        Board board = new Board(geometry);
+        for (int i = 0; i < geometry.cells; i++) {
+            board.cells[i] = (byte) matrix[geometry.column[i]][geometry.row[i]];
+        }
+        return board;
+    }
+
+    /**
+     * Parses the common one line format: one character per cell in row-major order, where 1-9 and then A, B, ...
+     * are givens and any other character ('0', '.') is an empty cell. The size of the board follows from the length
+     * of the line, so 81 characters make a 9x9 board and 256 a 16x16 board.
+     *
+     * @return the board, or null if the length of the line does not match a supported board
+     */
+    public static Board parse(CharSequence line) {
+        Geometry geometry = Geometry.ofCells(line.length());
+        if (geometry == null) {
+            return null;
+        }
+        Board board = new Board(geometry);
+        for (int i = 0; i < geometry.cells; i++) {
+            board.cells[i] = (byte) geometry.valueOf(line.charAt(i));
+        }
+        return board;
+    }
+
+    /**
+     * @return the index of a cell on a 9x9 board, see {@link Geometry#index(int, int)} for other sizes
+     */
+    public static int index(int c, int r) {
+        return r * SIZE + c;
+    }
+
+    public Geometry geometry() {
+        return geometry;
+    }
+
+    public int get(int index) {
+        return cells[index];
+    }
+
+    public int get(int c, int r) {
+        return cells[r * geometry.size + c];
+    }
+
+    public void set(int index, int value) {
+        cells[index] = (byte) value;
+    }
+
+    public void set(int c, int r, int value) {
+        cells[r * geometry.size + c] = (byte) value;
+    }
+
+    public void copyFrom(Board other) {
+        if (other.geometry != geometry) {
+            throw new IllegalArgumentException("Cannot copy a " + other.geometry + " board into a " + geometry
+                    + " board");
+        }
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+    }
+
+    public void clear() {
+        Arrays.fill(cells, (byte) 0);
+    }
+
+    public int clues() {
+        int clues = 0;
+        for (byte value : cells) {
+            if (value != 0) {
+                clues++;
+            }
+        }
+        return clues;
+    }
+
+    public boolean isFull() {
+        for (byte value : cells) {
+            if (value == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int[][] toMatrix() {
+        return toMatrix(new int[geometry.size][geometry.size]);
+    }
+
+    /**
+     * @param matrix the column-major matrix to fill
+     */
+    public int[][] toMatrix(int[][] matrix) {
+        for (int i = 0; i < cells.length; i++) {
+            matrix[geometry.column[i]][geometry.row[i]] = cells[i];
+        }
+        return matrix;
+    }
+
+    /**
+     * Fills masks with the candidates of every cell. Filled cells get the candidates they would have if empty.
+     *
+     * @param masks an array with an entry per cell, or null to allocate one
+     */
+    public int[] candidates(int[] masks) {
+        if (masks == null) {
+            masks = new int[cells.length];
+        }
+        Candidates candidates = new Candidates(this);
+        for (int i = 0; i < cells.length; i++) {
+            masks[i] = candidates.candidates(i);
+        }
+        return masks;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Board && Arrays.equals(cells, ((Board) o).cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(cells);
+    }
+
+    /**
+     * @return the board in the one line format, with '0' for empty cells
+     */
+    @Override
+    public String toString() {
+        char[] line = new char[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            line[i] = Geometry.charOf(cells[i]);
+        }
+        return new String(line);
+    }
+}
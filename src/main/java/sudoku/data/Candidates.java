@@ -0,0 +1,171 @@
+package sudoku.data;
+
+import java.util.Arrays;
+
+/**
+ * Incrementally maintained candidates for a board of any {@link Geometry}.
+ * <p>
+ * Every row, column and sector keeps a count per digit and a mask of the digits it contains, so placing or
+ * removing a value only touches the three units of that cell and reading the candidates of a cell is three ORs.
+ * The counts keep the masks correct even when a board contains conflicting values.
+ */
+public final class Candidates {
+    private final Geometry geometry;
+    private final int size;
+    private final int[] row;
+    private final int[] column;
+    private final int[] sector;
+    //units are indexed as in Geometry.units: rows, then columns, then sectors
+    private final int[] masks;
+    private final byte[] counts;
+    private final byte[] values;
+
+    public Candidates() {
+        this(Geometry.STANDARD);
+    }
+
+    public Candidates(Geometry geometry) {
+        this.geometry = geometry;
+        size = geometry.size;
+        row = geometry.row;
+        column = geometry.column;
+        sector = geometry.sector;
+        masks = new int[3 * size];
+        counts = new byte[3 * size * size];
+        values = new byte[geometry.cells];
+    }
+
+    public Candidates(Board board) {
+        this(board.geometry());
+        load(board);
+    }
+
+    public Geometry geometry() {
+        return geometry;
+    }
+
+    public void clear() {
+        Arrays.fill(masks, 0);
+        Arrays.fill(counts, (byte) 0);
+        Arrays.fill(values, (byte) 0);
+    }
+
+    /**
+     * Replaces the tracked values with those of a board of the same geometry
+     *
+     * @return false if the board contains conflicting values
+     */
+    public boolean load(Board board) {
+        if (board.geometry() != geometry) {
+            throw new IllegalArgumentException("Cannot load a " + board.geometry() + " board into " + geometry
+                    + " candidates");
+        }
+        clear();
+        boolean valid = true;
+        for (int i = 0; i < values.length; i++) {
+            int value = board.get(i);
+            if (value != 0) {
+                valid &= canPlace(i, value);
+                place(i, value);
+            }
+        }
+        return valid;
+    }
+
+    public void copyFrom(Candidates other) {
+        System.arraycopy(other.masks, 0, masks, 0, masks.length);
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        System.arraycopy(other.values, 0, values, 0, values.length);
+    }
+
+    public int value(int index) {
+        return values[index];
+    }
+
+    /**
+     * @return true if the value does not appear in the cell's row, column or sector
+     */
+    public boolean canPlace(int index, int value) {
+        return (used(index) & 1 << (value - 1)) == 0;
+    }
+
+    /**
+     * Sets the value of a cell, replacing any value it already had
+     */
+    public void place(int index, int value) {
+        if (values[index] != 0) {
+            unplace(index);
+        }
+        values[index] = (byte) value;
+        int bit = 1 << (value - 1);
+        int row = this.row[index];
+        int column = size + this.column[index];
+        int sector = 2 * size + this.sector[index];
+        if (counts[row * size + value - 1]++ == 0) {
+            masks[row] |= bit;
+        }
+        if (counts[column * size + value - 1]++ == 0) {
+            masks[column] |= bit;
+        }
+        if (counts[sector * size + value - 1]++ == 0) {
+            masks[sector] |= bit;
+        }
+    }
+
+    /**
+     * Empties a cell
+     */
+    public void unplace(int index) {
+        int value = values[index];
+        if (value == 0) {
+            return;
+        }
+        values[index] = 0;
+        int row = this.row[index];
+        int column = size + this.column[index];
+        int sector = 2 * size + this.sector[index];
+        //a unit keeps the digit while another of its cells still holds it
+        int bit = ~(1 << (value - 1));
+        if (--counts[row * size + value - 1] == 0) {
+            masks[row] &= bit;
+        }
+        if (--counts[column * size + value - 1] == 0) {
+            masks[column] &= bit;
+        }
+        if (--counts[sector * size + value - 1] == 0) {
+            masks[sector] &= bit;
+        }
+    }
+
+    /**
+     * @return the digits present in the row, column and sector of the cell, including its own value
+     */
+    public int used(int index) {
+        return masks[row[index]] | masks[size + column[index]] | masks[2 * size + sector[index]];
+    }
+
+    /**
+     * @return the mask of values that could be placed in the cell given its peers; the value of a filled cell is only
+     * excluded if a peer holds it as well
+     */
+    public int candidates(int index) {
+        int used = used(index);
+        int value = values[index];
+        if (value != 0) {
+            int digit = value - 1;
+            if (counts[row[index] * size + digit] == 1
+                    && counts[(size + column[index]) * size + digit] == 1
+                    && counts[(2 * size + sector[index]) * size + digit] == 1) {
+                used &= ~(1 << digit);
+            }
+        }
+        return ~used & geometry.allCandidates;
+    }
+
+    /**
+     * @return the digits present in a unit, indexed as in {@link Geometry#units}
+     */
+    public int unitMask(int unit) {
+        return masks[unit];
+    }
+}
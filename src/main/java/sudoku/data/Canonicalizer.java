@@ -0,0 +1,395 @@
+package sudoku.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the canonical form of a puzzle: the lexicographically smallest board, read row by row with 0 for an empty
+ * cell, among all boards reachable through transposition, band and stack permutations, row and column permutations
+ * within bands and stacks, and digit relabeling. Equivalent puzzles share a canonical form, so it can key a cache.
+ * <p>
+ * Digits are relabeled in order of first appearance, so the search is over row and column orders. The canonical board
+ * is built a row at a time, keeping every partial transformation that ties for the smallest rows so far. Column orders
+ * are not enumerated up front: each partial transformation holds an ordered partition of the columns, and a group of
+ * columns (or of whole stacks) is only split once a row tells its members apart, and only branched on when members
+ * tie on a digit seen for the first time. Empty columns and stacks therefore never branch, and almost every branch is
+ * pruned after the first few rows.
+ * <p>
+ * Supports sectors up to 3 wide, as ties on larger boards branch too widely. Instances are not thread safe.
+ */
+public final class Canonicalizer {
+    private final Geometry geometry;
+    private final int box;
+    private final int size;
+    /**
+     * Sorts after every label when comparing stacks
+     */
+    private final int fresh;
+    //the puzzle as read in each orientation: values[transposed][row][column]
+    private final int[][][] values;
+    private final int[] best;
+    private final int[] row;
+    private List<Partial> current = new ArrayList<>();
+    private List<Partial> next = new ArrayList<>();
+
+    //the expansion in progress: the partial transformation, the source row it takes next, and the child being built
+    private Partial parent;
+    private int[] source;
+    private int sourceRow;
+    private int k;
+    private int cmp;
+    private boolean found;
+    private final int[] labels;
+    private final int[] columns;
+    private final boolean[] columnBreaks;
+    private final boolean[] stackBreaks;
+    private final int[] slotStacks;
+    private final boolean[] ungrouped;
+    private final boolean[] emptyStacks;
+    private final int[][][] signatures;
+
+    public Canonicalizer(Geometry geometry) {
+        if (!supports(geometry)) {
+            throw new IllegalArgumentException("Cannot canonicalize " + geometry + " boards");
+        }
+        this.geometry = geometry;
+        box = geometry.box;
+        size = geometry.size;
+        fresh = size + 1;
+        values = new int[2][size][size];
+        best = new int[size];
+        row = new int[size];
+        labels = new int[size + 1];
+        columns = new int[size];
+        columnBreaks = new boolean[size];
+        stackBreaks = new boolean[box];
+        slotStacks = new int[box];
+        ungrouped = new boolean[box];
+        emptyStacks = new boolean[box];
+        signatures = new int[box][box][box];
+    }
+
+    public Canonicalizer() {
+        this(Geometry.STANDARD);
+    }
+
+    public static boolean supports(Geometry geometry) {
+        return geometry.box <= 3;
+    }
+
+    /**
+     * Writes the canonical form of the puzzle into canonical
+     *
+     * @return the transform from the puzzle to its canonical form
+     */
+    public Transform canonicalize(Board puzzle, Board canonical) {
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                values[0][r][c] = puzzle.get(c, r);
+                values[1][r][c] = puzzle.get(r, c);
+            }
+        }
+        current.clear();
+        current.add(new Partial(0));
+        current.add(new Partial(1));
+        for (k = 0; k < size; k++) {
+            next.clear();
+            found = false;
+            for (Partial partial : current) {
+                int band = k % box == 0 ? -1 : partial.rows[k - 1] / box;
+                for (int r = 0; r < size; r++) {
+                    boolean allowed = band < 0 ? (partial.bands & 1 << r / box) == 0
+                            : r / box == band && (partial.used & 1 << r) == 0;
+                    if (allowed) {
+                        expand(partial, r);
+                    }
+                }
+            }
+            List<Partial> swap = current;
+            current = next;
+            next = swap;
+            for (int c = 0; c < size; c++) {
+                canonical.set(c, k, best[c]);
+            }
+        }
+        Partial result = current.get(0);
+        int[] digits = result.labels.clone();
+        //digits the puzzle does not use get the remaining labels in order, so the transform applies to solutions
+        int label = result.nextLabel;
+        for (int v = 1; v <= size; v++) {
+            if (digits[v] == 0) {
+                digits[v] = label++;
+            }
+        }
+        return new Transform(geometry, result.transposed == 1, result.rows, result.columns, digits);
+    }
+
+    /**
+     * Adds every smallest way of appending the source row to the partial transformation to {@link #next}, replacing
+     * its contents if the row beats the best so far
+     */
+    private void expand(Partial partial, int r) {
+        parent = partial;
+        sourceRow = r;
+        source = values[partial.transposed][r];
+        System.arraycopy(partial.labels, 0, labels, 0, size + 1);
+        cmp = 0;
+        fill(0, 0, 0, partial.nextLabel);
+    }
+
+    /**
+     * Places the columns of the child from position p on
+     *
+     * @param usedColumns the source columns placed so far
+     * @param usedStacks  the source stacks placed so far
+     * @return false once the row is known to be larger than the best row
+     */
+    private boolean fill(int p, int usedColumns, int usedStacks, int nextLabel) {
+        if (p == size) {
+            leaf(nextLabel);
+            return true;
+        }
+        int slot = p / box;
+        if (p % box != 0) {
+            return fillColumns(p, usedColumns, usedStacks, nextLabel);
+        }
+        int groupStart = slot;
+        while (!parent.stackBreak(groupStart)) {
+            groupStart--;
+        }
+        int groupEnd = slot + 1;
+        while (groupEnd < box && !parent.stackBreak(groupEnd)) {
+            groupEnd++;
+        }
+        if (groupEnd - groupStart == 1) {
+            slotStacks[slot] = parent.columns[p] / box;
+            ungrouped[slot] = false;
+            emptyStacks[slot] = false;
+            stackBreaks[slot] = true;
+            return fillColumns(p, usedColumns, usedStacks | 1 << slotStacks[slot], nextLabel);
+        }
+        //stacks in a group are interchangeable so far, and so hold no digits yet; take the smallest first
+        int[][] signature = signatures[slot];
+        int min = -1;
+        for (int s = groupStart; s < groupEnd; s++) {
+            int stack = parent.columns[s * box] / box;
+            if ((usedStacks & 1 << stack) == 0) {
+                sign(stack, signature[stack]);
+                if (min < 0 || compare(signature[stack], signature[min]) < 0) {
+                    min = stack;
+                }
+            }
+        }
+        if (signature[min][box - 1] == 0) {
+            //empty stacks stay grouped, in the order they were in
+            ungrouped[slot] = false;
+            emptyStacks[slot] = true;
+            stackBreaks[slot] = slot == groupStart || !emptyStacks[slot - 1];
+            slotStacks[slot] = min;
+            for (int i = 0; i < box; i++) {
+                columns[p + i] = min * box + i;
+                columnBreaks[p + i] = i == 0;
+                if (!write(p + i, 0)) {
+                    return false;
+                }
+            }
+            return fill(p + box, usedColumns | (1 << box) - 1 << min * box, usedStacks | 1 << min, nextLabel);
+        }
+        for (int s = groupStart; s < groupEnd; s++) {
+            int stack = parent.columns[s * box] / box;
+            if ((usedStacks & 1 << stack) == 0 && compare(signature[stack], signature[min]) == 0) {
+                slotStacks[slot] = stack;
+                ungrouped[slot] = true;
+                emptyStacks[slot] = false;
+                stackBreaks[slot] = true;
+                if (!fillColumns(p, usedColumns, usedStacks | 1 << stack, nextLabel)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Places the next column inside a stack: every empty column of the group at once, else the smallest label, else
+     * each unlabeled digit in turn
+     */
+    private boolean fillColumns(int p, int usedColumns, int usedStacks, int nextLabel) {
+        int slot = p / box;
+        int start;
+        int end;
+        int[] members;
+        if (ungrouped[slot]) {
+            start = 0;
+            end = box;
+            members = null;
+        } else {
+            start = p;
+            while (!parent.columnBreaks[start]) {
+                start--;
+            }
+            end = p + 1;
+            while (end % box != 0 && !parent.columnBreaks[end]) {
+                end++;
+            }
+            members = parent.columns;
+        }
+        int zeros = 0;
+        int smallest = -1;
+        for (int i = start; i < end; i++) {
+            int column = members == null ? slotStacks[slot] * box + i : members[i];
+            if ((usedColumns & 1 << column) != 0) {
+                continue;
+            }
+            int value = source[column];
+            if (value == 0) {
+                columns[p + zeros] = column;
+                columnBreaks[p + zeros] = zeros == 0;
+                if (!write(p + zeros, 0)) {
+                    return false;
+                }
+                usedColumns |= 1 << column;
+                zeros++;
+            } else if (labels[value] != 0 && (smallest < 0 || labels[value] < labels[source[smallest]])) {
+                smallest = column;
+            }
+        }
+        if (zeros > 0) {
+            return fill(p + zeros, usedColumns, usedStacks, nextLabel);
+        }
+        columnBreaks[p] = true;
+        if (smallest >= 0) {
+            columns[p] = smallest;
+            return write(p, labels[source[smallest]])
+                    && fill(p + 1, usedColumns | 1 << smallest, usedStacks, nextLabel);
+        }
+        for (int i = start; i < end; i++) {
+            int column = members == null ? slotStacks[slot] * box + i : members[i];
+            if ((usedColumns & 1 << column) != 0) {
+                continue;
+            }
+            int value = source[column];
+            columns[p] = column;
+            columnBreaks[p] = true;
+            labels[value] = nextLabel;
+            boolean result = write(p, nextLabel) && fill(p + 1, usedColumns | 1 << column, usedStacks, nextLabel + 1);
+            labels[value] = 0;
+            if (!result) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the smallest arrangement of a stack in the source row: empty cells, then labels in order, then digits
+     * not labeled yet
+     */
+    private void sign(int stack, int[] signature) {
+        int count = 0;
+        for (int i = 0; i < box; i++) {
+            if (source[stack * box + i] == 0) {
+                signature[count++] = 0;
+            }
+        }
+        int labeled = count;
+        for (int i = 0; i < box; i++) {
+            int value = source[stack * box + i];
+            if (value != 0) {
+                signature[count++] = labels[value] != 0 ? labels[value] : fresh;
+            }
+        }
+        Arrays.sort(signature, labeled, box);
+    }
+
+    private static int compare(int[] a, int[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                return Integer.compare(a[i], b[i]);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes a value of the row being built, comparing it with the best row
+     *
+     * @return false if the row is larger than the best row
+     */
+    private boolean write(int p, int value) {
+        row[p] = value;
+        if (found && cmp == 0) {
+            cmp = Integer.compare(value, best[p]);
+        }
+        return cmp <= 0;
+    }
+
+    private void leaf(int nextLabel) {
+        if (cmp < 0 || !found) {
+            System.arraycopy(row, 0, best, 0, size);
+            next.clear();
+            found = true;
+            cmp = 0;
+        }
+        next.add(new Partial(parent, k, sourceRow, nextLabel));
+    }
+
+    /**
+     * A transformation whose first rows are chosen: the orientation, the source of every chosen row, the labels given
+     * to the digits seen in them, and the column order as far as those rows decide it. Columns are in groups of
+     * interchangeable columns within a stack, and stacks in groups of interchangeable stacks.
+     */
+    private final class Partial {
+        private final int transposed;
+        private final int[] rows;
+        private final int[] labels;
+        private final int nextLabel;
+        private final int used;
+        private final int bands;
+        private final int[] columns;
+        //whether a group of columns starts at each position, and a group of stacks at each slot
+        private final boolean[] columnBreaks;
+        private final int stackBreaks;
+
+        private Partial(int transposed) {
+            this.transposed = transposed;
+            rows = new int[size];
+            labels = new int[size + 1];
+            nextLabel = 1;
+            used = 0;
+            bands = 0;
+            columns = new int[size];
+            columnBreaks = new boolean[size];
+            for (int c = 0; c < size; c++) {
+                columns[c] = c;
+                columnBreaks[c] = c % box == 0;
+            }
+            stackBreaks = 1;
+        }
+
+        private Partial(Partial parent, int k, int source, int nextLabel) {
+            Canonicalizer outer = Canonicalizer.this;
+            transposed = parent.transposed;
+            rows = parent.rows.clone();
+            rows[k] = source;
+            labels = outer.labels.clone();
+            this.nextLabel = nextLabel;
+            used = parent.used | 1 << source;
+            bands = parent.bands | 1 << source / box;
+            columns = outer.columns.clone();
+            columnBreaks = outer.columnBreaks.clone();
+            int breaks = 0;
+            for (int s = 0; s < box; s++) {
+                if (outer.stackBreaks[s]) {
+                    breaks |= 1 << s;
+                }
+            }
+            stackBreaks = breaks;
+        }
+
+        private boolean stackBreak(int slot) {
+            return (stackBreaks & 1 << slot) != 0;
+        }
+    }
+}
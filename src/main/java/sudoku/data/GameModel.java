@@ -0,0 +1,538 @@
+package sudoku.data;
+
+import sudoku.io.PuzzleReader;
+import sudoku.io.PuzzleWriter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The state of a game, independent of any user interface: the value of every cell, which cells are locked, the
+ * values the player may still pick for each cell, and the undo and redo history.
+ * <p>
+ * Values are plain ints with 0 for an empty cell and domains are candidate masks as in {@link Candidates}, so a game
+ * runs without the JavaFX toolkit. Moves are kept in a bounded {@link History}. Listeners are told about every change
+ * after it has been applied. Every operation runs as an update, see {@link #beginUpdate()}, so a move, an undo or
+ * loading a game reports each affected cell once however many times it changed along the way. Instances are not
+ * thread safe.
+ */
+public class GameModel {
+    /**
+     * Files with this extension hold a puzzle as text, see {@link PuzzleReader}, rather than a saved game
+     */
+    public static final String TEXT_EXTENSION = ".sdk";
+    /**
+     * The number of moves kept for undoing by default
+     */
+    public static final int DEFAULT_HISTORY = 4096;
+
+    private final Geometry geometry;
+    private final Board values;
+    private final boolean[] locked;
+    private final int[] domains;
+    private final Candidates candidates;
+    private final Validator validator;
+    private final List<Listener> listeners = new ArrayList<>();
+    private final History history;
+    /**
+     * Receives the board at the new position when the history jumps
+     */
+    private final Board seek;
+    private boolean restrictDomains;
+    private int updateDepth;
+    private boolean notifying;
+    /**
+     * The cells changed in the current update in the order of their first change, with their state before it
+     */
+    private final int[] changed;
+    private int changedCount;
+    private final boolean[] dirty;
+    private final int[] oldValues;
+    private final int[] oldDomains;
+    private final boolean[] oldLocked;
+    private boolean historyChanged;
+
+    /**
+     * @param historyCapacity the number of moves kept for undoing, older moves are forgotten
+     */
+    public GameModel(Geometry geometry, int historyCapacity) {
+        this.geometry = geometry;
+        values = new Board(geometry);
+        locked = new boolean[geometry.cells];
+        domains = new int[geometry.cells];
+        Arrays.fill(domains, geometry.allCandidates);
+        candidates = new Candidates(geometry);
+        validator = new Validator(geometry);
+        changed = new int[geometry.cells];
+        dirty = new boolean[geometry.cells];
+        oldValues = new int[geometry.cells];
+        oldDomains = new int[geometry.cells];
+        oldLocked = new boolean[geometry.cells];
+        history = new History(geometry, historyCapacity);
+        history.clear(values);
+        seek = new Board(geometry);
+    }
+
+    public GameModel(Geometry geometry) {
+        this(geometry, DEFAULT_HISTORY);
+    }
+
+    public GameModel() {
+        this(Geometry.STANDARD);
+    }
+
+    public Geometry geometry() {
+        return geometry;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts an update: changes are applied at once, but only reported when the matching {@link #endUpdate()} is
+     * called, as at most one call of each kind per cell that ends up different and one history change. Updates nest,
+     * only the outermost one reports. End the update in a finally block: one left open silences every listener.
+     *
+     * @throws IllegalStateException if called by a listener being notified
+     */
+    public void beginUpdate() {
+        if (notifying) {
+            throw new IllegalStateException("Cannot change the game while its listeners are notified");
+        }
+        updateDepth++;
+    }
+
+    /**
+     * Ends an update started by {@link #beginUpdate()}, reporting its changes if it is the outermost one
+     */
+    public void endUpdate() {
+        if (updateDepth == 0) {
+            throw new IllegalStateException("No update to end");
+        }
+        if (--updateDepth > 0) {
+            return;
+        }
+        notifying = true;
+        try {
+            for (int k = 0; k < changedCount; k++) {
+                int index = changed[k];
+                dirty[index] = false;
+                int value = values.get(index);
+                for (Listener listener : listeners) {
+                    if (oldValues[index] != value) {
+                        listener.valueChanged(index, oldValues[index], value);
+                    }
+                    if (oldDomains[index] != domains[index]) {
+                        listener.domainChanged(index, oldDomains[index], domains[index]);
+                    }
+                    if (oldLocked[index] != locked[index]) {
+                        listener.lockChanged(index, locked[index]);
+                    }
+                }
+            }
+            changedCount = 0;
+            if (historyChanged) {
+                historyChanged = false;
+                for (Listener listener : listeners) {
+                    listener.historyChanged();
+                }
+            }
+        } finally {
+            notifying = false;
+        }
+    }
+
+    /**
+     * @return the value of the cell, 0 if it is empty
+     */
+    public int get(int index) {
+        return values.get(index);
+    }
+
+    public int get(int c, int r) {
+        return values.get(c, r);
+    }
+
+    /**
+     * Makes a move: sets the value of a cell, recording it in the undo history and clearing the redo history.
+     * Locked cells and moves that change nothing are ignored.
+     *
+     * @param value the new value, 0 to clear the cell
+     */
+    public void set(int index, int value) {
+        int oldValue = values.get(index);
+        if (locked[index] || oldValue == value) {
+            return;
+        }
+        beginUpdate();
+        try {
+            apply(index, value);
+            history.record(History.move(index, oldValue, value), values);
+            historyChanged = true;
+        } finally {
+            endUpdate();
+        }
+    }
+
+    public void set(int c, int r, int value) {
+        set(geometry.index(c, r), value);
+    }
+
+    /**
+     * @return the values the player may pick for the cell as a mask of candidates, every value unless domains are
+     * being restricted
+     */
+    public int domain(int index) {
+        return domains[index];
+    }
+
+    /**
+     * @return true if domains are being restricted and the cell has no value left
+     */
+    public boolean isInvalid(int index) {
+        return domains[index] == 0;
+    }
+
+    public boolean isLocked(int index) {
+        return locked[index];
+    }
+
+    public void lock(int index) {
+        beginUpdate();
+        try {
+            setLocked(index, true);
+        } finally {
+            endUpdate();
+        }
+    }
+
+    public void unlock(int index) {
+        beginUpdate();
+        try {
+            setLocked(index, false);
+        } finally {
+            endUpdate();
+        }
+    }
+
+    public boolean canUndo() {
+        return history.undoCount() > 0;
+    }
+
+    public boolean canRedo() {
+        return history.redoCount() > 0;
+    }
+
+    public void undo() {
+        beginUpdate();
+        try {
+            int move = history.undo();
+            apply(History.index(move), History.oldValue(move));
+            historyChanged = true;
+        } finally {
+            endUpdate();
+        }
+    }
+
+    public void redo() {
+        beginUpdate();
+        try {
+            int move = history.redo();
+            apply(History.index(move), History.newValue(move));
+            historyChanged = true;
+        } finally {
+            endUpdate();
+        }
+    }
+
+    public int undoCount() {
+        return history.undoCount();
+    }
+
+    public int redoCount() {
+        return history.redoCount();
+    }
+
+    /**
+     * Undoes a number of moves at once, restoring the nearest checkpoint of the history rather than undoing them one
+     * by one, so the cost does not grow with the number of moves
+     */
+    public void undo(int moves) {
+        seek(-moves);
+    }
+
+    /**
+     * Redoes a number of moves at once, see {@link #undo(int)}
+     */
+    public void redo(int moves) {
+        seek(moves);
+    }
+
+    /**
+     * Clears every cell, lock and the history
+     */
+    public void reset() {
+        beginUpdate();
+        try {
+            for (int i = 0; i < geometry.cells; i++) {
+                setLocked(i, false);
+                setValue(i, 0);
+            }
+            candidates.load(values);
+            clearHistory();
+            loadDomains();
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * @return true if every cell is filled and no unit holds a value twice
+     */
+    public boolean isComplete() {
+        return validator.isComplete(values);
+    }
+
+    /**
+     * @return the first cell in row-major order whose value already appears earlier in one of its units, or -1
+     * @see Validator#firstConflict(Board)
+     */
+    public int firstConflict() {
+        return validator.firstConflict(values);
+    }
+
+    public boolean isRestrictingDomains() {
+        return restrictDomains;
+    }
+
+    /**
+     * @param value whether domains only hold the values that do not clash with a peer
+     */
+    public void restrictDomains(boolean value) {
+        beginUpdate();
+        try {
+            restrictDomains = value;
+            loadDomains();
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Replaces the game with the board, clearing locks and the history
+     */
+    public void fromBoard(Board board) {
+        if (board.geometry() != geometry) {
+            throw new IllegalArgumentException("Cannot play a " + board.geometry() + " board on a " + geometry
+                    + " game");
+        }
+        beginUpdate();
+        try {
+            for (int i = 0; i < geometry.cells; i++) {
+                setLocked(i, false);
+                setValue(i, board.get(i));
+            }
+            candidates.load(values);
+            clearHistory();
+            loadDomains();
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * @param matrix a column-major matrix
+     */
+    public void fromMatrix(int[][] matrix) {
+        fromBoard(Board.fromMatrix(matrix));
+    }
+
+    public Board toBoard() {
+        return new Board(values);
+    }
+
+    /**
+     * @return the values as a column-major matrix
+     */
+    public int[][] toMatrix() {
+        return values.toMatrix();
+    }
+
+    /**
+     * Writes the game: a value byte and a locked flag per cell, or a text grid of the values if the file name ends in
+     * {@value #TEXT_EXTENSION}
+     */
+    public void save(Path path) throws IOException {
+        if (path.toString().endsWith(TEXT_EXTENSION)) {
+            try (PuzzleWriter out = PuzzleWriter.create(path, '.')) {
+                out.writeGrid(values);
+            }
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(path))) {
+            for (int i = 0; i < geometry.cells; i++) {
+                out.writeByte(values.get(i));
+                out.writeBoolean(locked[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a game written by {@link #save(Path)}, or the first puzzle of a text file with its givens locked,
+     * clearing the history
+     */
+    public void load(Path path) throws IOException {
+        Board board = new Board(geometry);
+        boolean[] locks = new boolean[geometry.cells];
+        if (path.toString().endsWith(TEXT_EXTENSION)) {
+            try (PuzzleReader in = PuzzleReader.open(path)) {
+                if (!in.next() || in.board() == null || in.board().geometry() != geometry) {
+                    throw new IOException("No " + geometry + " puzzle in " + path);
+                }
+                board.copyFrom(in.board());
+            }
+            for (int i = 0; i < geometry.cells; i++) {
+                locks[i] = board.get(i) != 0;
+            }
+        } else {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+                for (int i = 0; i < geometry.cells; i++) {
+                    int value = in.readUnsignedByte();
+                    if (value > geometry.size) {
+                        throw new IOException("Invalid value " + value + " in " + path);
+                    }
+                    board.set(i, value);
+                    locks[i] = in.readBoolean();
+                }
+            }
+        }
+        beginUpdate();
+        try {
+            fromBoard(board);
+            for (int i = 0; i < geometry.cells; i++) {
+                setLocked(i, locks[i]);
+            }
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /**
+     * Sets a value outside of the history, updating the domains of its peers
+     */
+    private void apply(int index, int value) {
+        if (value == 0) {
+            candidates.unplace(index);
+        } else {
+            candidates.place(index, value);
+        }
+        setValue(index, value);
+        if (restrictDomains) {
+            //only the peers can have gained or lost a value
+            for (int peer : geometry.peers[index]) {
+                setDomain(peer, candidates.candidates(peer));
+            }
+        }
+    }
+
+    private void loadDomains() {
+        for (int i = 0; i < geometry.cells; i++) {
+            setDomain(i, restrictDomains ? candidates.candidates(i) : geometry.allCandidates);
+        }
+    }
+
+    private void clearHistory() {
+        history.clear(values);
+        historyChanged = true;
+    }
+
+    private void seek(int moves) {
+        beginUpdate();
+        try {
+            seek.copyFrom(values);
+            history.seek(moves, seek);
+            for (int i = 0; i < geometry.cells; i++) {
+                setValue(i, seek.get(i));
+            }
+            candidates.load(values);
+            loadDomains();
+            historyChanged = true;
+        } finally {
+            endUpdate();
+        }
+    }
+
+    /*
+     * The setters below are only called within an update
+     */
+
+    private void setValue(int index, int value) {
+        if (values.get(index) != value) {
+            mark(index);
+            values.set(index, value);
+        }
+    }
+
+    private void setDomain(int index, int domain) {
+        if (domains[index] != domain) {
+            mark(index);
+            domains[index] = domain;
+        }
+    }
+
+    private void setLocked(int index, boolean value) {
+        if (locked[index] != value) {
+            mark(index);
+            locked[index] = value;
+        }
+    }
+
+    /**
+     * Records the state of a cell before its first change in the current update
+     */
+    private void mark(int index) {
+        if (!dirty[index]) {
+            dirty[index] = true;
+            changed[changedCount++] = index;
+            oldValues[index] = values.get(index);
+            oldDomains[index] = domains[index];
+            oldLocked[index] = locked[index];
+        }
+    }
+
+    /**
+     * Receives the changes of a game. Every method is called once the update making the change has ended, with the
+     * state of the cell before and after the whole update. Listeners must not change the game while notified.
+     */
+    public interface Listener {
+        default void valueChanged(int index, int oldValue, int newValue) {
+        }
+
+        /**
+         * @param oldDomain the previous candidate mask
+         * @param newDomain the current candidate mask
+         */
+        default void domainChanged(int index, int oldDomain, int newDomain) {
+        }
+
+        default void lockChanged(int index, boolean locked) {
+        }
+
+        /**
+         * Called after the cells changed by an update when moves are made, undone or redone, or the history is cleared
+         */
+        default void historyChanged() {
+        }
+    }
+}
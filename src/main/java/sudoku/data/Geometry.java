@@ -0,0 +1,149 @@
+package sudoku.data;
+
+/**
+ * The shape of an n^2 x n^2 board: n x n sectors of n x n cells, holding the values 1 to n^2.
+ * <p>
+ * Cells are indexed in row-major order (index = row * size + column) and units are numbered rows first, then columns,
+ * then sectors. Candidates of a cell are reported as masks where bit (value - 1) is set if value may be placed, so an
+ * int covers every supported size.
+ */
+public final class Geometry {
+    public static final int MIN_BOX = 2;
+    public static final int MAX_BOX = 5;
+
+    private static final Geometry[] BY_BOX = new Geometry[MAX_BOX + 1];
+
+    static {
+        for (int box = MIN_BOX; box <= MAX_BOX; box++) {
+            BY_BOX[box] = new Geometry(box);
+        }
+    }
+
+    /**
+     * The standard 9x9 board
+     */
+    public static final Geometry STANDARD = BY_BOX[3];
+
+    /**
+     * Width of a sector
+     */
+    public final int box;
+    /**
+     * Width of the board, which is also the number of values
+     */
+    public final int size;
+    public final int cells;
+    public final int allCandidates;
+    /**
+     * Row, column and sector of every cell index
+     */
+    public final int[] row;
+    public final int[] column;
+    public final int[] sector;
+    /**
+     * The cell indices of the rows, then the columns, then the sectors
+     */
+    public final int[][] units;
+    /**
+     * The other cells sharing a row, column or sector with each cell
+     */
+    public final int[][] peers;
+
+    private Geometry(int box) {
+        this.box = box;
+        size = box * box;
+        cells = size * size;
+        allCandidates = (1 << size) - 1;
+        row = new int[cells];
+        column = new int[cells];
+        sector = new int[cells];
+        units = new int[3 * size][size];
+        for (int i = 0; i < cells; i++) {
+            int c = i % size;
+            int r = i / size;
+            int s = c / box + r / box * box;
+            row[i] = r;
+            column[i] = c;
+            sector[i] = s;
+            units[r][c] = i;
+            units[size + c][r] = i;
+            units[2 * size + s][c % box + r % box * box] = i;
+        }
+        peers = new int[cells][3 * size - 2 * box - 1];
+        for (int i = 0; i < cells; i++) {
+            int count = 0;
+            for (int j = 0; j < cells; j++) {
+                if (j != i && (row[i] == row[j] || column[i] == column[j] || sector[i] == sector[j])) {
+                    peers[i][count++] = j;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param box the width of a sector, from {@link #MIN_BOX} to {@link #MAX_BOX}
+     */
+    public static Geometry of(int box) {
+        if (box < MIN_BOX || box > MAX_BOX) {
+            throw new IllegalArgumentException("Unsupported sector width: " + box);
+        }
+        return BY_BOX[box];
+    }
+
+    /**
+     * @param size the width of the board
+     */
+    public static Geometry ofSize(int size) {
+        Geometry geometry = ofCells(size * size);
+        if (geometry == null) {
+            throw new IllegalArgumentException("Unsupported board width: " + size);
+        }
+        return geometry;
+    }
+
+    /**
+     * @return the geometry with this many cells, or null if there is none
+     */
+    public static Geometry ofCells(int cells) {
+        for (int box = MIN_BOX; box <= MAX_BOX; box++) {
+            if (BY_BOX[box].cells == cells) {
+                return BY_BOX[box];
+            }
+        }
+        return null;
+    }
+
+    public int index(int c, int r) {
+        return r * size + c;
+    }
+
+    /**
+     * @return the value of a character in the one line format: 1-9, then A, B, ... (either case) for 10 and up,
+     * or 0 for an empty cell or a character out of range
+     */
+    public int valueOf(char ch) {
+        int value;
+        if (ch >= '1' && ch <= '9') {
+            value = ch - '0';
+        } else if (ch >= 'A' && ch <= 'Z') {
+            value = ch - 'A' + 10;
+        } else if (ch >= 'a' && ch <= 'z') {
+            value = ch - 'a' + 10;
+        } else {
+            return 0;
+        }
+        return value <= size ? value : 0;
+    }
+
+    /**
+     * @return the character of a value in the one line format, '0' for an empty cell
+     */
+    public static char charOf(int value) {
+        return (char) (value < 10 ? '0' + value : 'A' + value - 10);
+    }
+
+    @Override
+    public String toString() {
+        return size + "x" + size;
+    }
+}
@@ -0,0 +1,188 @@
+package sudoku.data;
+
+import java.util.Arrays;
+
+/**
+ * The undo and redo history of a game, kept in a ring buffer of moves encoded in one int each.
+ * <p>
+ * Positions count the moves made since the history was cleared. Moves before the current position can be undone and
+ * moves after it redone. Once the buffer is full, recording a move drops the oldest one. Every
+ * {@link #CHECKPOINT_INTERVAL} positions a copy of the board is kept, so {@link #seek(int, Board)} jumps any distance
+ * by restoring the nearest copy and replaying at most half an interval of moves. Instances are not thread safe.
+ */
+public final class History {
+    public static final int CHECKPOINT_INTERVAL = 64;
+
+    private final Geometry geometry;
+    /**
+     * The move from position p to p + 1 is at p % capacity
+     */
+    private final int[] moves;
+    private long start;
+    private long position;
+    private long end;
+    private final Board[] checkpoints;
+    /**
+     * The position of the board in each checkpoint slot, -1 if the slot is unused
+     */
+    private final long[] checkpointPositions;
+
+    /**
+     * @param capacity the number of moves kept, at least 1
+     */
+    public History(Geometry geometry, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("History capacity must be positive: " + capacity);
+        }
+        this.geometry = geometry;
+        moves = new int[capacity];
+        //enough slots for every checkpoint from the oldest kept position to the newest
+        checkpoints = new Board[capacity / CHECKPOINT_INTERVAL + 2];
+        checkpointPositions = new long[checkpoints.length];
+        Arrays.fill(checkpointPositions, -1);
+    }
+
+    public static int move(int index, int oldValue, int newValue) {
+        return index << 16 | oldValue << 8 | newValue;
+    }
+
+    public static int index(int move) {
+        return move >>> 16;
+    }
+
+    public static int oldValue(int move) {
+        return move >>> 8 & 0xFF;
+    }
+
+    public static int newValue(int move) {
+        return move & 0xFF;
+    }
+
+    public int capacity() {
+        return moves.length;
+    }
+
+    /**
+     * @return the number of moves that can be undone
+     */
+    public int undoCount() {
+        return (int) (position - start);
+    }
+
+    /**
+     * @return the number of moves that can be redone
+     */
+    public int redoCount() {
+        return (int) (end - position);
+    }
+
+    /**
+     * Forgets every move, making the board the starting point
+     */
+    public void clear(Board board) {
+        start = 0;
+        position = 0;
+        end = 0;
+        Arrays.fill(checkpointPositions, -1);
+        checkpoint(board);
+    }
+
+    /**
+     * Records a move made at the current position, dropping the moves that could have been redone
+     *
+     * @param board the board after the move
+     */
+    public void record(int move, Board board) {
+        if (end > position) {
+            for (int slot = 0; slot < checkpointPositions.length; slot++) {
+                if (checkpointPositions[slot] > position) {
+                    checkpointPositions[slot] = -1;
+                }
+            }
+        }
+        moves[(int) (position % moves.length)] = move;
+        position++;
+        end = position;
+        if (end - start > moves.length) {
+            start++;
+        }
+        if (position % CHECKPOINT_INTERVAL == 0) {
+            checkpoint(board);
+        }
+    }
+
+    /**
+     * @return the move to undo, the history moving back one position
+     */
+    public int undo() {
+        if (position == start) {
+            throw new IllegalStateException("Nothing to undo");
+        }
+        position--;
+        return moves[(int) (position % moves.length)];
+    }
+
+    /**
+     * @return the move to redo, the history moving forward one position
+     */
+    public int redo() {
+        if (position == end) {
+            throw new IllegalStateException("Nothing to redo");
+        }
+        return moves[(int) (position++ % moves.length)];
+    }
+
+    /**
+     * Moves the history by a number of positions, and the board with it
+     *
+     * @param steps negative to undo, positive to redo
+     * @param board holds the board at the current position, receives the board at the new one
+     */
+    public void seek(int steps, Board board) {
+        long target = position + steps;
+        if (target < start || target > end) {
+            throw new IllegalArgumentException("Cannot move " + steps + " moves, " + undoCount() + " can be undone and "
+                    + redoCount() + " redone");
+        }
+        long from = position;
+        long floor = target - target % CHECKPOINT_INTERVAL;
+        long ceiling = floor + CHECKPOINT_INTERVAL;
+        if (floor >= start && target - floor < Math.abs(target - from) && hasCheckpoint(floor)) {
+            from = restore(floor, board);
+        }
+        if (ceiling <= end && ceiling - target < Math.abs(target - from) && hasCheckpoint(ceiling)) {
+            from = restore(ceiling, board);
+        }
+        for (long p = from; p < target; p++) {
+            int move = moves[(int) (p % moves.length)];
+            board.set(index(move), newValue(move));
+        }
+        for (long p = from - 1; p >= target; p--) {
+            int move = moves[(int) (p % moves.length)];
+            board.set(index(move), oldValue(move));
+        }
+        position = target;
+    }
+
+    private int slot(long position) {
+        return (int) (position / CHECKPOINT_INTERVAL % checkpoints.length);
+    }
+
+    private boolean hasCheckpoint(long position) {
+        return checkpointPositions[slot(position)] == position;
+    }
+
+    private long restore(long position, Board board) {
+        board.copyFrom(checkpoints[slot(position)]);
+        return position;
+    }
+
+    private void checkpoint(Board board) {
+        int slot = slot(position);
+        if (checkpoints[slot] == null) {
+            checkpoints[slot] = new Board(geometry);
+        }
+        checkpoints[slot].copyFrom(board);
+        checkpointPositions[slot] = position;
+    }
+}
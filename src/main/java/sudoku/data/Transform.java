@@ -0,0 +1,70 @@
+package sudoku.data;
+
+/**
+ * A validity-preserving transformation of a board: an optional transposition, a reordering of rows and of columns
+ * that keeps bands and stacks together, and a relabeling of digits.
+ * <p>
+ * {@link #apply(Board, Board)} maps a board into the transformed space and {@link #invert(Board, Board)} maps it
+ * back, so a solution found for a transformed puzzle can be returned for the original one.
+ */
+public final class Transform {
+    private final Geometry geometry;
+    private final boolean transposed;
+    private final int[] rows;
+    private final int[] columns;
+    private final int[] digits;
+    private final int[] inverseDigits;
+
+    /**
+     * @param transposed whether the source is read column by column
+     * @param rows       the source row of every transformed row
+     * @param columns    the source column of every transformed column
+     * @param digits     the transformed value of every source value, indexed from 1 with digits[0] = 0
+     */
+    public Transform(Geometry geometry, boolean transposed, int[] rows, int[] columns, int[] digits) {
+        this.geometry = geometry;
+        this.transposed = transposed;
+        this.rows = rows.clone();
+        this.columns = columns.clone();
+        this.digits = digits.clone();
+        inverseDigits = new int[digits.length];
+        for (int v = 0; v < digits.length; v++) {
+            inverseDigits[digits[v]] = v;
+        }
+    }
+
+    /**
+     * @return the index in the source of the cell at (c, r) in the transformed board
+     */
+    private int sourceIndex(int c, int r) {
+        int sourceRow = rows[r];
+        int sourceColumn = columns[c];
+        return transposed ? geometry.index(sourceRow, sourceColumn) : geometry.index(sourceColumn, sourceRow);
+    }
+
+    /**
+     * Writes the transformed source into the destination
+     */
+    public Board apply(Board source, Board destination) {
+        int size = geometry.size;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                destination.set(c, r, digits[source.get(sourceIndex(c, r))]);
+            }
+        }
+        return destination;
+    }
+
+    /**
+     * Writes the board a transformed board came from into the destination
+     */
+    public Board invert(Board transformed, Board destination) {
+        int size = geometry.size;
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                destination.set(sourceIndex(c, r), inverseDigits[transformed.get(c, r)]);
+            }
+        }
+        return destination;
+    }
+}
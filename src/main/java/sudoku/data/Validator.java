@@ -0,0 +1,171 @@
+package sudoku.data;
+
+import java.util.Arrays;
+
+/**
+ * Checks boards against the rules without allocating: no value may appear twice in a row, column or sector.
+ * Every unit is tracked as a mask with one bit per value, as in {@link Candidates}.
+ * <p>
+ * A single board is checked cell by cell in row-major order, stopping at the first conflict.
+ * {@link #validate(Board[], int, int, int[])} checks many boards side by side instead, with the boards in the
+ * innermost loop: plain int operations over separate arrays, which the JIT compiler can vectorize.
+ * Instances are not thread safe, use one per thread.
+ */
+public final class Validator {
+    /**
+     * The number of boards checked side by side in batch mode
+     */
+    private static final int LANES = 64;
+
+    private final Geometry geometry;
+    private final int[] units;
+    private int conflictUnit = -1;
+    /**
+     * The values of a batch, cell-major: the value of cell i of board b is at i * LANES + b
+     */
+    private final int[] lanes;
+    private final int[] rows;
+    private final int[] columns;
+    private final int[] sectors;
+    private final int[] laneConflicts = new int[LANES];
+
+    public Validator(Geometry geometry) {
+        this.geometry = geometry;
+        units = new int[3 * geometry.size];
+        lanes = new int[geometry.cells * LANES];
+        rows = new int[geometry.size * LANES];
+        columns = new int[geometry.size * LANES];
+        sectors = new int[geometry.size * LANES];
+    }
+
+    public Validator() {
+        this(Geometry.STANDARD);
+    }
+
+    public Geometry geometry() {
+        return geometry;
+    }
+
+    /**
+     * @return the first cell in row-major order whose value already appears earlier in one of its units, or -1 if the
+     * board has no conflict. Empty cells never conflict.
+     */
+    public int firstConflict(Board board) {
+        check(board);
+        int[] units = this.units;
+        Arrays.fill(units, 0);
+        int size = geometry.size;
+        int[] row = geometry.row;
+        int[] column = geometry.column;
+        int[] sector = geometry.sector;
+        for (int i = 0; i < geometry.cells; i++) {
+            //no bit for an empty cell
+            int bit = 1 << board.get(i) >>> 1;
+            int r = row[i];
+            int c = size + column[i];
+            int s = 2 * size + sector[i];
+            if (((units[r] | units[c] | units[s]) & bit) != 0) {
+                conflictUnit = (units[r] & bit) != 0 ? r : (units[c] & bit) != 0 ? c : s;
+                return i;
+            }
+            units[r] |= bit;
+            units[c] |= bit;
+            units[s] |= bit;
+        }
+        conflictUnit = -1;
+        return -1;
+    }
+
+    /**
+     * @return the unit of the conflict found by the last call to {@link #firstConflict(Board)} as an index into
+     * {@link Geometry#units}, so rows come first, then columns, then sectors, or -1 if there was none
+     */
+    public int conflictUnit() {
+        return conflictUnit;
+    }
+
+    /**
+     * @return true if no value appears twice in a unit, empty cells allowed
+     */
+    public boolean isValid(Board board) {
+        return firstConflict(board) < 0;
+    }
+
+    /**
+     * @return true if every cell is filled and no value appears twice in a unit
+     */
+    public boolean isComplete(Board board) {
+        return board.isFull() && firstConflict(board) < 0;
+    }
+
+    /**
+     * Checks boards a batch at a time. Only the boards with a conflict are checked again one by one, to locate it.
+     *
+     * @param conflicts receives the first conflict of every board as by {@link #firstConflict(Board)}, from index 0
+     * @return the number of boards without a conflict
+     */
+    public int validate(Board[] boards, int offset, int count, int[] conflicts) {
+        int valid = 0;
+        for (int start = 0; start < count; start += LANES) {
+            int batch = Math.min(LANES, count - start);
+            for (int b = 0; b < LANES; b++) {
+                if (b < batch) {
+                    Board board = boards[offset + start + b];
+                    check(board);
+                    for (int i = 0; i < geometry.cells; i++) {
+                        lanes[i * LANES + b] = board.get(i);
+                    }
+                } else {
+                    //empty boards fill the lanes of a short batch
+                    for (int i = 0; i < geometry.cells; i++) {
+                        lanes[i * LANES + b] = 0;
+                    }
+                }
+            }
+            scan();
+            for (int b = 0; b < batch; b++) {
+                if (laneConflicts[b] == 0) {
+                    conflicts[start + b] = -1;
+                    valid++;
+                } else {
+                    conflicts[start + b] = firstConflict(boards[offset + start + b]);
+                }
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Checks every lane of the batch at once, setting the bits of the values found twice in {@link #laneConflicts}
+     */
+    private void scan() {
+        int[] lanes = this.lanes;
+        int[] rows = this.rows;
+        int[] columns = this.columns;
+        int[] sectors = this.sectors;
+        int[] conflicts = laneConflicts;
+        Arrays.fill(rows, 0);
+        Arrays.fill(columns, 0);
+        Arrays.fill(sectors, 0);
+        Arrays.fill(conflicts, 0);
+        for (int i = 0; i < geometry.cells; i++) {
+            int cell = i * LANES;
+            int r = geometry.row[i] * LANES;
+            int c = geometry.column[i] * LANES;
+            int s = geometry.sector[i] * LANES;
+            for (int b = 0; b < LANES; b++) {
+                int bit = 1 << lanes[cell + b] >>> 1;
+                conflicts[b] |= (rows[r + b] | columns[c + b] | sectors[s + b]) & bit;
+                rows[r + b] |= bit;
+                columns[c + b] |= bit;
+                sectors[s + b] |= bit;
+            }
+        }
+    }
+
+    private void check(Board board) {
+        if (board.geometry() != geometry) {
+            throw new IllegalArgumentException("Cannot validate a " + board.geometry() + " board as " + geometry);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package sudoku.generator;
+
+import sudoku.logic.Technique;
+
+/**
+ * Difficulty grades, judged by the hardest technique a person needs, see {@link Rater}
+ */
+public enum Difficulty {
+    /**
+     * Solvable with naked and hidden singles alone
+     */
+    EASY,
+    /**
+     * Needs pointing pairs, box/line reduction or naked and hidden pairs
+     */
+    MEDIUM,
+    /**
+     * Needs triples, fish or XY-wings, but no guessing
+     */
+    HARD,
+    /**
+     * Cannot be solved without guessing
+     */
+    EXPERT;
+
+    static Difficulty of(Rating rating) {
+        Technique hardest = rating.hardest();
+        if (rating.guesses() > 0) {
+            return EXPERT;
+        }
+        if (hardest == null || hardest.compareTo(Technique.HIDDEN_SINGLE) <= 0) {
+            return EASY;
+        }
+        return hardest.compareTo(Technique.HIDDEN_PAIR) <= 0 ? MEDIUM : HARD;
+    }
+}
@@ -0,0 +1,221 @@
+package sudoku.generator;
+
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+import sudoku.io.PuzzleStore;
+import sudoku.solvers.bitmask.BitmaskSolver;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Generates puzzles with a unique solution by filling a random grid and then removing clues in random order.
+ * <p>
+ * A clue is only removed if the puzzle stays unique and no harder than the target, as judged by a {@link Rater}.
+ * An attempt that ends up easier than the target is thrown away.
+ * Instances are not thread safe, use one per thread.
+ */
+public class PuzzleGenerator {
+    private final Random random;
+    private final Board empty = new Board();
+    private final BitmaskSolver filler = new BitmaskSolver(empty);
+    private final Rater rater = new Rater();
+    private final Board solution = new Board();
+    private final int[] order = new int[81];
+    private long attempts;
+
+    public PuzzleGenerator(Random random) {
+        this.random = random;
+        filler.setRandom(random);
+        for (int i = 0; i < 81; i++) {
+            order[i] = i;
+        }
+    }
+
+    public PuzzleGenerator() {
+        this(new Random());
+    }
+
+    public Board generate(Difficulty target) {
+        Board puzzle;
+        do {
+            attempts++;
+            puzzle = attempt(target);
+        } while (puzzle == null);
+        return puzzle;
+    }
+
+    /**
+     * Generates a puzzle like {@link #generate(Difficulty)}, giving up between attempts once the timeout has elapsed
+     *
+     * @return the puzzle, or null if the timeout elapsed first
+     */
+    public Board generate(Difficulty target, long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        Board puzzle = null;
+        while (puzzle == null && System.nanoTime() - deadline < 0) {
+            attempts++;
+            puzzle = attempt(target);
+        }
+        return puzzle;
+    }
+
+    /**
+     * @return the solution of the last generated puzzle, overwritten by the next one
+     */
+    public Board solution() {
+        return solution;
+    }
+
+    /**
+     * @return the number of grids filled so far, including those discarded for missing the target
+     */
+    public long attempts() {
+        return attempts;
+    }
+
+    private Board attempt(Difficulty target) {
+        filler.reset(empty);
+        filler.findSingleSolution();
+        Board puzzle = filler.getSolution();
+        solution.copyFrom(puzzle);
+
+        for (int i = 80; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+
+        Difficulty rating = Difficulty.EASY;
+        for (int i : order) {
+            int value = puzzle.get(i);
+            puzzle.set(i, 0);
+            Difficulty candidate = rate(puzzle);
+            if (candidate == null || candidate.compareTo(target) > 0) {
+                puzzle.set(i, value);
+            } else {
+                rating = candidate;
+            }
+        }
+        return rating == target ? puzzle : null;
+    }
+
+    /**
+     * @return the difficulty of the puzzle, or null if it does not have exactly one solution
+     */
+    public Difficulty rate(Board puzzle) {
+        Rating rating = rater.rate(puzzle);
+        return rating == null ? null : rating.difficulty();
+    }
+
+    /**
+     * Generates puzzles on a pool of threads, each with its own generator
+     *
+     * @param sink receives every puzzle, from any of the threads
+     */
+    public static void generate(int count, Difficulty target, int threads, Consumer<Board> sink)
+            throws InterruptedException {
+        generate(count, target, threads, (puzzle, solution) -> sink.accept(puzzle));
+    }
+
+    /**
+     * Generates puzzles on a pool of threads, each with its own generator
+     *
+     * @param sink receives every puzzle with its solution, from any of the threads
+     */
+    public static void generate(int count, Difficulty target, int threads, BiConsumer<Board, Board> sink)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicInteger remaining = new AtomicInteger(count);
+        List<Callable<Void>> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            workers.add(() -> {
+                PuzzleGenerator generator = new PuzzleGenerator();
+                while (remaining.getAndDecrement() > 0) {
+                    Board puzzle = generator.generate(target);
+                    sink.accept(puzzle, generator.solution());
+                }
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> worker : pool.invokeAll(workers)) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Puzzle generation failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Usage: PuzzleGenerator [-threads n] [-store file] count [easy|medium|hard|expert]
+     * <p>
+     * Writes the puzzles to stdout in the one line format, or with their solutions to a new {@link PuzzleStore}
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int count = 1;
+        Difficulty target = Difficulty.MEDIUM;
+        String store = null;
+        int positional = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-store")) {
+                store = args[++i];
+            } else if (positional++ == 0) {
+                count = Integer.parseInt(args[i]);
+            } else {
+                target = Difficulty.valueOf(args[i].toUpperCase(Locale.ROOT));
+            }
+        }
+
+        long start = System.nanoTime();
+        if (store != null) {
+            try (PuzzleStore out = PuzzleStore.create(Paths.get(store), Geometry.STANDARD, true)) {
+                generate(count, target, threads, (puzzle, solution) -> {
+                    synchronized (out) {
+                        try {
+                            out.append(puzzle, solution);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+            }
+        } else {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII), 1 << 16);
+            generate(count, target, threads, puzzle -> {
+                String line = puzzle.toString();
+                synchronized (out) {
+                    try {
+                        out.write(line);
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+            out.flush();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Generated %d %s puzzles in %.3fs (%.1f puzzles/sec)%n",
+                count, target.name().toLowerCase(Locale.ROOT), seconds, count / seconds);
+    }
+}
@@ -0,0 +1,66 @@
+package sudoku.generator;
+
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+import sudoku.logic.LogicEngine;
+import sudoku.solvers.Solver;
+import sudoku.solvers.bitmask.BitmaskSolver;
+
+/**
+ * Rates puzzles the way a person would solve them.
+ * <p>
+ * The {@link LogicEngine} applies the easiest technique available until the puzzle is solved or no technique
+ * applies. Whatever is left is finished by a {@link Solver}, whose node count measures the guessing a person would
+ * need, and its solution count proves that the puzzle is unique. Ratings only depend on the puzzle, so they are
+ * stable across runs and threads. Instances are not thread safe, use one per thread.
+ */
+public class Rater {
+    private final LogicEngine engine;
+    private final Solver checker;
+    private final Board remaining;
+
+    public Rater() {
+        this(Geometry.STANDARD);
+    }
+
+    public Rater(Geometry geometry) {
+        engine = new LogicEngine(geometry);
+        remaining = new Board(geometry);
+        checker = new BitmaskSolver(remaining);
+    }
+
+    /**
+     * @return the rating, or null if the puzzle does not have exactly one solution
+     */
+    public Rating rate(Board puzzle) {
+        if (!engine.load(puzzle)) {
+            return null;
+        }
+        int steps = 0;
+        while (engine.step() != null) {
+            steps++;
+        }
+        if (engine.isBroken()) {
+            return null;
+        }
+        //every deduction is sound, so a board finished by logic alone is unique and the remaining board has exactly
+        //the solutions of the puzzle
+        long guesses = 0;
+        if (!engine.isSolved()) {
+            engine.writeTo(remaining);
+            checker.reset(remaining);
+            if (checker.countSolutions(2) != 1) {
+                return null;
+            }
+            guesses = checker.nodeCount();
+        }
+        return new Rating(engine.hardest(), steps, guesses);
+    }
+
+    /**
+     * @return the engine of the last rating, with its per-technique statistics
+     */
+    public LogicEngine engine() {
+        return engine;
+    }
+}
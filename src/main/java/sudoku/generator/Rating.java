@@ -0,0 +1,81 @@
+package sudoku.generator;
+
+import sudoku.logic.Technique;
+
+import java.util.Locale;
+
+/**
+ * How hard a puzzle is for a person: the hardest technique needed, the number of deductions, and how much guessing
+ * is left once the techniques run out
+ */
+public final class Rating implements Comparable<Rating> {
+    /**
+     * Score of a puzzle that cannot be finished without guessing, before adding for the size of the search
+     */
+    public static final double GUESSING_SCORE = 6.0;
+
+    private final Technique hardest;
+    private final int steps;
+    private final long guesses;
+
+    public Rating(Technique hardest, int steps, long guesses) {
+        this.hardest = hardest;
+        this.steps = steps;
+        this.guesses = guesses;
+    }
+
+    /**
+     * @return the hardest technique applied, or null if the puzzle needed no deductions
+     */
+    public Technique hardest() {
+        return hardest;
+    }
+
+    /**
+     * @return the number of logical deductions applied before the puzzle was solved or the techniques ran out
+     */
+    public int steps() {
+        return steps;
+    }
+
+    /**
+     * @return the number of search nodes needed to finish the puzzle after the deductions, 0 if none were needed
+     */
+    public long guesses() {
+        return guesses;
+    }
+
+    /**
+     * @return the score of the hardest technique, or {@value #GUESSING_SCORE} plus the order of magnitude of the
+     * search if the puzzle needs guessing
+     */
+    public double score() {
+        if (guesses > 0) {
+            return GUESSING_SCORE + Math.log10(guesses);
+        }
+        return hardest == null ? 0 : hardest.score();
+    }
+
+    public Difficulty difficulty() {
+        return Difficulty.of(this);
+    }
+
+    /**
+     * Orders by score, then by the number of steps
+     */
+    @Override
+    public int compareTo(Rating o) {
+        int c = Double.compare(score(), o.score());
+        return c != 0 ? c : Integer.compare(steps, o.steps);
+    }
+
+    /**
+     * @return the score, difficulty, hardest technique, steps and guesses, separated by spaces, formatted the same in
+     * every locale
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%.1f %s %s %d %d", score(), difficulty().name().toLowerCase(Locale.ROOT),
+                hardest == null ? "NONE" : hardest.name(), steps, guesses);
+    }
+}
@@ -0,0 +1,395 @@
+package sudoku.io;
+
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads puzzles from ASCII text a chunk at a time, parsing bytes straight into boards so nothing is allocated per
+ * puzzle.
+ * <p>
+ * Two layouts are accepted, and may be mixed in one input:
+ * <ul>
+ * <li>the one line format, one character per cell in row-major order, so 81 characters make a 9x9 puzzle</li>
+ * <li>the grid format of .sdk files, one row of the board per line</li>
+ * </ul>
+ * Cells are 1-9 and then A, B, ... (either case) for givens, and '0', '.' or '*' for empty cells. Spaces, '|', '-' and
+ * '+' are ignored, so grids drawn with separators read the same as plain ones. Lines that are empty or start with '#'
+ * are skipped, and may separate grids.
+ * <p>
+ * A line of 16 cells could be a 4x4 puzzle or a row of a 16x16 grid. Consecutive lines of 16 cells, with at most
+ * separator lines between them, are rows of a grid if one of them holds a value above 4, which no 4x4 puzzle can.
+ * Otherwise sixteen of them ended by an empty line, a comment, another kind of line or the end of the input are a
+ * 16x16 grid, as written by {@link PuzzleWriter#writeGrid}, while fewer, or a seventeenth, make each line a 4x4
+ * puzzle. So a run of exactly sixteen 4x4 puzzles reads as one 16x16 grid.
+ */
+public final class PuzzleReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_CELLS = Geometry.of(Geometry.MAX_BOX).cells;
+    private static final Geometry SMALL = Geometry.of(Geometry.MIN_BOX);
+    private static final boolean[] CELL = new boolean[256];
+    /**
+     * The value of every cell character on the largest board
+     */
+    private static final byte[] VALUE = new byte[128];
+
+    static {
+        Geometry largest = Geometry.of(Geometry.MAX_BOX);
+        for (int c = '0'; c <= '9'; c++) {
+            CELL[c] = true;
+        }
+        for (int c = 'A'; c <= 'Z'; c++) {
+            CELL[c] = true;
+            CELL[c - 'A' + 'a'] = true;
+        }
+        CELL['.'] = true;
+        CELL['*'] = true;
+        for (int c = 0; c < VALUE.length; c++) {
+            VALUE[c] = (byte) largest.valueOf((char) c);
+        }
+    }
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] bytes = buffer.array();
+    private int position;
+    private int limit;
+    /**
+     * The cells of the record being read, then of a line read past its end, so twice the largest board
+     */
+    private final byte[] cells = new byte[2 * MAX_CELLS];
+    private final Board[] boards = new Board[Geometry.MAX_BOX + 1];
+    /**
+     * The number of cells of a line read past the end of the last record, kept in the cells from {@link #carriedOffset}
+     */
+    private int carried;
+    private int carriedOffset;
+    /**
+     * The number of lines of 16 cells found to be 4x4 puzzles and not returned yet, kept in the cells from
+     * {@link #pendingOffset}
+     */
+    private int pending;
+    private int pendingOffset;
+    /**
+     * Whether the last lines were 4x4 puzzles of 16 cells, so the next such line is one too
+     */
+    private boolean run;
+    /**
+     * Whether the last line scanned held a separator, so a line without cells was part of a drawn grid, not empty
+     */
+    private boolean separator;
+    private Board board;
+    private long line;
+    private long recordLine;
+    private long records;
+
+    public PuzzleReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    public PuzzleReader(InputStream in) {
+        this(Channels.newChannel(in));
+    }
+
+    public static PuzzleReader open(Path path) throws IOException {
+        return new PuzzleReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Reads the next puzzle, or the next malformed record
+     *
+     * @return false at the end of the input
+     */
+    public boolean next() throws IOException {
+        board = null;
+        if (pending > 0) {
+            int offset = pendingOffset;
+            pending--;
+            pendingOffset += SMALL.cells;
+            fill(SMALL, offset);
+            recordLine++;
+            return true;
+        }
+        int count = 0;
+        Geometry grid = null;
+        //whether the grid is made of lines that may still turn out to be 4x4 puzzles
+        boolean rows = false;
+        long first = 0;
+        while (true) {
+            int start = count;
+            int width;
+            if (carried > 0) {
+                width = carried;
+                System.arraycopy(cells, carriedOffset, cells, 0, Math.min(width, MAX_CELLS));
+                carried = 0;
+            } else {
+                if (position == limit && !refill()) {
+                    if (grid == null) {
+                        return false;
+                    }
+                    //a grid cut short by the end of the input
+                    return rows ? endRows(grid, count, first) : malformed();
+                }
+                line++;
+                if (bytes[position] == '#') {
+                    skipLine();
+                    run = false;
+                    if (rows) {
+                        return endRows(grid, count, first);
+                    }
+                    continue;
+                }
+                width = scan(count);
+                if (width == 0) {
+                    if (separator) {
+                        continue;
+                    }
+                    run = false;
+                    if (rows) {
+                        return endRows(grid, count, first);
+                    }
+                    continue;
+                }
+            }
+            count = start + width;
+            boolean row = width == SMALL.cells && aboveSmall(start, width);
+            if (grid == null) {
+                if (width > MAX_CELLS) {
+                    //longer than any board
+                    run = false;
+                    return malformed();
+                }
+                Geometry geometry = Geometry.ofCells(width);
+                grid = ofSize(width);
+                if (geometry != null && grid != null && !row) {
+                    if (run) {
+                        return fill(geometry, 0);
+                    }
+                    rows = true;
+                    first = line;
+                } else if (geometry != null && grid == null) {
+                    run = false;
+                    return fill(geometry, 0);
+                } else if (grid == null) {
+                    run = false;
+                    return malformed();
+                }
+                run = false;
+            } else if (width != grid.size) {
+                //the line is not a row of the grid, but may be a record of its own
+                carry(start, width);
+                return rows ? endRows(grid, start, first) : malformed();
+            } else if (rows && start == grid.cells) {
+                //a seventeenth line, so the lines are 4x4 puzzles
+                carry(start, width);
+                return split(start, first);
+            } else if (row) {
+                rows = false;
+            }
+            if (count == grid.cells && !rows) {
+                return fill(grid, 0);
+            }
+        }
+    }
+
+    /**
+     * @return the puzzle read by the last call to {@link #next()}, or null if that record was not a puzzle.
+     * The board is reused for every puzzle of its size, copy it to keep it.
+     */
+    public Board board() {
+        return board;
+    }
+
+    /**
+     * @return the number of the line the last record ended on, counting from 1
+     */
+    public long line() {
+        return recordLine;
+    }
+
+    /**
+     * @return the number of records read, including malformed ones
+     */
+    public long records() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Parses a puzzle in the one line format from part of a character array into a board of matching size
+     *
+     * @return false if the characters do not make a board of that size
+     */
+    public static boolean parse(char[] chars, int offset, int length, Board board) {
+        Geometry geometry = board.geometry();
+        int count = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = chars[i];
+            if (c < 256 && CELL[c]) {
+                if (count == geometry.cells) {
+                    return false;
+                }
+                board.set(count++, geometry.valueOf(c));
+            }
+        }
+        return count == geometry.cells;
+    }
+
+    /**
+     * Makes the cells from the offset the puzzle of the record
+     */
+    private boolean fill(Geometry geometry, int offset) {
+        Board target = boards[geometry.box];
+        if (target == null) {
+            target = new Board(geometry);
+            boards[geometry.box] = target;
+        }
+        int size = geometry.size;
+        for (int i = 0; i < geometry.cells; i++) {
+            int value = VALUE[cells[offset + i]];
+            target.set(i, value <= size ? value : 0);
+        }
+        board = target;
+        records++;
+        recordLine = line;
+        return true;
+    }
+
+    private boolean malformed() {
+        records++;
+        recordLine = line;
+        return true;
+    }
+
+    /**
+     * Ends a grid of lines of 16 cells that may be 4x4 puzzles, returning it if it is whole and queueing its lines as
+     * puzzles otherwise
+     *
+     * @param count the number of cells in the grid
+     * @param first the line the grid started on
+     */
+    private boolean endRows(Geometry grid, int count, long first) {
+        if (count == grid.cells) {
+            fill(grid, 0);
+            recordLine = first + grid.size - 1;
+            return true;
+        }
+        return split(count, first);
+    }
+
+    /**
+     * Returns the first of the lines of 16 cells as a 4x4 puzzle, queueing the others
+     *
+     * @param count the number of cells in the lines
+     * @param first the line they started on
+     */
+    private boolean split(int count, long first) {
+        pending = count / SMALL.cells - 1;
+        pendingOffset = SMALL.cells;
+        run = carried == SMALL.cells && !aboveSmall(carriedOffset, carried);
+        fill(SMALL, 0);
+        recordLine = first;
+        return true;
+    }
+
+    /**
+     * Keeps a line read past the end of a record for the next call to {@link #next()}
+     */
+    private void carry(int offset, int width) {
+        carried = width;
+        carriedOffset = offset;
+    }
+
+    /**
+     * @return whether any of the cells holds a value too large for a 4x4 board
+     */
+    private boolean aboveSmall(int offset, int count) {
+        int size = SMALL.size;
+        for (int i = offset; i < offset + count; i++) {
+            if (VALUE[cells[i]] > size) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Geometry ofSize(int size) {
+        for (int box = Geometry.MIN_BOX; box <= Geometry.MAX_BOX; box++) {
+            if (box * box == size) {
+                return Geometry.of(box);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the rest of the line, storing its cells from count on as long as they fit, and noting whether it held a
+     * separator
+     *
+     * @return the number of cells on the line
+     */
+    private int scan(int count) throws IOException {
+        byte[] bytes = this.bytes;
+        byte[] cells = this.cells;
+        int width = 0;
+        separator = false;
+        do {
+            int p = position;
+            int end = limit;
+            while (p < end) {
+                int c = bytes[p++] & 0xFF;
+                if (c == '\n') {
+                    position = p;
+                    return width;
+                }
+                if (CELL[c]) {
+                    if (count + width < cells.length) {
+                        cells[count + width] = (byte) c;
+                    }
+                    width++;
+                } else if (c == '-' || c == '|' || c == '+') {
+                    separator = true;
+                }
+            }
+            position = p;
+        } while (refill());
+        return width;
+    }
+
+    private void skipLine() throws IOException {
+        do {
+            while (position < limit) {
+                if (bytes[position++] == '\n') {
+                    return;
+                }
+            }
+        } while (refill());
+    }
+
+    /**
+     * @return false at the end of the input
+     */
+    private boolean refill() throws IOException {
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+}
@@ -0,0 +1,410 @@
+package sudoku.io;
+
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A file of fixed size puzzle records, read through memory mapped chunks so any puzzle can be fetched by index
+ * without reading the ones before it.
+ * <p>
+ * The file starts with a 16 byte header: the magic number, the sector width, a flags byte and the number of records.
+ * Every record holds the puzzle and, if the store was created with room for them, its solution. Each board is packed
+ * at the fewest bits per cell that fit its values in row-major order, low bits first, so a 9x9 board takes 41 bytes
+ * at 4 bits per cell. An empty solution means none has been stored.
+ * <p>
+ * Reads and {@link #writeSolution(long, Board)} only touch their own record and may run on any number of threads at
+ * once. Appends are buffered and written through the channel, and must not run concurrently with anything else.
+ * Records appended since the last read are only mapped by the next read that needs them, so an import maps nothing.
+ */
+public final class PuzzleStore implements Closeable {
+    public static final String EXTENSION = ".sdb";
+
+    private static final int MAGIC = 0x53444231;
+    private static final int HEADER = 16;
+    private static final int COUNT_OFFSET = 8;
+    private static final int FLAG_SOLUTIONS = 1;
+    private static final long CHUNK_BYTES = 1L << 30;
+    private static final int APPEND_RECORDS = 1 << 12;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final FileChannel.MapMode mode;
+    private final Geometry geometry;
+    private final boolean solutions;
+    private final int bits;
+    private final int boardBytes;
+    private final int recordSize;
+    private final int chunkRecords;
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    /**
+     * The number of records covered by the chunks
+     */
+    private volatile long mapped;
+    private long flushed;
+    private ByteBuffer pending;
+
+    private PuzzleStore(Path path, FileChannel channel, boolean writable, Geometry geometry, boolean solutions,
+                        long count) {
+        this.path = path;
+        this.channel = channel;
+        this.mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        this.geometry = geometry;
+        this.solutions = solutions;
+        bits = 32 - Integer.numberOfLeadingZeros(geometry.size);
+        boardBytes = (geometry.cells * bits + 7) / 8;
+        recordSize = solutions ? 2 * boardBytes : boardBytes;
+        chunkRecords = (int) (CHUNK_BYTES / recordSize);
+        flushed = count;
+    }
+
+    /**
+     * Creates an empty store, replacing any file at the path
+     *
+     * @param solutions whether records have room for a solution
+     */
+    public static PuzzleStore create(Path path, Geometry geometry, boolean solutions) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).put((byte) geometry.box).put((byte) (solutions ? FLAG_SOLUTIONS : 0)).putShort((short) 0)
+                .putLong(0).flip();
+        channel.write(header, 0);
+        return new PuzzleStore(path, channel, true, geometry, solutions, 0);
+    }
+
+    /**
+     * @param writable whether records may be appended and solutions written
+     */
+    public static PuzzleStore open(Path path, boolean writable) throws IOException {
+        FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    break;
+                }
+            }
+            header.flip();
+            if (header.remaining() < HEADER || header.getInt() != MAGIC) {
+                throw new IOException("Not a puzzle store: " + path);
+            }
+            int box = header.get();
+            if (box < Geometry.MIN_BOX || box > Geometry.MAX_BOX) {
+                throw new IOException("Unsupported sector width " + box + " in " + path);
+            }
+            boolean solutions = (header.get() & FLAG_SOLUTIONS) != 0;
+            header.getShort();
+            long count = header.getLong();
+            PuzzleStore store = new PuzzleStore(path, channel, writable, Geometry.of(box), solutions, count);
+            if (channel.size() < store.offset(count)) {
+                throw new IOException("Truncated puzzle store: " + path);
+            }
+            store.map();
+            return store;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Geometry geometry() {
+        return geometry;
+    }
+
+    /**
+     * @return whether records have room for a solution
+     */
+    public boolean hasSolutions() {
+        return solutions;
+    }
+
+    /**
+     * @return the number of records, including appended records not yet flushed
+     */
+    public long size() {
+        return flushed + (pending == null ? 0 : pending.position() / recordSize);
+    }
+
+    public void read(long index, Board puzzle) throws IOException {
+        unpack(record(index), position(index), puzzle);
+    }
+
+    /**
+     * @return false, leaving the board empty, if no solution has been stored for the puzzle
+     */
+    public boolean readSolution(long index, Board solution) throws IOException {
+        requireSolutions();
+        ByteBuffer chunk = record(index);
+        int position = position(index) + boardBytes;
+        unpack(chunk, position, solution);
+        return solution.get(0) != 0;
+    }
+
+    /**
+     * Stores the solution of an existing record in place
+     *
+     * @param solution the solution, or null to clear it
+     */
+    public void writeSolution(long index, Board solution) throws IOException {
+        requireSolutions();
+        requireWritable();
+        ByteBuffer chunk = record(index);
+        int position = position(index) + boardBytes;
+        if (solution == null) {
+            for (int i = 0; i < boardBytes; i++) {
+                chunk.put(position + i, (byte) 0);
+            }
+        } else {
+            pack(solution, chunk, position);
+        }
+    }
+
+    /**
+     * @return the index of the new record
+     */
+    public long append(Board puzzle) throws IOException {
+        return append(puzzle, null);
+    }
+
+    /**
+     * @param solution the solution, or null to leave it empty; ignored if records have no room for one
+     * @return the index of the new record
+     */
+    public long append(Board puzzle, Board solution) throws IOException {
+        requireWritable();
+        if (pending == null) {
+            pending = ByteBuffer.allocate(APPEND_RECORDS * recordSize);
+        }
+        long index = size();
+        int position = pending.position();
+        pack(puzzle, pending, position);
+        if (solutions) {
+            if (solution != null) {
+                pack(solution, pending, position + boardBytes);
+            } else {
+                Arrays.fill(pending.array(), position + boardBytes, position + recordSize, (byte) 0);
+            }
+        }
+        pending.position(position + recordSize);
+        if (!pending.hasRemaining()) {
+            flush();
+        }
+        return index;
+    }
+
+    /**
+     * Writes appended records and the record count to the file
+     */
+    public void flush() throws IOException {
+        if (pending == null || pending.position() == 0) {
+            return;
+        }
+        long count = size();
+        pending.flip();
+        long position = offset(flushed);
+        while (pending.hasRemaining()) {
+            position += channel.write(pending, position);
+        }
+        pending.clear();
+        ByteBuffer header = ByteBuffer.allocate(8);
+        header.putLong(0, count);
+        channel.write(header, COUNT_OFFSET);
+        flushed = count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (mode == FileChannel.MapMode.READ_WRITE) {
+                flush();
+                for (MappedByteBuffer chunk : chunks) {
+                    chunk.force();
+                }
+            }
+        } finally {
+            chunks = new MappedByteBuffer[0];
+            channel.close();
+        }
+    }
+
+    private void requireSolutions() {
+        if (!solutions) {
+            throw new IllegalStateException("No room for solutions in " + path);
+        }
+    }
+
+    private void requireWritable() {
+        if (mode != FileChannel.MapMode.READ_WRITE) {
+            throw new IllegalStateException("Puzzle store is read only: " + path);
+        }
+    }
+
+    private long offset(long index) {
+        return HEADER + index * recordSize;
+    }
+
+    private int position(long index) {
+        return (int) (index % chunkRecords) * recordSize;
+    }
+
+    private ByteBuffer record(long index) throws IOException {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + size());
+        }
+        if (index >= flushed) {
+            flush();
+        }
+        if (index >= mapped) {
+            map();
+        }
+        return chunks[(int) (index / chunkRecords)];
+    }
+
+    /**
+     * Maps every record written so far, keeping the chunks that are already full
+     */
+    private synchronized void map() throws IOException {
+        if (mapped == flushed) {
+            return;
+        }
+        int count = (int) ((flushed + chunkRecords - 1) / chunkRecords);
+        MappedByteBuffer[] maps = Arrays.copyOf(chunks, count);
+        for (int c = 0; c < count; c++) {
+            long first = (long) c * chunkRecords;
+            long records = Math.min(chunkRecords, flushed - first);
+            if (maps[c] == null || maps[c].capacity() < records * recordSize) {
+                maps[c] = channel.map(mode, offset(first), records * recordSize);
+            }
+        }
+        chunks = maps;
+        mapped = flushed;
+    }
+
+    private void pack(Board board, ByteBuffer buffer, int position) {
+        if (board.geometry() != geometry) {
+            throw new IllegalArgumentException("Cannot store a " + board.geometry() + " board with " + geometry
+                    + " boards");
+        }
+        long acc = 0;
+        int filled = 0;
+        for (int i = 0; i < geometry.cells; i++) {
+            acc |= (long) board.get(i) << filled;
+            filled += bits;
+            while (filled >= 8) {
+                buffer.put(position++, (byte) acc);
+                acc >>>= 8;
+                filled -= 8;
+            }
+        }
+        if (filled > 0) {
+            buffer.put(position, (byte) acc);
+        }
+    }
+
+    private void unpack(ByteBuffer buffer, int position, Board board) {
+        if (board.geometry() != geometry) {
+            throw new IllegalArgumentException("Cannot read a " + geometry + " board into a " + board.geometry()
+                    + " board");
+        }
+        int mask = (1 << bits) - 1;
+        long acc = 0;
+        int filled = 0;
+        for (int i = 0; i < geometry.cells; i++) {
+            if (filled < bits) {
+                acc |= (buffer.get(position++) & 0xFFL) << filled;
+                filled += 8;
+            }
+            board.set(i, (int) acc & mask);
+            acc >>>= bits;
+            filled -= bits;
+        }
+    }
+
+    /**
+     * Usage: PuzzleStore import [-solutions] input|- store, or PuzzleStore export [-solutions] store [output|-]
+     * <p>
+     * Import reads puzzles in the one line or the .sdk grid format, see {@link PuzzleReader}, all of the same size.
+     * Export writes the puzzles, or with -solutions the stored solutions, in the one line format.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PuzzleStore import [-solutions] input|- store");
+            System.err.println("       PuzzleStore export [-solutions] store [output|-]");
+            return;
+        }
+        boolean withSolutions = false;
+        String[] files = new String[2];
+        int positional = 0;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-solutions")) {
+                withSolutions = true;
+            } else if (positional < files.length) {
+                files[positional++] = args[i];
+            }
+        }
+        long start = System.nanoTime();
+        long count;
+        if (args[0].equals("import")) {
+            count = importLines(files[0], Paths.get(files[1]), withSolutions);
+        } else {
+            count = exportLines(Paths.get(files[0]), files[1] == null ? "-" : files[1], withSolutions);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("Copied %d puzzles in %.3fs (%.0f puzzles/sec)%n", count, seconds, count / seconds);
+    }
+
+    private static long importLines(String input, Path store, boolean withSolutions) throws IOException {
+        try (PuzzleReader in = input.equals("-") ? new PuzzleReader(System.in) : PuzzleReader.open(Paths.get(input))) {
+            PuzzleStore out = null;
+            try {
+                while (in.next()) {
+                    Board puzzle = in.board();
+                    if (puzzle == null) {
+                        throw new IOException("Not a puzzle on line " + in.line());
+                    }
+                    if (out == null) {
+                        out = create(store, puzzle.geometry(), withSolutions);
+                    } else if (puzzle.geometry() != out.geometry()) {
+                        throw new IOException("A " + puzzle.geometry() + " puzzle on line " + in.line()
+                                + " in a store of " + out.geometry() + " puzzles");
+                    }
+                    out.append(puzzle);
+                }
+                return out == null ? 0 : out.size();
+            } finally {
+                if (out != null) {
+                    out.close();
+                }
+            }
+        }
+    }
+
+    private static long exportLines(Path store, String output, boolean withSolutions) throws IOException {
+        try (PuzzleStore in = open(store, false);
+             PuzzleWriter out = output.equals("-") ? new PuzzleWriter(System.out)
+                     : PuzzleWriter.create(Paths.get(output), '0')) {
+            Board board = new Board(in.geometry());
+            for (long i = 0; i < in.size(); i++) {
+                if (withSolutions) {
+                    in.readSolution(i, board);
+                } else {
+                    in.read(i, board);
+                }
+                out.write(board);
+            }
+            return in.size();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package sudoku.io;
+
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes puzzles as ASCII text through a reused buffer, in the one line format or the grid format of .sdk files, see
+ * {@link PuzzleReader}. Nothing is allocated per puzzle.
+ */
+public final class PuzzleWriter implements Flushable, Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte blank;
+    /**
+     * Whether the last board was written on one line, so a grid written next needs an empty line before it
+     */
+    private boolean line;
+
+    /**
+     * @param blank the character written for an empty cell, usually '0' or '.'
+     */
+    public PuzzleWriter(WritableByteChannel channel, char blank) {
+        this.channel = channel;
+        this.blank = (byte) blank;
+    }
+
+    public PuzzleWriter(WritableByteChannel channel) {
+        this(channel, '0');
+    }
+
+    public PuzzleWriter(OutputStream out) {
+        this(Channels.newChannel(out));
+    }
+
+    public static PuzzleWriter create(Path path, char blank) throws IOException {
+        return new PuzzleWriter(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), blank);
+    }
+
+    /**
+     * Writes the board on one line
+     */
+    public void write(Board board) throws IOException {
+        Geometry geometry = board.geometry();
+        reserve(geometry.cells + 1);
+        for (int i = 0; i < geometry.cells; i++) {
+            buffer.put(cell(board.get(i)));
+        }
+        buffer.put((byte) '\n');
+        line = true;
+    }
+
+    /**
+     * Writes the board one row per line, followed by an empty line so grids can follow each other. After a board
+     * written on one line, an empty line goes before the grid too, so the rows of a 16x16 grid are not read as part of
+     * a run of 4x4 puzzles, see {@link PuzzleReader}.
+     */
+    public void writeGrid(Board board) throws IOException {
+        Geometry geometry = board.geometry();
+        reserve(geometry.cells + geometry.size + 2);
+        if (line) {
+            buffer.put((byte) '\n');
+            line = false;
+        }
+        for (int i = 0; i < geometry.cells; i++) {
+            buffer.put(cell(board.get(i)));
+            if ((i + 1) % geometry.size == 0) {
+                buffer.put((byte) '\n');
+            }
+        }
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Writes a line of ASCII text, such as a status in place of a solution
+     */
+    public void writeLine(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            reserve(1);
+            buffer.put((byte) text.charAt(i));
+        }
+        reserve(1);
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * Writes a board in the one line format into part of a character array
+     *
+     * @return the number of characters written
+     */
+    public static int format(Board board, char[] chars, int offset) {
+        int cells = board.geometry().cells;
+        for (int i = 0; i < cells; i++) {
+            chars[offset + i] = Geometry.charOf(board.get(i));
+        }
+        return cells;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private byte cell(int value) {
+        return value == 0 ? blank : (byte) Geometry.charOf(value);
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,734 @@
+package sudoku.logic;
+
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+import sudoku.io.PuzzleReader;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Solves a board the way a person would, one deduction at a time.
+ * <p>
+ * Candidates are kept as masks per cell. Every {@link #step()} tries the techniques in {@link Technique} order and
+ * applies the first one that places a value or eliminates a candidate, so the easiest available deduction is always
+ * used. For every technique the engine counts how often it fired, how many candidates it removed and how much work
+ * it did (cells, lines or combinations inspected), including the work of failed attempts. Nothing is allocated per
+ * step, so one engine can grade many boards in a row.
+ */
+public class LogicEngine {
+    private static final int NAKED = 0;
+    private static final int HIDDEN = 1;
+    private static final int FISH_ROWS = 2;
+    private static final int FISH_COLUMNS = 3;
+    private static final Technique[] TECHNIQUES = Technique.values();
+
+    private final Geometry geometry;
+    private final int size;
+    private final int cells;
+    private final int all;
+    private final int[] row;
+    private final int[] column;
+    private final int[] sector;
+    private final int[][] units;
+    private final int[][] peers;
+
+    private final int[] values;
+    private final int[] candidates;
+    private int empty;
+    private boolean broken;
+
+    private final long[] fired = new long[TECHNIQUES.length];
+    private final long[] eliminated = new long[TECHNIQUES.length];
+    private final long[] work = new long[TECHNIQUES.length];
+    private Technique hardest;
+    private Technique lastTechnique;
+    private int lastCell;
+    private int lastValue;
+
+    //scratch space for subset searches: the masks to combine and what each one stands for
+    private final int[] masks;
+    private final int[] subjects;
+    private long visited;
+
+    public LogicEngine() {
+        this(Geometry.STANDARD);
+    }
+
+    public LogicEngine(Geometry geometry) {
+        this.geometry = geometry;
+        size = geometry.size;
+        cells = geometry.cells;
+        all = geometry.allCandidates;
+        row = geometry.row;
+        column = geometry.column;
+        sector = geometry.sector;
+        units = geometry.units;
+        peers = geometry.peers;
+        values = new int[cells];
+        candidates = new int[cells];
+        masks = new int[size];
+        subjects = new int[size];
+    }
+
+    /**
+     * Replaces the board, keeping the statistics
+     *
+     * @return false if two givens conflict
+     */
+    public boolean load(Board board) {
+        empty = cells;
+        broken = false;
+        hardest = null;
+        lastTechnique = null;
+        for (int i = 0; i < cells; i++) {
+            values[i] = 0;
+            candidates[i] = all;
+        }
+        for (int i = 0; i < cells; i++) {
+            int value = board.get(i);
+            if (value != 0) {
+                if ((candidates[i] & 1 << (value - 1)) == 0) {
+                    broken = true;
+                    return false;
+                }
+                place(i, value);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies the easiest deduction available
+     *
+     * @return the technique applied, or null if the board is solved, contradictory or beyond these techniques
+     */
+    public Technique step() {
+        if (broken || empty == 0) {
+            return null;
+        }
+        for (Technique technique : TECHNIQUES) {
+            boolean progress = apply(technique);
+            if (broken) {
+                return null;
+            }
+            if (progress) {
+                return technique;
+            }
+        }
+        return null;
+    }
+
+    private boolean apply(Technique technique) {
+        switch (technique) {
+            case NAKED_SINGLE:
+                return nakedSingle();
+            case HIDDEN_SINGLE:
+                return hiddenSingle();
+            case POINTING:
+                return pointing();
+            case BOX_LINE:
+                return boxLine();
+            case NAKED_PAIR:
+                return subsets(NAKED, 2, technique);
+            case HIDDEN_PAIR:
+                return subsets(HIDDEN, 2, technique);
+            case NAKED_TRIPLE:
+                return subsets(NAKED, 3, technique);
+            case HIDDEN_TRIPLE:
+                return subsets(HIDDEN, 3, technique);
+            case X_WING:
+                return fish(2, technique);
+            case SWORDFISH:
+                return fish(3, technique);
+            case XY_WING:
+                return xyWing();
+            default:
+                throw new IllegalArgumentException("Unknown technique: " + technique);
+        }
+    }
+
+    /**
+     * Steps until the board is solved or no technique applies
+     *
+     * @return true if the board was solved
+     */
+    public boolean solve() {
+        while (step() != null) {
+        }
+        return isSolved();
+    }
+
+    /**
+     * Steps until a value is placed
+     *
+     * @return the index of the cell that was filled, or -1 if no technique leads to a placement
+     */
+    public int nextPlacement() {
+        Technique technique;
+        while ((technique = step()) != null) {
+            if (technique.isPlacement()) {
+                return lastCell;
+            }
+        }
+        return -1;
+    }
+
+    public Geometry geometry() {
+        return geometry;
+    }
+
+    public boolean isSolved() {
+        return empty == 0 && !broken;
+    }
+
+    /**
+     * @return true if a contradiction was found: conflicting givens, a cell without candidates or a value without
+     * a place in some unit
+     */
+    public boolean isBroken() {
+        return broken;
+    }
+
+    public int value(int index) {
+        return values[index];
+    }
+
+    /**
+     * @return the candidate mask of an empty cell, 0 for a filled cell
+     */
+    public int candidates(int index) {
+        return candidates[index];
+    }
+
+    public void writeTo(Board board) {
+        for (int i = 0; i < cells; i++) {
+            board.set(i, values[i]);
+        }
+    }
+
+    /**
+     * @return the technique applied by the last successful step
+     */
+    public Technique lastTechnique() {
+        return lastTechnique;
+    }
+
+    /**
+     * @return the cell filled by the last step, or the first cell it removed candidates from
+     */
+    public int lastCell() {
+        return lastCell;
+    }
+
+    /**
+     * @return the value placed by the last step, or 0 if it eliminated candidates
+     */
+    public int lastValue() {
+        return lastValue;
+    }
+
+    /**
+     * @return the hardest technique applied since the board was loaded, null if none
+     */
+    public Technique hardest() {
+        return hardest;
+    }
+
+    public long fired(Technique technique) {
+        return fired[technique.ordinal()];
+    }
+
+    /**
+     * @return the number of candidates removed by the technique, counting a placement as one
+     */
+    public long eliminated(Technique technique) {
+        return eliminated[technique.ordinal()];
+    }
+
+    /**
+     * @return the number of cells, lines or combinations the technique inspected, whether or not it fired
+     */
+    public long work(Technique technique) {
+        return work[technique.ordinal()];
+    }
+
+    public void resetStatistics() {
+        for (int i = 0; i < TECHNIQUES.length; i++) {
+            fired[i] = 0;
+            eliminated[i] = 0;
+            work[i] = 0;
+        }
+    }
+
+    /**
+     * Adds the statistics of another engine to those of this one
+     */
+    public void addStatistics(LogicEngine other) {
+        for (int i = 0; i < TECHNIQUES.length; i++) {
+            fired[i] += other.fired[i];
+            eliminated[i] += other.eliminated[i];
+            work[i] += other.work[i];
+        }
+    }
+
+    private void place(int i, int value) {
+        int bit = 1 << (value - 1);
+        values[i] = value;
+        candidates[i] = 0;
+        for (int peer : peers[i]) {
+            candidates[peer] &= ~bit;
+        }
+        empty--;
+    }
+
+    /**
+     * Removes candidates from a cell, as a deduction would. Package-private so that checks can set up positions.
+     *
+     * @return the number of candidates removed
+     */
+    int eliminate(int i, int mask) {
+        int removed = candidates[i] & mask;
+        if (removed == 0) {
+            return 0;
+        }
+        candidates[i] &= ~mask;
+        if (candidates[i] == 0) {
+            broken = true;
+        }
+        return Integer.bitCount(removed);
+    }
+
+    private boolean fire(Technique technique, int cell, int value, int removed) {
+        int t = technique.ordinal();
+        fired[t]++;
+        eliminated[t] += removed;
+        lastTechnique = technique;
+        lastCell = cell;
+        lastValue = value;
+        if (hardest == null || technique.compareTo(hardest) > 0) {
+            hardest = technique;
+        }
+        return true;
+    }
+
+    private boolean sees(int a, int b) {
+        return row[a] == row[b] || column[a] == column[b] || sector[a] == sector[b];
+    }
+
+    private boolean nakedSingle() {
+        for (int i = 0; i < cells; i++) {
+            int c = candidates[i];
+            if (values[i] == 0 && (c & (c - 1)) == 0) {
+                work[Technique.NAKED_SINGLE.ordinal()] += i + 1;
+                if (c == 0) {
+                    broken = true;
+                    return false;
+                }
+                int value = Integer.numberOfTrailingZeros(c) + 1;
+                place(i, value);
+                return fire(Technique.NAKED_SINGLE, i, value, 1);
+            }
+        }
+        work[Technique.NAKED_SINGLE.ordinal()] += cells;
+        return false;
+    }
+
+    private boolean hiddenSingle() {
+        int inspected = 0;
+        try {
+            for (int[] unit : units) {
+                int used = 0, once = 0, twice = 0;
+                for (int i : unit) {
+                    if (values[i] != 0) {
+                        used |= 1 << (values[i] - 1);
+                    } else {
+                        twice |= once & candidates[i];
+                        once |= candidates[i];
+                    }
+                }
+                inspected += size;
+                if ((used | once) != all) {
+                    broken = true;
+                    return false;
+                }
+                int hidden = once & ~twice;
+                if (hidden != 0) {
+                    int bit = hidden & -hidden;
+                    for (int i : unit) {
+                        if ((candidates[i] & bit) != 0) {
+                            int value = Integer.numberOfTrailingZeros(bit) + 1;
+                            place(i, value);
+                            return fire(Technique.HIDDEN_SINGLE, i, value, 1);
+                        }
+                    }
+                }
+            }
+            return false;
+        } finally {
+            work[Technique.HIDDEN_SINGLE.ordinal()] += inspected;
+        }
+    }
+
+    /**
+     * A value confined to one row or column within a sector cannot appear elsewhere in that row or column
+     */
+    private boolean pointing() {
+        int inspected = 0;
+        try {
+            for (int s = 0; s < size; s++) {
+                int[] unit = units[2 * size + s];
+                for (int bit = 1; bit <= all; bit <<= 1) {
+                    int rows = 0, columns = 0;
+                    for (int i : unit) {
+                        if ((candidates[i] & bit) != 0) {
+                            rows |= 1 << row[i];
+                            columns |= 1 << column[i];
+                        }
+                    }
+                    inspected += size;
+                    int line;
+                    if (Integer.bitCount(rows) == 1) {
+                        line = Integer.numberOfTrailingZeros(rows);
+                    } else if (Integer.bitCount(columns) == 1) {
+                        line = size + Integer.numberOfTrailingZeros(columns);
+                    } else {
+                        continue;
+                    }
+                    int removed = 0, first = -1;
+                    for (int i : units[line]) {
+                        if (sector[i] != s) {
+                            int r = eliminate(i, bit);
+                            if (r > 0 && first < 0) {
+                                first = i;
+                            }
+                            removed += r;
+                        }
+                    }
+                    if (removed > 0) {
+                        return fire(Technique.POINTING, first, 0, removed);
+                    }
+                }
+            }
+            return false;
+        } finally {
+            work[Technique.POINTING.ordinal()] += inspected;
+        }
+    }
+
+    /**
+     * A value confined to one sector within a row or column cannot appear elsewhere in that sector
+     */
+    private boolean boxLine() {
+        int inspected = 0;
+        try {
+            for (int line = 0; line < 2 * size; line++) {
+                int[] unit = units[line];
+                for (int bit = 1; bit <= all; bit <<= 1) {
+                    int sectors = 0;
+                    for (int i : unit) {
+                        if ((candidates[i] & bit) != 0) {
+                            sectors |= 1 << sector[i];
+                        }
+                    }
+                    inspected += size;
+                    if (Integer.bitCount(sectors) != 1) {
+                        continue;
+                    }
+                    int removed = 0, first = -1;
+                    for (int i : units[2 * size + Integer.numberOfTrailingZeros(sectors)]) {
+                        boolean inLine = line < size ? row[i] == line : column[i] == line - size;
+                        if (!inLine) {
+                            int r = eliminate(i, bit);
+                            if (r > 0 && first < 0) {
+                                first = i;
+                            }
+                            removed += r;
+                        }
+                    }
+                    if (removed > 0) {
+                        return fire(Technique.BOX_LINE, first, 0, removed);
+                    }
+                }
+            }
+            return false;
+        } finally {
+            work[Technique.BOX_LINE.ordinal()] += inspected;
+        }
+    }
+
+    /**
+     * Naked subsets: k cells of a unit whose candidates together hold k values claim those values for themselves.
+     * Hidden subsets: k values of a unit that fit in only k cells leave no room for other values in those cells.
+     */
+    private boolean subsets(int mode, int k, Technique technique) {
+        visited = 0;
+        try {
+            for (int u = 0; u < units.length; u++) {
+                int[] unit = units[u];
+                int count = 0;
+                if (mode == NAKED) {
+                    for (int i : unit) {
+                        int n = Integer.bitCount(candidates[i]);
+                        if (n >= 2 && n <= k) {
+                            masks[count] = candidates[i];
+                            subjects[count++] = i;
+                        }
+                    }
+                } else {
+                    for (int d = 0; d < size; d++) {
+                        int positions = 0;
+                        for (int p = 0; p < size; p++) {
+                            if ((candidates[unit[p]] & 1 << d) != 0) {
+                                positions |= 1 << p;
+                            }
+                        }
+                        int n = Integer.bitCount(positions);
+                        if (n >= 2 && n <= k) {
+                            masks[count] = positions;
+                            subjects[count++] = d;
+                        }
+                    }
+                }
+                visited += size;
+                if (count >= k) {
+                    int removed = subset(mode, u, count, k, 0, 0, 0, 0);
+                    if (removed > 0) {
+                        return fire(technique, lastCell, 0, removed);
+                    }
+                }
+            }
+            return false;
+        } finally {
+            work[technique.ordinal()] += visited;
+        }
+    }
+
+    /**
+     * X-wing (k = 2) and swordfish (k = 3): when a value is confined to the same k columns in k rows, those columns
+     * hold it only in those rows, and the same with rows and columns swapped
+     */
+    private boolean fish(int k, Technique technique) {
+        visited = 0;
+        try {
+            for (int mode = FISH_ROWS; mode <= FISH_COLUMNS; mode++) {
+                int base = mode == FISH_ROWS ? 0 : size;
+                for (int bit = 1; bit <= all; bit <<= 1) {
+                    int count = 0;
+                    for (int line = 0; line < size; line++) {
+                        int positions = 0;
+                        for (int i : units[base + line]) {
+                            if ((candidates[i] & bit) != 0) {
+                                positions |= 1 << (mode == FISH_ROWS ? column[i] : row[i]);
+                            }
+                        }
+                        int n = Integer.bitCount(positions);
+                        if (n >= 2 && n <= k) {
+                            masks[count] = positions;
+                            subjects[count++] = line;
+                        }
+                    }
+                    visited += size;
+                    if (count >= k) {
+                        int removed = subset(mode, bit, count, k, 0, 0, 0, 0);
+                        if (removed > 0) {
+                            return fire(technique, lastCell, 0, removed);
+                        }
+                    }
+                }
+            }
+            return false;
+        } finally {
+            work[technique.ordinal()] += visited;
+        }
+    }
+
+    /**
+     * Searches combinations of k of the first count masks whose union has exactly k bits, applying each one found
+     * until one eliminates something
+     *
+     * @param chosen the masks picked so far, as a bit per index
+     * @return the number of candidates eliminated, 0 if no combination was productive
+     */
+    private int subset(int mode, int context, int count, int k, int start, int depth, int chosen, int union) {
+        for (int j = start; j < count; j++) {
+            visited++;
+            int combined = union | masks[j];
+            if (Integer.bitCount(combined) > k) {
+                continue;
+            }
+            int picked = chosen | 1 << j;
+            int removed;
+            if (depth + 1 < k) {
+                removed = subset(mode, context, count, k, j + 1, depth + 1, picked, combined);
+            } else {
+                removed = Integer.bitCount(combined) == k ? applySubset(mode, context, picked, combined) : 0;
+            }
+            if (removed > 0) {
+                return removed;
+            }
+        }
+        return 0;
+    }
+
+    private int applySubset(int mode, int context, int picked, int union) {
+        int removed = 0;
+        int first = -1;
+        if (mode == NAKED) {
+            for (int i : units[context]) {
+                if (values[i] != 0 || isPicked(picked, i)) {
+                    continue;
+                }
+                int r = eliminate(i, union);
+                if (r > 0 && first < 0) {
+                    first = i;
+                }
+                removed += r;
+            }
+        } else if (mode == HIDDEN) {
+            int digits = 0;
+            for (int j = 0; j < size; j++) {
+                if ((picked & 1 << j) != 0) {
+                    digits |= 1 << subjects[j];
+                }
+            }
+            int[] unit = units[context];
+            for (int p = 0; p < size; p++) {
+                if ((union & 1 << p) != 0) {
+                    int r = eliminate(unit[p], ~digits & all);
+                    if (r > 0 && first < 0) {
+                        first = unit[p];
+                    }
+                    removed += r;
+                }
+            }
+        } else {
+            int lines = 0;
+            for (int j = 0; j < size; j++) {
+                if ((picked & 1 << j) != 0) {
+                    lines |= 1 << subjects[j];
+                }
+            }
+            //the cross lines are columns when the base lines are rows, and the other way around
+            int cross = mode == FISH_ROWS ? size : 0;
+            for (int line = 0; line < size; line++) {
+                if ((union & 1 << line) == 0) {
+                    continue;
+                }
+                for (int i : units[cross + line]) {
+                    int baseLine = mode == FISH_ROWS ? row[i] : column[i];
+                    if ((lines & 1 << baseLine) == 0) {
+                        int r = eliminate(i, context);
+                        if (r > 0 && first < 0) {
+                            first = i;
+                        }
+                        removed += r;
+                    }
+                }
+            }
+        }
+        if (removed > 0) {
+            lastCell = first;
+        }
+        return removed;
+    }
+
+    private boolean isPicked(int picked, int cell) {
+        for (int j = 0; picked >>> j != 0; j++) {
+            if ((picked & 1 << j) != 0 && subjects[j] == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A pivot with candidates xy sees pincers xz and yz: whichever value the pivot takes, one pincer is z, so no cell
+     * seeing both pincers can be z
+     */
+    private boolean xyWing() {
+        int inspected = 0;
+        try {
+            for (int pivot = 0; pivot < cells; pivot++) {
+                int xy = candidates[pivot];
+                if (Integer.bitCount(xy) != 2) {
+                    continue;
+                }
+                for (int a : peers[pivot]) {
+                    int xz = candidates[a];
+                    inspected++;
+                    if (Integer.bitCount(xz) != 2 || Integer.bitCount(xz & xy) != 1) {
+                        continue;
+                    }
+                    int z = xz & ~xy;
+                    int yz = xy & ~xz | z;
+                    for (int b : peers[pivot]) {
+                        inspected++;
+                        if (candidates[b] != yz || b == a) {
+                            continue;
+                        }
+                        int removed = 0, first = -1;
+                        for (int i : peers[a]) {
+                            if (i != b && sees(i, b)) {
+                                int r = eliminate(i, z);
+                                if (r > 0 && first < 0) {
+                                    first = i;
+                                }
+                                removed += r;
+                            }
+                        }
+                        if (removed > 0) {
+                            return fire(Technique.XY_WING, first, 0, removed);
+                        }
+                    }
+                }
+            }
+            return false;
+        } finally {
+            work[Technique.XY_WING.ordinal()] += inspected;
+        }
+    }
+
+    /**
+     * Usage: LogicEngine [input|-]
+     * <p>
+     * Solves every puzzle of the input with logic alone and prints how often each technique fired, the candidates it
+     * removed and the work it did. The input may hold puzzles in the one line or the .sdk grid format, see
+     * {@link PuzzleReader}.
+     */
+    public static void main(String[] args) throws IOException {
+        String input = args.length > 0 ? args[0] : "-";
+        LogicEngine engine = null;
+        long puzzles = 0, solved = 0;
+        long start = System.nanoTime();
+        try (PuzzleReader in = input.equals("-") ? new PuzzleReader(System.in) : PuzzleReader.open(Paths.get(input))) {
+            while (in.next()) {
+                Board puzzle = in.board();
+                if (puzzle == null) {
+                    continue;
+                }
+                if (engine == null || engine.geometry != puzzle.geometry()) {
+                    LogicEngine next = new LogicEngine(puzzle.geometry());
+                    if (engine != null) {
+                        next.addStatistics(engine);
+                    }
+                    engine = next;
+                }
+                puzzles++;
+                if (engine.load(puzzle) && engine.solve()) {
+                    solved++;
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-20s %12s %12s %14s%n", "Technique", "Fired", "Eliminated", "Work");
+        for (Technique technique : TECHNIQUES) {
+            System.out.printf("%-20s %12d %12d %14d%n", technique,
+                    engine == null ? 0 : engine.fired(technique),
+                    engine == null ? 0 : engine.eliminated(technique),
+                    engine == null ? 0 : engine.work(technique));
+        }
+        System.out.printf("Solved %d of %d puzzles by logic in %.3fs (%.0f puzzles/sec)%n",
+                solved, puzzles, seconds, puzzles / seconds);
+    }
+}
@@ -0,0 +1,53 @@
+package sudoku.logic;
+
+/**
+ * Deduction techniques in the order {@link LogicEngine} tries them, which is also their order of difficulty.
+ * <p>
+ * Scores loosely follow the scale of Sudoku Explainer, kept increasing in the order the techniques are tried.
+ */
+public enum Technique {
+    NAKED_SINGLE("Naked single", 1.0, true),
+    HIDDEN_SINGLE("Hidden single", 1.5, true),
+    POINTING("Pointing pair", 2.6),
+    BOX_LINE("Box/line reduction", 2.8),
+    NAKED_PAIR("Naked pair", 3.0),
+    HIDDEN_PAIR("Hidden pair", 3.4),
+    NAKED_TRIPLE("Naked triple", 3.6),
+    HIDDEN_TRIPLE("Hidden triple", 4.0),
+    X_WING("X-wing", 4.2),
+    SWORDFISH("Swordfish", 4.6),
+    XY_WING("XY-wing", 4.8);
+
+    private final String description;
+    private final double score;
+    private final boolean placement;
+
+    Technique(String description, double score, boolean placement) {
+        this.description = description;
+        this.score = score;
+        this.placement = placement;
+    }
+
+    Technique(String description, double score) {
+        this(description, score, false);
+    }
+
+    /**
+     * @return how hard the technique is for a person to spot
+     */
+    public double score() {
+        return score;
+    }
+
+    /**
+     * @return true if the technique places a value, false if it only eliminates candidates
+     */
+    public boolean isPlacement() {
+        return placement;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
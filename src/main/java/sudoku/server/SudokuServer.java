@@ -0,0 +1,469 @@
+package sudoku.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+import sudoku.data.Validator;
+import sudoku.generator.Difficulty;
+import sudoku.generator.PuzzleGenerator;
+import sudoku.solvers.Solver;
+import sudoku.solvers.Solvers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small HTTP front end to the solvers, built on the JDK's {@code com.sun.net.httpserver}.
+ * <p>
+ * Endpoints take a puzzle in the one line format as the request body or a {@code puzzle} query parameter, and answer
+ * in plain text:
+ * <ul>
+ * <li>{@code /solve[?solver=bitmask|parallel|dlx|dfs]}: the solution, 422 if there is none</li>
+ * <li>{@code /count[?limit=n]}: the number of solutions up to the limit, 2 by default</li>
+ * <li>{@code /validate}: {@code complete}, {@code valid}, or {@code conflict} with the first repeating cell</li>
+ * <li>{@code /generate[?difficulty=easy|medium|hard|expert]}: a unique 9x9 puzzle and its solution</li>
+ * <li>{@code /stats}: latency percentiles per endpoint and the queue and batch counters</li>
+ * </ul>
+ * Handler threads, a small bounded pool, only parse requests and queue them as jobs. A fixed set of workers take the
+ * jobs in batches of whatever has queued up, up to {@link #MAX_BATCH}, and answer them on the worker thread. Every
+ * worker keeps its own solvers, validators and generator and reuses them from job to job, and validates the 9x9
+ * boards of a batch in one go with {@link Validator#validate(Board[], int, int, int[])}. The solves, counts and
+ * generations of a batch are handed on to a shared queue that workers take from one job at a time before taking a new
+ * batch, so a slow search only holds up its own request. Searches give up after {@link #SOLVE_TIMEOUT_MILLIS} with
+ * 503. When the job queue is full, requests are answered at once with 503 and a Retry-After header.
+ * <p>
+ * The JDK server writes the headers and the body of a response separately, and with Nagle's algorithm on the body
+ * waits for the client's delayed ACK, about 40ms on Linux. {@link #main(String[])} sets the JDK's
+ * {@code sun.net.httpserver.nodelay} system property to avoid that; embedders should set it before creating the
+ * first server in the JVM.
+ */
+public final class SudokuServer {
+    public static final int MAX_BATCH = 64;
+    private static final long SOLVE_TIMEOUT_MILLIS = 10_000;
+    private static final long MAX_COUNT_LIMIT = 1_000_000;
+    private static final int MAX_BODY = 1 << 12;
+
+    private enum Operation {
+        SOLVE, COUNT, VALIDATE, GENERATE
+    }
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor handlers;
+    private final BlockingQueue<Job> jobs;
+    /**
+     * The searches of the batches taken so far, answered one at a time by whichever worker is free
+     */
+    private final Queue<Job> searches = new ConcurrentLinkedQueue<>();
+    private final Worker[] workers;
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batched = new AtomicLong();
+    private volatile boolean running;
+
+    /**
+     * @param port          the port to listen on, 0 for any free port
+     * @param threads       the number of worker threads
+     * @param queueCapacity the number of jobs that may wait for a worker before requests are turned away
+     */
+    public SudokuServer(int port, int threads, int queueCapacity) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        //when every handler is busy the accepting thread parses the request itself, which slows accepting down
+        int handlerThreads = Math.max(2, threads / 2);
+        handlers = new ThreadPoolExecutor(handlerThreads, handlerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.CallerRunsPolicy());
+        server.setExecutor(handlers);
+        jobs = new ArrayBlockingQueue<>(queueCapacity);
+        workers = new Worker[threads];
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+            server.createContext("/" + operation.name().toLowerCase(Locale.ROOT),
+                    exchange -> accept(exchange, operation));
+        }
+        server.createContext("/stats", exchange -> respond(exchange, 200, stats()));
+    }
+
+    public void start() {
+        running = true;
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker();
+            workers[i].setName("sudoku-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, lets the workers finish the queued jobs and waits for them
+     */
+    public void stop() throws InterruptedException {
+        server.stop(0);
+        handlers.shutdown();
+        handlers.awaitTermination(10, TimeUnit.SECONDS);
+        running = false;
+        for (Worker worker : workers) {
+            worker.join();
+        }
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the latency percentiles of every endpoint, measured from the parsed request to the sent response, and
+     * the queue and batch counters
+     */
+    public String stats() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<Operation, LatencyHistogram> entry : latencies.entrySet()) {
+            out.append(entry.getKey().name().toLowerCase(Locale.ROOT)).append(' ').append(entry.getValue())
+                    .append('\n');
+        }
+        long batchCount = batches.get();
+        out.append("queued=").append(jobs.size() + searches.size()).append(" rejected=").append(rejected.get())
+                .append(" batches=").append(batchCount).append(" meanBatch=")
+                .append(batchCount == 0 ? 0 : String.format(Locale.ROOT, "%.2f", batched.get() / (double) batchCount))
+                .append('\n');
+        return out.toString();
+    }
+
+    private void accept(HttpExchange exchange, Operation operation) throws IOException {
+        Map<String, String> parameters;
+        try {
+            parameters = parameters(exchange.getRequestURI());
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "Malformed query: " + e.getMessage() + "\n");
+            return;
+        }
+        Board puzzle = null;
+        if (operation != Operation.GENERATE) {
+            String text = parameters.get("puzzle");
+            if (text == null) {
+                text = body(exchange);
+            }
+            puzzle = text == null ? null : Board.parse(text.trim());
+            if (puzzle == null) {
+                respond(exchange, 400, "Expected a puzzle in the one line format\n");
+                return;
+            }
+        }
+        Job job = new Job(exchange, operation, puzzle, parameters);
+        if (!running || !jobs.offer(job)) {
+            rejected.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, "Busy, try again later\n");
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if a parameter has a malformed escape
+     */
+    private static Map<String, String> parameters(URI uri) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                            URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * @return the request body as ASCII, or null if it is empty or too long for a puzzle
+     */
+    private static String body(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                if (body.size() + read > MAX_BODY) {
+                    return null;
+                }
+                body.write(buffer, 0, read);
+            }
+        }
+        return body.size() == 0 ? null : new String(body.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.US_ASCII);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=us-ascii");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static final class Job {
+        private final HttpExchange exchange;
+        private final Operation operation;
+        private final Board puzzle;
+        private final Map<String, String> parameters;
+        private final long start = System.nanoTime();
+
+        private Job(HttpExchange exchange, Operation operation, Board puzzle, Map<String, String> parameters) {
+            this.exchange = exchange;
+            this.operation = operation;
+            this.puzzle = puzzle;
+            this.parameters = parameters;
+        }
+    }
+
+    /**
+     * Takes jobs in batches and answers them, with solvers and validators confined to the thread. Validations are
+     * answered with their batch, searches are queued on {@link #searches} and taken from there one at a time.
+     */
+    private final class Worker extends Thread {
+        private final List<Job> batch = new ArrayList<>(MAX_BATCH);
+        private final Map<String, Solver> solvers = new HashMap<>();
+        private final Validator[] validators = new Validator[Geometry.MAX_BOX + 1];
+        private final Board[] boards = new Board[MAX_BATCH];
+        private final int[] conflicts = new int[MAX_BATCH];
+        private final String[] answers = new String[MAX_BATCH];
+        private PuzzleGenerator generator;
+
+        @Override
+        public void run() {
+            while (running || !jobs.isEmpty() || !searches.isEmpty()) {
+                try {
+                    Job search = searches.poll();
+                    if (search != null) {
+                        batch.add(search);
+                        process();
+                        continue;
+                    }
+                    Job first = jobs.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    jobs.drainTo(batch, MAX_BATCH - 1);
+                    batches.incrementAndGet();
+                    batched.addAndGet(batch.size());
+                    //keeps the validations, and the first search so taking a batch always answers a job
+                    int kept = 0;
+                    boolean searching = false;
+                    for (Job job : batch) {
+                        if (job.operation == Operation.VALIDATE || !searching) {
+                            searching |= job.operation != Operation.VALIDATE;
+                            batch.set(kept++, job);
+                        } else {
+                            searches.add(job);
+                        }
+                    }
+                    batch.subList(kept, batch.size()).clear();
+                    process();
+                } catch (InterruptedException e) {
+                    return;
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void process() {
+            validate();
+            for (int i = 0; i < batch.size(); i++) {
+                Job job = batch.get(i);
+                int status = 200;
+                String answer = answers[i];
+                answers[i] = null;
+                try {
+                    switch (job.operation) {
+                        case SOLVE:
+                            answer = solve(job);
+                            status = answer == null ? 422 : 200;
+                            answer = answer == null ? "No solution\n" : answer;
+                            break;
+                        case COUNT:
+                            answer = count(job);
+                            break;
+                        case VALIDATE:
+                            if (answer == null) {
+                                answer = validate(validator(job.puzzle.geometry()), job.puzzle,
+                                        validator(job.puzzle.geometry()).firstConflict(job.puzzle));
+                            }
+                            break;
+                        case GENERATE:
+                            answer = generate(job);
+                            break;
+                    }
+                } catch (IllegalArgumentException e) {
+                    status = 400;
+                    answer = e.getMessage() + "\n";
+                } catch (TimeoutException e) {
+                    status = 503;
+                    answer = "Gave up after " + SOLVE_TIMEOUT_MILLIS + "ms\n";
+                } catch (RuntimeException | ExecutionException e) {
+                    status = 500;
+                    answer = e + "\n";
+                }
+                try {
+                    respond(job.exchange, status, answer);
+                } catch (IOException e) {
+                    //the client went away
+                    job.exchange.close();
+                }
+                latencies.get(job.operation).record((System.nanoTime() - job.start) / 1000);
+            }
+        }
+
+        /**
+         * Validates the 9x9 boards of the batch together, leaving their answers in {@link #answers}
+         */
+        private void validate() {
+            int count = 0;
+            for (Job job : batch) {
+                if (job.operation == Operation.VALIDATE && job.puzzle.geometry() == Geometry.STANDARD) {
+                    boards[count++] = job.puzzle;
+                }
+            }
+            if (count == 0) {
+                return;
+            }
+            Validator validator = validator(Geometry.STANDARD);
+            validator.validate(boards, 0, count, conflicts);
+            int board = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Job job = batch.get(i);
+                if (job.operation == Operation.VALIDATE && job.puzzle.geometry() == Geometry.STANDARD) {
+                    answers[i] = validate(validator, job.puzzle, conflicts[board]);
+                    boards[board++] = null;
+                }
+            }
+        }
+
+        private String validate(Validator validator, Board puzzle, int conflict) {
+            if (conflict >= 0) {
+                Geometry geometry = puzzle.geometry();
+                return "conflict column=" + (geometry.column[conflict] + 1) + " row=" + (geometry.row[conflict] + 1)
+                        + "\n";
+            }
+            return puzzle.isFull() ? "complete\n" : "valid\n";
+        }
+
+        private Validator validator(Geometry geometry) {
+            Validator validator = validators[geometry.box];
+            if (validator == null) {
+                validator = new Validator(geometry);
+                validators[geometry.box] = validator;
+            }
+            return validator;
+        }
+
+        private Solver solver(Job job) {
+            String name = job.parameters.getOrDefault("solver", "bitmask");
+            String key = name + job.puzzle.geometry().box;
+            Solver solver = solvers.get(key);
+            if (solver == null) {
+                solver = Solvers.byName(name).apply(job.puzzle);
+                solvers.put(key, solver);
+            } else {
+                solver.reset(job.puzzle);
+            }
+            return solver;
+        }
+
+        /**
+         * @return the solution, or null if there is none
+         */
+        private String solve(Job job) throws TimeoutException, ExecutionException {
+            //runs on this thread, the executor only carries the deadline
+            Future<Board> solution = solver(job).solveAsync(Runnable::run, SOLVE_TIMEOUT_MILLIS,
+                    TimeUnit.MILLISECONDS, null);
+            try {
+                Board board = solution.get();
+                return board == null ? null : board + "\n";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof TimeoutException) {
+                    throw (TimeoutException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        private String count(Job job) throws TimeoutException {
+            long limit = Long.parseLong(job.parameters.getOrDefault("limit", "2"));
+            if (limit < 1 || limit > MAX_COUNT_LIMIT) {
+                throw new IllegalArgumentException("The limit must be from 1 to " + MAX_COUNT_LIMIT);
+            }
+            return solver(job).countSolutions(limit, SOLVE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS) + "\n";
+        }
+
+        private String generate(Job job) throws TimeoutException {
+            Difficulty target;
+            try {
+                String difficulty = job.parameters.getOrDefault("difficulty", "medium");
+                target = Difficulty.valueOf(difficulty.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("The difficulty must be one of "
+                        + Arrays.toString(Difficulty.values()).toLowerCase(Locale.ROOT));
+            }
+            if (generator == null) {
+                generator = new PuzzleGenerator();
+            }
+            Board puzzle = generator.generate(target, SOLVE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            if (puzzle == null) {
+                throw new TimeoutException();
+            }
+            return puzzle + "\n" + generator.solution() + "\n";
+        }
+    }
+
+    /**
+     * Usage: SudokuServer [-port n] [-threads n] [-queue n]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = 1024;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-queue":
+                    queue = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Usage: SudokuServer [-port n] [-threads n] [-queue n]");
+                    System.exit(1);
+            }
+        }
+        System.getProperties().putIfAbsent("sun.net.httpserver.nodelay", "true");
+        SudokuServer server = new SudokuServer(port, threads, queue);
+        server.start();
+        System.err.println("Listening on port " + server.port());
+    }
+}
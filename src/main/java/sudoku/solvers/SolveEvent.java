@@ -0,0 +1,106 @@
+package sudoku.solvers;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event for every search run by a {@link Solver}, recording the puzzle and the work it took. It is
+ * created through {@link SolveEvents}, and only while a recording enables it. The backtrack, propagation and depth
+ * fields are only filled in when the solver keeps statistics. By default only searches taking a millisecond or more
+ * are recorded, a threshold of 0 ms in the recording settings records them all.
+ * <p>
+ * Record with {@code -XX:StartFlightRecording:filename=solve.jfr} and read with, for example,
+ * {@code jfr print --events sudoku.Solve solve.jfr}.
+ */
+@Name("sudoku.Solve")
+@Label("Sudoku Solve")
+@Category("Sudoku")
+@Description("A search for the solutions of a puzzle")
+@Threshold("1 ms")
+@StackTrace(false)
+final class SolveEvent extends Event {
+    /**
+     * Whether an event is enabled depends only on its type, so one instance answers for every search without
+     * initializing Flight Recorder the way looking up the {@link jdk.jfr.EventType} would
+     */
+    private static final SolveEvent PROBE = new SolveEvent();
+
+    @Label("Solver")
+    String solver;
+
+    @Label("Puzzle")
+    @Description("The puzzle in the one line format")
+    String puzzle;
+
+    @Label("Clues")
+    int clues;
+
+    @Label("Limit")
+    @Description("The number of solutions the search stops at")
+    long limit;
+
+    @Label("Solutions")
+    long solutions;
+
+    @Label("Aborted")
+    @Description("Whether the search was cancelled or ran out of time")
+    boolean aborted;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Backtracks")
+    long backtracks;
+
+    @Label("Propagations")
+    long propagations;
+
+    @Label("Maximum Depth")
+    int maxDepth;
+
+    static boolean enabled() {
+        return PROBE.isEnabled();
+    }
+
+    /**
+     * @return a started event, or null if no recording enables it
+     */
+    static SolveEvent beginIfEnabled() {
+        if (!PROBE.isEnabled()) {
+            return null;
+        }
+        SolveEvent event = new SolveEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event and commits it with the outcome of the solver's search if it passes the threshold
+     */
+    void finish(Solver solver) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        this.solver = solver.getClass().getSimpleName();
+        puzzle = solver.board.toString();
+        clues = solver.board.clues();
+        limit = solver.limit;
+        solutions = solver.found;
+        aborted = solver.wasAborted();
+        nodes = solver.nodeCount();
+        SolverStats stats = solver.statistics();
+        if (stats != null) {
+            nodes = stats.nodes();
+            backtracks = stats.backtracks();
+            propagations = stats.propagations();
+            maxDepth = stats.maxDepth();
+        }
+        commit();
+    }
+}
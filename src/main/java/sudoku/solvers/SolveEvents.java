@@ -0,0 +1,38 @@
+package sudoku.solvers;
+
+/**
+ * Records a {@link SolveEvent} for the searches of a {@link Solver}, keeping jdk.jfr out of the solver itself.
+ * <p>
+ * Whether Flight Recorder is there at all, which it is not before 8u262, is probed once when this class is loaded.
+ * After that a search costs one check of whether a recording enables the event, and no event is created unless one
+ * does.
+ */
+final class SolveEvents {
+    private static final boolean AVAILABLE = probe();
+
+    private SolveEvents() {
+    }
+
+    /**
+     * @return the started event of a search, an opaque token for {@link #end(Object, Solver)}, or null if the search
+     * is not recorded
+     */
+    static Object begin() {
+        return AVAILABLE ? SolveEvent.beginIfEnabled() : null;
+    }
+
+    static void end(Object event, Solver solver) {
+        if (event != null) {
+            ((SolveEvent) event).finish(solver);
+        }
+    }
+
+    private static boolean probe() {
+        try {
+            SolveEvent.enabled();
+            return true;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
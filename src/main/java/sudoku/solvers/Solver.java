@@ -1,99 +1,404 @@
 package sudoku.solvers;
 
 
-import sudoku.util.MatrixUtil;
+import sudoku.data.Board;
+import sudoku.data.Candidates;
+import sudoku.data.Geometry;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 public abstract class Solver {
-    protected final int[][] board;
-    protected final ArrayList<int[][]> solutions = new ArrayList<>();
+    /**
+     * Number of search nodes between polls of the cancellation flag, the deadline and the progress callback
+     */
+    protected static final int POLL_INTERVAL = 1 << 12;
+
+    protected final Board board;
+    protected final ArrayList<Board> solutions = new ArrayList<>();
+    /**
+     * The current search stops once this many solutions have been found
+     */
+    protected long limit;
+    /**
+     * The number of solutions found by the current search
+     */
+    protected long found;
+    /**
+     * Receives every solution of the current search, null when only counting
+     */
+    protected Consumer<Board> consumer;
+    private final Consumer<Board> store = solution -> solutions.add(new Board(solution));
+    private final Board buffer;
+    private volatile boolean cancelled;
+    /**
+     * The future of the {@link #solveAsync} task running the current search, whose cancellation stops only that search
+     */
+    private volatile CompletableFuture<?> task;
+    /**
+     * The solver running this one through {@link #delegate}, whose cancellation stops this search too
+     */
+    private Solver parent;
+    private boolean aborted;
+    private long deadline;
+    private LongConsumer progress;
+    private long nodes;
+    private SolverStats stats;
 
     public Solver(int[][] board) {
-        this.board = MatrixUtil.copyOf(board);
+        this(Board.fromMatrix(board));
+    }
+
+    public Solver(Board board) {
+        this.board = new Board(board);
+        buffer = new Board(board.geometry());
     }
 
     public static boolean[][][] calculateDomains(int[][] board, boolean[][][] domains) {
-        //Declaration and initialization
+        return calculateDomains(new Candidates(Board.fromMatrix(board)), domains);
+    }
+
+    /**
+     * Reads the domains from incrementally maintained candidates, so callers that keep a {@link Candidates} up to date
+     * across moves do not rescan the board
+     */
+    public static boolean[][][] calculateDomains(Candidates candidates, boolean[][][] domains) {
+        Geometry geometry = candidates.geometry();
         if (domains == null) {
-            domains = new boolean[9][9][10];
+            domains = new boolean[geometry.size][geometry.size][geometry.size + 1];
         }
-        boolean[][] rowDomains = new boolean[9][10];
-        boolean[][] colDomains = new boolean[9][10];
-        boolean[][] secDomains = new boolean[9][10];
-        boolean[] TRUE = new boolean[10];
-        Arrays.fill(TRUE, true);
-        for (boolean[][] mat : domains) {
-            for (boolean[] arr : mat) {
-                System.arraycopy(TRUE, 0, arr, 0, 10);
+        for (int i = 0; i < geometry.cells; i++) {
+            boolean[] domain = domains[geometry.column[i]][geometry.row[i]];
+            int mask = candidates.candidates(i);
+            domain[0] = true;
+            for (int v = 1; v <= geometry.size; v++) {
+                domain[v] = (mask & 1 << (v - 1)) != 0;
             }
         }
+        return domains;
+    }
+
+    public static boolean[][][] calculateDomains(int[][] board) {
+        return calculateDomains(board, null);
+    }
+
+    /**
+     * Solve the given board, storing all found solutions in the solutions collection
+     */
+    public void findAllSolutions() {
+        forEachSolution(Long.MAX_VALUE, store);
+    }
+
+    public void findSingleSolution() {
+        forEachSolution(1, store);
+    }
+
+    /**
+     * Counts solutions without storing them, so memory use does not depend on how many there are.
+     * countSolutions(2) == 1 checks that a puzzle is unique.
+     *
+     * @param limit stop searching once this many solutions have been found
+     * @return the number of solutions, at most limit
+     * @throws CancellationException if the solver was cancelled before the count was done
+     */
+    public long countSolutions(long limit) {
+        return forEachSolution(limit, null);
+    }
+
+    public long countSolutions() {
+        return countSolutions(Long.MAX_VALUE);
+    }
+
+    /**
+     * Counts solutions like {@link #countSolutions(long)}, on the calling thread, giving up once the timeout elapses
+     *
+     * @throws TimeoutException if the timeout elapsed, or the solver was cancelled, before the count was done
+     */
+    public long countSolutions(long limit, long timeout, TimeUnit unit) throws TimeoutException {
+        long count = run(limit, null, System.nanoTime() + unit.toNanos(timeout), null);
+        if (aborted) {
+            throw new TimeoutException("Counted " + count + " solutions in " + nodes + " nodes before giving up");
+        }
+        return count;
+    }
+
+    public long forEachSolution(Consumer<Board> consumer) {
+        return forEachSolution(Long.MAX_VALUE, consumer);
+    }
 
-        for (int i = 0; i < 9; i++) {
-            System.arraycopy(TRUE, 0, rowDomains[i], 0, 10);
-            System.arraycopy(TRUE, 0, colDomains[i], 0, 10);
-            System.arraycopy(TRUE, 0, secDomains[i], 0, 10);
+    /**
+     * Streams solutions to the consumer without storing them.
+     * The board passed to the consumer is reused for every solution, copy it to keep it.
+     *
+     * @param limit    stop searching once this many solutions have been found
+     * @param consumer receives each solution, or null to only count
+     * @return the number of solutions, at most limit
+     * @throws CancellationException if the solver was cancelled before the search was done
+     */
+    public long forEachSolution(long limit, Consumer<Board> consumer) {
+        long count = run(limit, consumer, 0, null);
+        if (aborted) {
+            throw new CancellationException("Found " + count + " solutions in " + nodes
+                    + " nodes before being cancelled");
         }
+        return count;
+    }
 
-        //Building the row/col/sec domains
-        for (int c = 0; c < 9; c++) {
-            for (int r = 0; r < 9; r++) {
-                int value = board[c][r];
-                if (value == 0) {
-                    continue;
-                }
-                //false indicates that the value has been seen
-                rowDomains[r][value] = false;
-                colDomains[c][value] = false;
-                secDomains[c / 3 + r / 3 * 3][value] = false;
-            }
+    /**
+     * Runs one search. The state of the previous search is cleared first, so only an explicit {@link #cancel()}
+     * carries over to it
+     *
+     * @param deadline the {@link System#nanoTime()} to abort at, or 0 for none
+     */
+    private long run(long limit, Consumer<Board> consumer, long deadline, LongConsumer progress) {
+        Object event = SolveEvents.begin();
+        this.limit = limit;
+        this.found = 0;
+        this.consumer = consumer;
+        this.aborted = false;
+        this.nodes = 0;
+        this.deadline = deadline;
+        this.progress = progress;
+        if (stats != null) {
+            stats.reset();
+        }
+        try {
+            search();
+        } finally {
+            this.consumer = null;
+            this.deadline = 0;
+            this.progress = null;
+            SolveEvents.end(event, this);
+        }
+        return found;
+    }
+
+    /**
+     * Runs a search of another solver under the deadline, cancellation and progress callback of this search, for
+     * solvers that hand their search over. If the delegate is abandoned, so is this search.
+     *
+     * @return the number of solutions the delegate found
+     */
+    protected final long delegate(Solver delegate, long limit, Consumer<Board> consumer) {
+        delegate.parent = this;
+        try {
+            return delegate.run(limit, consumer, deadline, progress);
+        } finally {
+            delegate.parent = null;
+            nodes += delegate.nodes;
+            aborted |= delegate.aborted;
+        }
+    }
+
+    /**
+     * Searches the board, calling {@link #solutionFound()} for every solution until it returns true
+     */
+    protected abstract void search();
+
+    /**
+     * Writes the solution the search is currently at into the given board
+     */
+    protected abstract void writeSolution(Board destination);
+
+    /**
+     * Called by implementations for every solution found
+     *
+     * @return true if the search should stop
+     */
+    protected final boolean solutionFound() {
+        found++;
+        if (consumer != null) {
+            writeSolution(buffer);
+            consumer.accept(buffer);
         }
+        return found >= limit;
+    }
+
+    /**
+     * @param board a board of the same {@link Geometry} as the one this solver was created with
+     */
+    public void reset(Board board) {
+        this.board.copyFrom(board);
+        solutions.clear();
+        cancelled = false;
+        aborted = false;
+        nodes = 0;
+    }
 
-        for (int c = 0; c < 9; c++) {
-            for (int r = 0; r < 9; r++) {
-                boolean[] domain = domains[c][r];
-                boolean[] row = rowDomains[r];
-                boolean[] col = colDomains[c];
-                boolean[] sec = secDomains[c / 3 + r / 3 * 3];
-                for (int i = 1; i < 10; i++) {
-                    if (i == board[c][r]) {
-                        continue;
-                    }
-                    domain[i] = row[i] && col[i] && sec[i];
+    public void reset(int[][] board) {
+        reset(Board.fromMatrix(board));
+    }
+
+    public Geometry geometry() {
+        return board.geometry();
+    }
+
+    /**
+     * Searches for a single solution on the given executor.
+     * <p>
+     * Cancelling the returned future stops its search at the next poll, and does not carry over to later searches.
+     * A {@link #cancel()} left over from an earlier search is cleared by this call, and one made after it stops this
+     * search, even while it is still queued on the executor. The timeout also counts from this call, queueing
+     * included; if it elapses first, the future completes with a {@link TimeoutException}. The future completes with
+     * null if the board has no solution.
+     * A solver runs one search at a time, so it must not be used again until the future completes.
+     *
+     * @param progress called with the number of nodes visited every {@link #POLL_INTERVAL} nodes, may be null
+     */
+    public CompletableFuture<Board> solveAsync(Executor executor, long timeout, TimeUnit unit,
+                                               LongConsumer progress) {
+        CompletableFuture<Board> future = new CompletableFuture<>();
+        long deadline = timeout <= 0 ? 0 : System.nanoTime() + unit.toNanos(timeout);
+        solutions.clear();
+        cancelled = false;
+        executor.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            task = future;
+            try {
+                if (stopRequested()) {
+                    future.completeExceptionally(new CancellationException("Cancelled before the search started"));
+                    return;
+                }
+                if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+                    future.completeExceptionally(new TimeoutException("Timed out before the search started"));
+                    return;
                 }
+                run(1, store, deadline, progress);
+                if (!aborted) {
+                    future.complete(isSolvable() ? getSolution() : null);
+                } else if (stopRequested()) {
+                    future.completeExceptionally(new CancellationException());
+                } else {
+                    future.completeExceptionally(new TimeoutException("No solution found after " + nodes + " nodes"));
+                }
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                task = null;
             }
+        });
+        return future;
+    }
+
+    /**
+     * Asks the running search to stop at its next poll. The solver stays cancelled until it is reset.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if the last search stopped early because it was cancelled or ran out of time
+     */
+    public boolean wasAborted() {
+        return aborted;
+    }
+
+    public long nodeCount() {
+        return nodes;
+    }
+
+    /**
+     * Turns the collection of {@link SolverStats} on or off. While off, the counting hooks cost one branch on a
+     * field and nothing is allocated. The statistics are reset by every search.
+     */
+    public void setStatistics(boolean enabled) {
+        if (!enabled) {
+            stats = null;
+        } else if (stats == null) {
+            stats = new SolverStats(board.geometry().cells);
         }
+    }
 
-        return domains;
+    /**
+     * @return the statistics of the last search, or null if they are not collected
+     */
+    public SolverStats statistics() {
+        return stats;
     }
 
-    public static boolean[][][] calculateDomains(int[][] board) {
-        return calculateDomains(board, null);
+    /**
+     * Called by implementations for every search node when collecting statistics
+     *
+     * @param depth the number of branching choices above the node
+     */
+    protected final void countNode(int depth) {
+        if (stats != null) {
+            stats.node(depth);
+        }
     }
 
     /**
-     * Solve the given board, storing all found solutions in the solutions collection
+     * Called by implementations for every node found to be a dead end
      */
-    public abstract void findAllSolutions();
+    protected final void countBacktrack() {
+        if (stats != null) {
+            stats.backtrack();
+        }
+    }
 
-    public abstract void findSingleSolution();
+    /**
+     * Called by implementations with the number of values placed by deduction
+     */
+    protected final void countPropagations(int count) {
+        if (stats != null) {
+            stats.propagations(count);
+        }
+    }
 
-    public void reset(int[][] board) {
-        MatrixUtil.copyOf(board, this.board);
-        solutions.clear();
+    /**
+     * Called by implementations once per search node.
+     * Only every {@link #POLL_INTERVAL}th call does any work beyond an increment.
+     *
+     * @return true if the search should be abandoned
+     */
+    protected final boolean checkpoint() {
+        return aborted || (++nodes & (POLL_INTERVAL - 1)) == 0 && poll(nodes);
+    }
+
+    /**
+     * Reports progress and checks for cancellation and the deadline
+     *
+     * @param nodes the number of nodes visited so far
+     * @return true if the search should be abandoned
+     */
+    protected boolean poll(long nodes) {
+        if (progress != null) {
+            progress.accept(nodes);
+        }
+        if (stopRequested() || deadline != 0 && System.nanoTime() - deadline >= 0) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    /**
+     * @return true if this solver, the future of its running {@link #solveAsync} task, or the solver it is searching
+     * for was cancelled
+     */
+    private boolean stopRequested() {
+        CompletableFuture<?> task = this.task;
+        return cancelled || task != null && task.isCancelled() || parent != null && parent.stopRequested();
     }
 
-    public int[][] getSolution() {
+    public Board getSolution() {
         return getSolution(0);
     }
 
-    public int[][] getRandomSolution() {
+    public Board getRandomSolution() {
         return getSolution((int) (Math.random() * solutionCount()));
     }
 
-    public int[][] getSolution(int index) {
-        if (index > solutions.size()) {
+    public Board getSolution(int index) {
+        if (index >= solutions.size()) {
             return null;
         }
         return solutions.get(index);
@@ -107,6 +412,10 @@ public abstract class Solver {
         return solutionCount() > 0;
     }
 
+    /**
+     * @return whether the solutions found so far are exactly one, use {@link #countSolutions(long)} to check a board
+     * without storing its solutions
+     */
     public boolean isUnique() {
         return solutionCount() == 1;
     }
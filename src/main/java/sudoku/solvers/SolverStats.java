@@ -0,0 +1,102 @@
+package sudoku.solvers;
+
+import java.util.Arrays;
+
+/**
+ * Counters describing the work of one search, see {@link Solver#setStatistics(boolean)}.
+ * <p>
+ * A node is a point where the search checks the board, at a depth counting the branching choices above it. A
+ * backtrack is a node found to be a dead end. Propagations are the values placed by deduction rather than by
+ * branching. Not every solver has every counter: only the bitmask solvers propagate.
+ * Instances are confined to the thread running the search and are not thread safe.
+ */
+public final class SolverStats {
+    private long nodes;
+    private long backtracks;
+    private long propagations;
+    private int maxDepth;
+    /**
+     * The number of nodes at every depth
+     */
+    private final long[] depths;
+
+    /**
+     * @param maxDepth the deepest a search can go, the number of cells of the board is always enough
+     */
+    public SolverStats(int maxDepth) {
+        depths = new long[maxDepth + 1];
+    }
+
+    public void reset() {
+        nodes = 0;
+        backtracks = 0;
+        propagations = 0;
+        maxDepth = 0;
+        Arrays.fill(depths, 0);
+    }
+
+    public void node(int depth) {
+        nodes++;
+        depths[depth]++;
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+    }
+
+    public void backtrack() {
+        backtracks++;
+    }
+
+    public void propagations(int count) {
+        propagations += count;
+    }
+
+    /**
+     * Adds the counters of another search, such as one worker of a parallel search
+     */
+    public void add(SolverStats other) {
+        nodes += other.nodes;
+        backtracks += other.backtracks;
+        propagations += other.propagations;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        for (int depth = 0; depth <= other.maxDepth; depth++) {
+            depths[depth] += other.depths[depth];
+        }
+    }
+
+    public long nodes() {
+        return nodes;
+    }
+
+    public long backtracks() {
+        return backtracks;
+    }
+
+    public long propagations() {
+        return propagations;
+    }
+
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the number of nodes visited at the depth
+     */
+    public long nodes(int depth) {
+        return depth < depths.length ? depths[depth] : 0;
+    }
+
+    /**
+     * @return the number of nodes at every depth from 0 to {@link #maxDepth()}
+     */
+    public long[] depthHistogram() {
+        return Arrays.copyOf(depths, maxDepth + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "nodes=" + nodes + ", backtracks=" + backtracks + ", propagations=" + propagations
+                + ", maxDepth=" + maxDepth + ", depths=" + Arrays.toString(depthHistogram());
+    }
+}
@@ -0,0 +1,36 @@
+package sudoku.solvers;
+
+import sudoku.data.Board;
+import sudoku.solvers.bitmask.BitmaskSolver;
+import sudoku.solvers.bitmask.ParallelBitmaskSolver;
+import sudoku.solvers.dfs.DepthFirstSearchSolver;
+import sudoku.solvers.dlx.DancingLinksSolver;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Looks up the solver implementations by the short names used on command lines and in benchmarks
+ */
+public final class Solvers {
+    public static final List<String> NAMES = Arrays.asList("bitmask", "parallel", "dlx", "dfs");
+
+    private Solvers() {
+    }
+
+    public static Function<Board, Solver> byName(String name) {
+        switch (name) {
+            case "bitmask":
+                return BitmaskSolver::new;
+            case "parallel":
+                return ParallelBitmaskSolver::new;
+            case "dlx":
+                return DancingLinksSolver::new;
+            case "dfs":
+                return DepthFirstSearchSolver::new;
+            default:
+                throw new IllegalArgumentException("Unknown solver: " + name);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package sudoku.solvers.bitmask;
+
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+import sudoku.solvers.Solver;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Depth first search over candidate masks, for boards of any {@link Geometry}.
+ * <p>
+ * The digits used by every row, column and sector are kept as bitmasks, so the candidates of a cell are three ORs
+ * away. Before branching, naked and hidden singles are placed until nothing changes, and the search then branches
+ * on the empty cell with the fewest candidates. Placements are recorded on a trail so that backtracking is just
+ * unwinding it; nothing is allocated per node.
+ */
+public class BitmaskSolver extends Solver {
+    private final int size;
+    private final int cells;
+    private final int all;
+    private final int[] row;
+    private final int[] column;
+    private final int[] sector;
+    private final int[][] units;
+
+    //Cells are indexed row-major (r * size + c), the same as Board
+    final int[] values;
+    final int[] rows;
+    final int[] columns;
+    final int[] sectors;
+    private final int[] trail;
+    private int trailSize;
+    /**
+     * The number of branching choices above the current node
+     */
+    int depth;
+    private Random random;
+
+    public BitmaskSolver(int[][] board) {
+        this(Board.fromMatrix(board));
+    }
+
+    public BitmaskSolver(Board board) {
+        super(board);
+        Geometry geometry = board.geometry();
+        size = geometry.size;
+        cells = geometry.cells;
+        all = geometry.allCandidates;
+        row = geometry.row;
+        column = geometry.column;
+        sector = geometry.sector;
+        units = geometry.units;
+        values = new int[cells];
+        rows = new int[size];
+        columns = new int[size];
+        sectors = new int[size];
+        trail = new int[cells];
+    }
+
+    /**
+     * Tries candidates in a random rotation of digit order instead of ascending order,
+     * so that searching an empty board produces a random complete grid
+     *
+     * @param random the source of randomness, or null for ascending order
+     */
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    protected void search() {
+        if (load()) {
+            branch();
+        }
+    }
+
+    @Override
+    protected void writeSolution(Board destination) {
+        for (int i = 0; i < cells; i++) {
+            destination.set(i, values[i]);
+        }
+    }
+
+    /**
+     * Loads the board into the masks
+     *
+     * @return false if two givens conflict
+     */
+    boolean load() {
+        trailSize = 0;
+        Arrays.fill(rows, 0);
+        Arrays.fill(columns, 0);
+        Arrays.fill(sectors, 0);
+        Arrays.fill(values, 0);
+        for (int i = 0; i < cells; i++) {
+            int value = board.get(i);
+            if (value != 0) {
+                int bit = 1 << (value - 1);
+                if ((candidates(i) & bit) == 0) {
+                    return false;
+                }
+                place(i, bit);
+            }
+        }
+        return true;
+    }
+
+    final int candidates(int i) {
+        return ~(rows[row[i]] | columns[column[i]] | sectors[sector[i]]) & all;
+    }
+
+    void copyFrom(BitmaskSolver other) {
+        System.arraycopy(other.values, 0, values, 0, cells);
+        System.arraycopy(other.rows, 0, rows, 0, size);
+        System.arraycopy(other.columns, 0, columns, 0, size);
+        System.arraycopy(other.sectors, 0, sectors, 0, size);
+        System.arraycopy(other.trail, 0, trail, 0, other.trailSize);
+        trailSize = other.trailSize;
+    }
+
+    void place(int i, int bit) {
+        values[i] = Integer.numberOfTrailingZeros(bit) + 1;
+        rows[row[i]] |= bit;
+        columns[column[i]] |= bit;
+        sectors[sector[i]] |= bit;
+        trail[trailSize++] = i;
+    }
+
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            int i = trail[--trailSize];
+            int bit = ~(1 << (values[i] - 1));
+            values[i] = 0;
+            rows[row[i]] &= bit;
+            columns[column[i]] &= bit;
+            sectors[sector[i]] &= bit;
+        }
+    }
+
+    /**
+     * Places naked and hidden singles until a fixed point is reached
+     *
+     * @return false if the board has no solution
+     */
+    boolean propagate() {
+        int mark = trailSize;
+        boolean consistent = placeSingles();
+        countPropagations(trailSize - mark);
+        return consistent;
+    }
+
+    private boolean placeSingles() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            //naked singles
+            for (int i = 0; i < cells; i++) {
+                if (values[i] == 0) {
+                    int candidates = candidates(i);
+                    if (candidates == 0) {
+                        return false;
+                    }
+                    if ((candidates & (candidates - 1)) == 0) {
+                        place(i, candidates);
+                        changed = true;
+                    }
+                }
+            }
+            //hidden singles
+            for (int[] unit : units) {
+                int used = 0, once = 0, twice = 0;
+                for (int i : unit) {
+                    if (values[i] != 0) {
+                        used |= 1 << (values[i] - 1);
+                    } else {
+                        int candidates = candidates(i);
+                        twice |= once & candidates;
+                        once |= candidates;
+                    }
+                }
+                if ((used | once) != all) {
+                    return false;
+                }
+                int hidden = once & ~twice;
+                if (hidden != 0) {
+                    for (int i : unit) {
+                        if (values[i] == 0) {
+                            int bit = candidates(i) & hidden;
+                            if (bit != 0) {
+                                if ((bit & (bit - 1)) != 0) {
+                                    return false;
+                                }
+                                place(i, bit);
+                                changed = true;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the empty cell with the fewest candidates, or -1 if the board is full
+     */
+    int mostConstrained() {
+        int best = -1;
+        int bestCount = size + 1;
+        for (int i = 0; i < cells && bestCount > 2; i++) {
+            if (values[i] == 0) {
+                int count = Integer.bitCount(candidates(i));
+                if (count < bestCount) {
+                    best = i;
+                    bestCount = count;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return true if the search should stop
+     */
+    boolean branch() {
+        if (cancelled()) {
+            return true;
+        }
+        countNode(depth);
+        int mark = trailSize;
+        if (!propagate()) {
+            countBacktrack();
+            undo(mark);
+            return false;
+        }
+        int best = mostConstrained();
+        boolean stop = false;
+        if (best < 0) {
+            stop = solved();
+        } else {
+            int candidates = candidates(best);
+            int offset = random == null ? 0 : random.nextInt(size);
+            while (candidates != 0 && !stop) {
+                //lowest candidate at or above the offset, wrapping around to the lowest overall
+                int bit = candidates >>> offset << offset;
+                if (bit == 0) {
+                    bit = candidates;
+                }
+                bit &= -bit;
+                candidates ^= bit;
+                int branch = trailSize;
+                place(best, bit);
+                depth++;
+                stop = branch();
+                depth--;
+                undo(branch);
+            }
+        }
+        undo(mark);
+        return stop;
+    }
+
+    /**
+     * Counts a node checked outside of {@link #branch()}, see {@link #countNode(int)}
+     */
+    void visit(boolean deadEnd) {
+        countNode(depth);
+        if (deadEnd) {
+            countBacktrack();
+        }
+    }
+
+    /**
+     * Polled once per node, a true result abandons the search
+     */
+    boolean cancelled() {
+        return checkpoint();
+    }
+
+    /**
+     * Called with the solved board in {@link #values}
+     *
+     * @return true if the search should stop
+     */
+    boolean solved() {
+        return solutionFound();
+    }
+}
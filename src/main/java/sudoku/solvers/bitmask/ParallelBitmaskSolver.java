@@ -0,0 +1,225 @@
+package sudoku.solvers.bitmask;
+
+import sudoku.data.Board;
+import sudoku.solvers.Solver;
+import sudoku.solvers.SolverStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the {@link BitmaskSolver} search on a {@link ForkJoinPool}.
+ * <p>
+ * The first {@code splitDepth} branching cells are expanded into one task per candidate, and every task below that
+ * depth searches its subtree sequentially on its own copy of the masks, leaving the pool to steal work between them.
+ * When counting, tasks count solutions locally and the counts are summed as the tasks are joined; a shared counter is
+ * only touched when a limit is set, and then in batches once the limit is large. Solutions passed to a consumer are
+ * delivered one at a time under a lock.
+ * <p>
+ * Node counts and, when collected, statistics are summed over every worker, and the progress callback of
+ * {@link #solveAsync(java.util.concurrent.Executor, long, java.util.concurrent.TimeUnit,
+ * java.util.function.LongConsumer)}
+ * is called from the pool's threads.
+ */
+public class ParallelBitmaskSolver extends Solver {
+    private static final int DEFAULT_SPLIT_DEPTH = 3;
+
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+    private volatile Search current;
+
+    public ParallelBitmaskSolver(int[][] board) {
+        this(Board.fromMatrix(board));
+    }
+
+    public ParallelBitmaskSolver(Board board) {
+        this(board, ForkJoinPool.commonPool(), DEFAULT_SPLIT_DEPTH);
+    }
+
+    public ParallelBitmaskSolver(Board board, ForkJoinPool pool, int splitDepth) {
+        super(board);
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+
+    @Override
+    protected void search() {
+        Search search = new Search(limit, consumer != null);
+        current = search;
+        Worker root = new Worker(search);
+        if (!root.load()) {
+            return;
+        }
+        long count = pool.invoke(new SearchTask(root, 0));
+        if (consumer == null) {
+            found = Math.min(count, limit);
+        }
+    }
+
+    /**
+     * Only called from {@link Worker#solved()} with the lock on the search held
+     */
+    @Override
+    protected void writeSolution(Board destination) {
+        current.delivering.writeSolution(destination);
+    }
+
+    /**
+     * @return the nodes visited by the workers of the last search, counted in steps of {@link #POLL_INTERVAL}
+     */
+    @Override
+    public long nodeCount() {
+        Search search = current;
+        return search == null ? 0 : search.nodes.get();
+    }
+
+    /**
+     * State shared by every task of one run
+     */
+    private static class Search {
+        private final long limit;
+        private final boolean deliver;
+        private final int flushInterval;
+        private final AtomicLong found = new AtomicLong();
+        private final AtomicLong nodes = new AtomicLong();
+        private volatile boolean stop;
+        private Worker delivering;
+
+        private Search(long limit, boolean deliver) {
+            this.limit = limit;
+            this.deliver = deliver;
+            //Small limits (e.g. uniqueness checks) need every solution published to stop promptly
+            this.flushInterval = limit < 1 << 16 ? 1 : 1024;
+        }
+    }
+
+    private class Worker extends BitmaskSolver {
+        private final Search search;
+        private long count;
+        private int pending;
+
+        private Worker(Search search) {
+            super(ParallelBitmaskSolver.this.board);
+            this.search = search;
+            //every worker counts on its own thread, the counts are added up as tasks finish
+            setStatistics(ParallelBitmaskSolver.this.statistics() != null);
+        }
+
+        @Override
+        boolean cancelled() {
+            if (!search.stop && checkpoint()) {
+                search.stop = true;
+            }
+            return search.stop;
+        }
+
+        /**
+         * Progress, cancellation and the deadline are handled by the owning solver, with the node count summed
+         * over every worker
+         */
+        @Override
+        protected boolean poll(long nodes) {
+            return ParallelBitmaskSolver.this.poll(search.nodes.addAndGet(POLL_INTERVAL));
+        }
+
+        @Override
+        boolean solved() {
+            count++;
+            if (search.deliver) {
+                //Solutions are handed to the consumer one at a time, which also keeps the limit exact
+                synchronized (search) {
+                    if (!search.stop) {
+                        search.delivering = this;
+                        if (ParallelBitmaskSolver.this.solutionFound()) {
+                            search.stop = true;
+                        }
+                    }
+                }
+            } else if (search.limit != Long.MAX_VALUE && ++pending >= search.flushInterval) {
+                flush();
+            }
+            return search.stop;
+        }
+
+        private void flush() {
+            if (pending > 0 && search.found.addAndGet(pending) >= search.limit) {
+                search.stop = true;
+            }
+            pending = 0;
+        }
+
+        private long finish() {
+            flush();
+            return count;
+        }
+
+        private void report() {
+            SolverStats total = ParallelBitmaskSolver.this.statistics();
+            if (total != null) {
+                synchronized (search) {
+                    total.add(statistics());
+                }
+            }
+        }
+    }
+
+    private class SearchTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Worker worker;
+        private final int depth;
+
+        private SearchTask(Worker worker, int depth) {
+            this.worker = worker;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            try {
+                return searchSubtree();
+            } finally {
+                worker.report();
+            }
+        }
+
+        private long searchSubtree() {
+            if (worker.search.stop) {
+                return 0L;
+            }
+            if (depth >= splitDepth) {
+                worker.branch();
+                return worker.finish();
+            }
+            boolean consistent = worker.propagate();
+            worker.visit(!consistent);
+            if (!consistent) {
+                return 0L;
+            }
+            int cell = worker.mostConstrained();
+            if (cell < 0) {
+                worker.solved();
+                return worker.finish();
+            }
+            List<SearchTask> tasks = new ArrayList<>(9);
+            int candidates = worker.candidates(cell);
+            while (candidates != 0) {
+                int bit = candidates & -candidates;
+                candidates ^= bit;
+                Worker child = new Worker(worker.search);
+                child.copyFrom(worker);
+                child.place(cell, bit);
+                child.depth = depth + 1;
+                tasks.add(new SearchTask(child, depth + 1));
+            }
+            long count = 0;
+            for (SearchTask task : invokeAll(tasks)) {
+                count += task.join();
+            }
+            return count;
+        }
+    }
+}
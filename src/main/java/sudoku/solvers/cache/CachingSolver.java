@@ -0,0 +1,96 @@
+package sudoku.solvers.cache;
+
+import sudoku.data.Board;
+import sudoku.data.Canonicalizer;
+import sudoku.data.Transform;
+import sudoku.solvers.Solver;
+
+import java.util.function.Function;
+
+/**
+ * Puts a {@link SolutionCache} in front of another solver.
+ * <p>
+ * Single solution searches are keyed by the {@link Canonicalizer canonical form} of the puzzle, so any puzzle
+ * equivalent under the symmetries of the board to one seen before is answered by mapping the cached solution back
+ * through the transform. Misses are solved in canonical form by the delegate and stored. Searches for more than one
+ * solution, and boards too large to canonicalize, go straight to the delegate.
+ * <p>
+ * The delegate searches under the deadline and cancellation of this solver, and a search it abandons is neither
+ * cached nor reported. The canonicalizer and the delegate are owned by this solver, so like any solver it runs one
+ * search at a time; the cache itself may be shared between threads.
+ */
+public class CachingSolver extends Solver {
+    private final SolutionCache cache;
+    private final Function<Board, Solver> factory;
+    private final Canonicalizer canonicalizer;
+    private final Board canonical;
+    private final Board solution;
+    private final Board current;
+    private Solver delegate;
+
+    public CachingSolver(Board board, Function<Board, Solver> factory, SolutionCache cache) {
+        super(board);
+        this.cache = cache;
+        this.factory = factory;
+        canonicalizer = Canonicalizer.supports(board.geometry()) ? new Canonicalizer(board.geometry()) : null;
+        canonical = new Board(board.geometry());
+        solution = new Board(board.geometry());
+        current = new Board(board.geometry());
+    }
+
+    /**
+     * @return a factory of caching solvers sharing the cache, each wrapping a solver from the given factory
+     */
+    public static Function<Board, Solver> factory(Function<Board, Solver> factory, SolutionCache cache) {
+        return board -> new CachingSolver(board, factory, cache);
+    }
+
+    @Override
+    protected void search() {
+        if (limit != 1 || canonicalizer == null) {
+            long count = delegate(prepare(board), limit, consumer == null ? null : result -> {
+                current.copyFrom(result);
+                solutionFound();
+            });
+            if (consumer == null) {
+                found = count;
+            }
+            return;
+        }
+        Transform transform = canonicalizer.canonicalize(board, canonical);
+        Boolean cached = cache.get(canonical, solution);
+        if (cached == null) {
+            long count = delegate(prepare(canonical), 1, solution::copyFrom);
+            if (wasAborted()) {
+                return;
+            }
+            cached = count > 0;
+            cache.put(canonical, cached ? solution : null);
+        }
+        if (cached) {
+            transform.invert(solution, current);
+            solutionFound();
+        }
+    }
+
+    /**
+     * @return the delegate, reset to the given board
+     */
+    private Solver prepare(Board board) {
+        if (delegate == null) {
+            delegate = factory.apply(board);
+        } else {
+            delegate.reset(board);
+        }
+        return delegate;
+    }
+
+    @Override
+    protected void writeSolution(Board destination) {
+        destination.copyFrom(current);
+    }
+
+    public SolutionCache cache() {
+        return cache;
+    }
+}
@@ -0,0 +1,88 @@
+package sudoku.solvers.cache;
+
+import sudoku.data.Board;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded least recently used map from canonical puzzles to their canonical solutions, shared by any number of
+ * {@link CachingSolver}s. Puzzles without a solution are remembered too, so they are not searched again.
+ */
+public class SolutionCache {
+    private static final Board NO_SOLUTION = new Board();
+
+    private final int capacity;
+    private final LinkedHashMap<Board, Board> entries;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity the number of puzzles kept before the least recently used one is evicted
+     */
+    public SolutionCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        entries = new LinkedHashMap<Board, Board>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Board, Board> eldest) {
+                return size() > SolutionCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Looks up a canonical puzzle, writing its canonical solution into the destination if there is one
+     *
+     * @return null on a miss, otherwise whether the puzzle has a solution
+     */
+    public synchronized Boolean get(Board canonical, Board destination) {
+        Board solution = entries.get(canonical);
+        if (solution == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        if (solution == NO_SOLUTION) {
+            return false;
+        }
+        destination.copyFrom(solution);
+        return true;
+    }
+
+    /**
+     * @param solution the canonical solution, or null if the puzzle has none
+     */
+    public synchronized void put(Board canonical, Board solution) {
+        entries.put(new Board(canonical), solution == null ? NO_SOLUTION : new Board(solution));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d/%d entries, %d hits, %d misses", entries.size(), capacity, hits, misses);
+    }
+}
@@ -0,0 +1,625 @@
+package sudoku.solvers.count;
+
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+import sudoku.io.PuzzleReader;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Counts the solutions of 9x9 boards exactly, without enumerating them, by decomposing the grid into bands and stacks.
+ * <p>
+ * A filled box is a pair of ordered partitions of the nine digits into triples, one into its rows and one into its
+ * columns, that meet in exactly one digit per row and column. A grid is a row partition for every box, disjoint row by
+ * row along each band, with a column partition for every box, disjoint column by column along each stack. Once the row
+ * partitions of all nine boxes are chosen the stacks no longer depend on each other, so the number of grids is the sum,
+ * over the row structures of the three bands, of the product over the stacks of the number of ways to choose the
+ * stack's column partitions. Those per stack counts only depend on the row partitions as unordered partitions, so they
+ * are kept in 280 by 280 tables that stay in cache, and the sum over the last two bands is a tight loop over them.
+ * <p>
+ * Symmetries keep the sums small. Relabeling digits that are not given permutes the row structures of the first band
+ * without changing their counts, so the first band is only summed over its orbits, each counted once and weighted by
+ * its size: the empty grid needs four. A band without clues only takes row structures whose first box lists its rows
+ * in order of their smallest digit, counted six times. The table of a stack without clues is one precomputed table
+ * relabeled. Clues restrict the partitions that may be used, and the board is transposed and its bands reordered so
+ * the first band has the fewest orbits and the others the fewest row structures.
+ * <p>
+ * The work grows with the number of first band orbits times the numbers of row structures of the other two bands, so it
+ * takes seconds on the empty grid and grows with clues spread over every band. Use a {@link sudoku.solvers.Solver} for
+ * puzzles with few solutions. The last two bands are summed on the common fork-join pool; instances are not thread
+ * safe.
+ */
+public final class BandCounter {
+    /**
+     * Number of ordered partitions of the nine digits into three triples
+     */
+    static final int ORDERED = 1680;
+    /**
+     * Number of unordered partitions of the nine digits into three triples
+     */
+    static final int UNORDERED = 280;
+    private static final int ALL = Board.ALL_CANDIDATES;
+    private static final int[][] PERMUTATIONS = {{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}};
+    private static final long[] FACTORIALS = {1, 1, 2, 6, 24, 120, 720, 5040, 40320, 362880};
+    /**
+     * Stack tables kept per cache, enough for the first band orbits sharing a box partition to reuse them
+     */
+    private static final int TABLE_CACHE = 64;
+
+    /**
+     * The three digit masks of every ordered partition
+     */
+    private static final int[][] PARTITIONS = new int[ORDERED][];
+    /**
+     * The ordered partition with the masks {@code m0, m1}, at {@code m0 | m1 << 9}
+     */
+    private static final short[] INDEX = new short[1 << 18];
+    /**
+     * The unordered partition of every ordered one
+     */
+    private static final int[] UNORDERED_INDEX = new int[ORDERED];
+    /**
+     * The ordered partition of every unordered one with its parts in order of their smallest digit
+     */
+    private static final int[] REPRESENTATIVE = new int[UNORDERED];
+    /**
+     * The 216 ordered partitions meeting each one in exactly one digit per pair of parts
+     */
+    private static final int[][] ORTHOGONAL = new int[ORDERED][];
+    /**
+     * The 36 unordered partitions meeting each ordered one in exactly one digit per pair of parts
+     */
+    private static final int[][] ORTHOGONAL_UNORDERED = new int[ORDERED][];
+    /**
+     * The 56 ordered partitions disjoint part by part from each one
+     */
+    private static final int[][] NEXT = new int[ORDERED][];
+    /**
+     * The ordered partition completing each one and its {@link #NEXT} partition part by part
+     */
+    private static final int[][] REST = new int[ORDERED][];
+    private static final int CANONICAL;
+
+    static {
+        int count = 0;
+        for (int m0 = 0; m0 <= ALL; m0++) {
+            if (Integer.bitCount(m0) != 3) {
+                continue;
+            }
+            for (int m1 = 0; m1 <= ALL; m1++) {
+                if (Integer.bitCount(m1) == 3 && (m0 & m1) == 0) {
+                    PARTITIONS[count] = new int[]{m0, m1, ALL ^ m0 ^ m1};
+                    INDEX[m0 | m1 << 9] = (short) count++;
+                }
+            }
+        }
+        int unordered = 0;
+        for (int p = 0; p < ORDERED; p++) {
+            if (isSorted(p)) {
+                REPRESENTATIVE[unordered] = p;
+                UNORDERED_INDEX[p] = unordered++;
+            }
+        }
+        for (int p = 0; p < ORDERED; p++) {
+            int[] parts = sorted(PARTITIONS[p]);
+            UNORDERED_INDEX[p] = UNORDERED_INDEX[index(parts[0], parts[1])];
+        }
+        int[] orthogonal = new int[216];
+        int[] next = new int[56];
+        int[] rest = new int[56];
+        for (int p = 0; p < ORDERED; p++) {
+            int[] a = PARTITIONS[p];
+            int o = 0;
+            int n = 0;
+            for (int q = 0; q < ORDERED; q++) {
+                int[] b = PARTITIONS[q];
+                if (meetOnce(a, b)) {
+                    orthogonal[o++] = q;
+                }
+                if ((a[0] & b[0]) == 0 && (a[1] & b[1]) == 0 && (a[2] & b[2]) == 0) {
+                    next[n] = q;
+                    rest[n++] = index(ALL ^ a[0] ^ b[0], ALL ^ a[1] ^ b[1]);
+                }
+            }
+            ORTHOGONAL[p] = Arrays.copyOf(orthogonal, o);
+            NEXT[p] = Arrays.copyOf(next, n);
+            REST[p] = Arrays.copyOf(rest, n);
+            int u = 0;
+            int[] unorderedOrthogonal = new int[o / 6];
+            for (int i = 0; i < o; i++) {
+                if (isSorted(orthogonal[i])) {
+                    unorderedOrthogonal[u++] = UNORDERED_INDEX[orthogonal[i]];
+                }
+            }
+            ORTHOGONAL_UNORDERED[p] = unorderedOrthogonal;
+        }
+        CANONICAL = index(0b000000111, 0b000111000);
+    }
+
+    /**
+     * Tables of stacks without clues by the unordered partition of their first box, shared by every board counted
+     */
+    private final Map<Integer, int[]> freeTables = cache();
+
+    /**
+     * @return the number of ways to complete the board, 0 if its clues conflict
+     * @throws IllegalArgumentException if the board is not 9x9
+     */
+    public BigInteger count(Board board) {
+        if (board.geometry() != Geometry.STANDARD) {
+            throw new IllegalArgumentException("Band counting needs a 9x9 board, not " + board.geometry());
+        }
+        Layout best = null;
+        int[] order = new int[3];
+        for (int transposed = 0; transposed < 2; transposed++) {
+            for (int first = 0; first < 3; first++) {
+                order[0] = first;
+                order[1] = first == 0 ? 1 : 0;
+                order[2] = first == 2 ? 1 : 2;
+                Layout layout = new Layout(board, transposed == 1, order);
+                if (best == null || layout.work() < best.work()) {
+                    best = layout;
+                }
+            }
+        }
+        return best.count();
+    }
+
+    /**
+     * The clues of the board in one orientation, and the row structures of its bands
+     */
+    private final class Layout {
+        /**
+         * The digits that must be in each row of each box: [band][stack][row]
+         */
+        private final int[][][] rows = new int[3][3][3];
+        /**
+         * The digits that must be in each column of each box: [stack][band * 3 + column]
+         */
+        private final int[][] columns = new int[3][9];
+        private final boolean[] freeStack = new boolean[3];
+        private final Band second;
+        private final Band third;
+        /**
+         * Orbits of the first band: its box partitions, three per orbit, and the orbit sizes
+         */
+        private final List<int[]> orbits = new ArrayList<>();
+        private final List<Long> sizes = new ArrayList<>();
+        private final List<Map<Integer, int[]>> tables = new ArrayList<>(3);
+        private final int[] fixed;
+        private final int[] free;
+
+        Layout(Board board, boolean transposed, int[] order) {
+            int given = 0;
+            for (int r = 0; r < 9; r++) {
+                int source = order[r / 3] * 3 + r % 3;
+                for (int c = 0; c < 9; c++) {
+                    int value = transposed ? board.get(source, c) : board.get(c, source);
+                    if (value == 0) {
+                        continue;
+                    }
+                    int bit = 1 << (value - 1);
+                    given |= bit;
+                    rows[r / 3][c / 3][r % 3] |= bit;
+                    columns[c / 3][r / 3 * 3 + c % 3] |= bit;
+                }
+            }
+            for (int j = 0; j < 3; j++) {
+                freeStack[j] = empty(columns[j]);
+                tables.add(freeStack[j] ? freeTables : cache());
+            }
+            second = new Band(rows[1]);
+            third = new Band(rows[2]);
+            fixed = new int[Integer.bitCount(given)];
+            free = new int[9 - fixed.length];
+            for (int d = 0, i = 0, k = 0; d < 9; d++) {
+                if ((given & 1 << d) != 0) {
+                    fixed[i++] = d;
+                } else {
+                    free[k++] = d;
+                }
+            }
+            enumerateFixed(0, new int[9], new int[3][3]);
+        }
+
+        /**
+         * @return the number of innermost steps the count takes
+         */
+        double work() {
+            return (double) orbits.size() * second.size * third.size;
+        }
+
+        BigInteger count() {
+            BigInteger total = BigInteger.ZERO;
+            for (int i = 0; i < orbits.size(); i++) {
+                int[] boxes = orbits.get(i);
+                BigInteger sum = combine(table(0, boxes[0]), table(1, boxes[1]), table(2, boxes[2]));
+                total = total.add(sum.multiply(BigInteger.valueOf(sizes.get(i))));
+            }
+            return total.multiply(BigInteger.valueOf(second.multiplicity * third.multiplicity));
+        }
+
+        /**
+         * Chooses, for every given digit, the rows it takes in the three boxes of the first band
+         *
+         * @param types  the permutation index of the rows of every digit so far
+         * @param counts the number of digits placed in each row of each box: [stack][row]
+         */
+        private void enumerateFixed(int i, int[] types, int[][] counts) {
+            if (i == fixed.length) {
+                enumerateFree(0, free.length, 1, types, counts);
+                return;
+            }
+            int d = fixed[i];
+            int bit = 1 << d;
+            for (int t = 0; t < PERMUTATIONS.length; t++) {
+                int[] permutation = PERMUTATIONS[t];
+                boolean fits = true;
+                for (int j = 0; j < 3 && fits; j++) {
+                    int r = permutation[j];
+                    fits = counts[j][r] < 3;
+                    for (int other = 0; other < 3 && fits; other++) {
+                        fits = other == r || (rows[0][j][other] & bit) == 0;
+                    }
+                }
+                if (!fits) {
+                    continue;
+                }
+                types[d] = t;
+                place(permutation, counts, 1);
+                enumerateFixed(i + 1, types, counts);
+                place(permutation, counts, -1);
+            }
+        }
+
+        /**
+         * Chooses how many of the digits not given take each permutation of rows, as relabeling them gives the same
+         * count. The orbit holds the digits not given in increasing order, assigned to the permutations in order.
+         *
+         * @param weight the number of ways to assign the digits not given to the permutations chosen so far
+         */
+        private void enumerateFree(int t, int left, long weight, int[] types, int[][] counts) {
+            if (t == PERMUTATIONS.length) {
+                if (left == 0 && full(counts)) {
+                    orbits.add(boxes(types));
+                    sizes.add(weight);
+                }
+                return;
+            }
+            int[] permutation = PERMUTATIONS[t];
+            int most = left;
+            for (int j = 0; j < 3; j++) {
+                most = Math.min(most, 3 - counts[j][permutation[j]]);
+            }
+            int assigned = free.length - left;
+            for (int n = 0; n <= most; n++) {
+                place(permutation, counts, n);
+                for (int k = 0; k < n; k++) {
+                    types[free[assigned + k]] = t;
+                }
+                enumerateFree(t + 1, left - n, weight * FACTORIALS[left] / FACTORIALS[n] / FACTORIALS[left - n],
+                        types, counts);
+                place(permutation, counts, -n);
+            }
+        }
+
+        /**
+         * @return the ordered row partitions of the three boxes of the first band
+         */
+        private int[] boxes(int[] types) {
+            int[] boxes = new int[3];
+            for (int j = 0; j < 3; j++) {
+                int[] parts = new int[3];
+                for (int d = 0; d < 9; d++) {
+                    parts[PERMUTATIONS[types[d]][j]] |= 1 << d;
+                }
+                boxes[j] = index(parts[0], parts[1]);
+            }
+            return boxes;
+        }
+
+        /**
+         * @return the counts of stack {@code j}, see {@link #stackTable(int, int[])}, for the first band box partition
+         */
+        private int[] table(int j, int box) {
+            int key = UNORDERED_INDEX[box];
+            int[] table = tables.get(j).get(key);
+            if (table == null) {
+                table = freeStack[j] ? relabeled(box) : stackTable(box, columns[j]);
+                tables.get(j).put(key, table);
+            }
+            return table;
+        }
+
+        /**
+         * Sums, over the row structures of the second and third bands, the product of the counts of the three stacks.
+         * The first box partitions of the second band are summed in parallel on the common fork-join pool.
+         */
+        private BigInteger combine(int[] first, int[] second, int[] third) {
+            return IntStream.range(0, ORDERED).parallel()
+                    .mapToObj(p -> combine(p, first, second, third))
+                    .reduce(BigInteger.ZERO, BigInteger::add);
+        }
+
+        /**
+         * Sums over the row structures of the second band whose first box has the ordered partition {@code p}
+         */
+        private BigInteger combine(int p, int[] first, int[] second, int[] third) {
+            int[] middle2 = this.second.middle[p];
+            if (middle2 == null) {
+                return BigInteger.ZERO;
+            }
+            int[] last2 = this.second.last[p];
+            int offset = UNORDERED_INDEX[p] * UNORDERED;
+            BigInteger sum = BigInteger.ZERO;
+            long part = 0;
+            for (int q = 0; q < ORDERED; q++) {
+                int[] middle3 = this.third.middle[q];
+                if (middle3 == null) {
+                    continue;
+                }
+                int weight = first[offset + UNORDERED_INDEX[q]];
+                if (weight == 0) {
+                    continue;
+                }
+                int[] last3 = this.third.last[q];
+                long inner = 0;
+                for (int k = 0; k < middle2.length; k++) {
+                    int row2 = middle2[k] * UNORDERED;
+                    int row3 = last2[k] * UNORDERED;
+                    for (int l = 0; l < middle3.length; l++) {
+                        int count = second[row2 + middle3[l]];
+                        if (count != 0) {
+                            inner += (long) count * third[row3 + last3[l]];
+                        }
+                    }
+                }
+                //weight < 2^14 and inner < 3136 * 2^28, so part never overflows
+                part += weight * inner;
+                if (part > Long.MAX_VALUE / 2) {
+                    sum = sum.add(BigInteger.valueOf(part));
+                    part = 0;
+                }
+            }
+            return sum.add(BigInteger.valueOf(part));
+        }
+    }
+
+    /**
+     * The row structures of a band after the first, grouped by the partition of its first box
+     */
+    private static final class Band {
+        /**
+         * The unordered partitions of the second box for every ordered partition of the first, null if it has none
+         */
+        final int[][] middle = new int[ORDERED][];
+        /**
+         * The unordered partitions of the third box, matching {@link #middle}
+         */
+        final int[][] last = new int[ORDERED][];
+        /**
+         * 6 if the band has no clues and only takes its first box rows in one order, otherwise 1
+         */
+        final long multiplicity;
+        long size;
+
+        Band(int[][] rows) {
+            boolean free = empty(rows[0]) && empty(rows[1]) && empty(rows[2]);
+            multiplicity = free ? 6 : 1;
+            int[] middle = new int[56];
+            int[] last = new int[56];
+            for (int p = 0; p < ORDERED; p++) {
+                if (free && !isSorted(p) || !holds(p, rows[0], 0)) {
+                    continue;
+                }
+                int n = 0;
+                for (int k = 0; k < NEXT[p].length; k++) {
+                    if (holds(NEXT[p][k], rows[1], 0) && holds(REST[p][k], rows[2], 0)) {
+                        middle[n] = UNORDERED_INDEX[NEXT[p][k]];
+                        last[n++] = UNORDERED_INDEX[REST[p][k]];
+                    }
+                }
+                if (n > 0) {
+                    this.middle[p] = Arrays.copyOf(middle, n);
+                    this.last[p] = Arrays.copyOf(last, n);
+                    size += n;
+                }
+            }
+        }
+    }
+
+    private static Map<Integer, int[]> cache() {
+        return new LinkedHashMap<Integer, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                return size() > TABLE_CACHE;
+            }
+        };
+    }
+
+    /**
+     * The counts of a stack without clues whose first box has the rows {@code {1,2,3}, {4,5,6}, {7,8,9}}
+     */
+    private static final class FreeStack {
+        static final int[] TABLE = stackTable(CANONICAL, new int[9]);
+    }
+
+    /**
+     * Counts the ways to choose the column partitions of a stack, given the row partitions of its boxes. The table
+     * holds, at {@code x * 280 + y}, the number of column partition triples, disjoint column by column and holding
+     * the clues, that meet the first box's rows, the unordered partition {@code x} of the second box and {@code y}
+     * of the third.
+     *
+     * @param first   the row partition of the stack's box in the first band
+     * @param columns the digits that must be in each column of the three boxes, a box at a time
+     */
+    static int[] stackTable(int first, int[] columns) {
+        int[] table = new int[UNORDERED * UNORDERED];
+        for (int s1 : ORTHOGONAL[first]) {
+            if (!holds(s1, columns, 0)) {
+                continue;
+            }
+            for (int k = 0; k < NEXT[s1].length; k++) {
+                int s2 = NEXT[s1][k];
+                int s3 = REST[s1][k];
+                if (!holds(s2, columns, 3) || !holds(s3, columns, 6)) {
+                    continue;
+                }
+                for (int x : ORTHOGONAL_UNORDERED[s2]) {
+                    int row = x * UNORDERED;
+                    for (int y : ORTHOGONAL_UNORDERED[s3]) {
+                        table[row + y]++;
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @return the table of a stack without clues whose first box has the given row partition, read from
+     * {@link FreeStack#TABLE} through the relabeling that takes the partition to {@code {1,2,3}, {4,5,6}, {7,8,9}}
+     */
+    static int[] relabeled(int first) {
+        int[] labels = new int[9];
+        for (int r = 0; r < 3; r++) {
+            int next = 3 * r;
+            for (int mask = PARTITIONS[first][r]; mask != 0; mask &= mask - 1) {
+                labels[Integer.numberOfTrailingZeros(mask)] = next++;
+            }
+        }
+        int[] mapped = new int[UNORDERED];
+        for (int u = 0; u < UNORDERED; u++) {
+            int[] parts = PARTITIONS[REPRESENTATIVE[u]];
+            mapped[u] = UNORDERED_INDEX[index(relabel(parts[0], labels), relabel(parts[1], labels))];
+        }
+        int[] free = FreeStack.TABLE;
+        int[] table = new int[UNORDERED * UNORDERED];
+        for (int x = 0; x < UNORDERED; x++) {
+            int from = mapped[x] * UNORDERED;
+            for (int y = 0; y < UNORDERED; y++) {
+                table[x * UNORDERED + y] = free[from + mapped[y]];
+            }
+        }
+        return table;
+    }
+
+    private static int relabel(int mask, int[] labels) {
+        int relabeled = 0;
+        for (; mask != 0; mask &= mask - 1) {
+            relabeled |= 1 << labels[Integer.numberOfTrailingZeros(mask)];
+        }
+        return relabeled;
+    }
+
+    private static int index(int m0, int m1) {
+        return INDEX[m0 | m1 << 9];
+    }
+
+    /**
+     * @return true if the parts of the ordered partition are in order of their smallest digit
+     */
+    private static boolean isSorted(int p) {
+        int[] parts = PARTITIONS[p];
+        return Integer.lowestOneBit(parts[0]) < Integer.lowestOneBit(parts[1])
+                && Integer.lowestOneBit(parts[1]) < Integer.lowestOneBit(parts[2]);
+    }
+
+    /**
+     * @return the parts in order of their smallest digit
+     */
+    private static int[] sorted(int[] parts) {
+        int[] sorted = parts.clone();
+        for (int i = 1; i < 3; i++) {
+            for (int k = i; k > 0 && Integer.lowestOneBit(sorted[k]) < Integer.lowestOneBit(sorted[k - 1]); k--) {
+                int swap = sorted[k];
+                sorted[k] = sorted[k - 1];
+                sorted[k - 1] = swap;
+            }
+        }
+        return sorted;
+    }
+
+    private static boolean meetOnce(int[] a, int[] b) {
+        for (int i = 0; i < 3; i++) {
+            for (int k = 0; k < 3; k++) {
+                if (Integer.bitCount(a[i] & b[k]) != 1) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if every part of the partition holds the digits required of it, from {@code offset}
+     */
+    private static boolean holds(int p, int[] required, int offset) {
+        int[] parts = PARTITIONS[p];
+        for (int i = 0; i < 3; i++) {
+            if ((parts[i] & required[offset + i]) != required[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean empty(int[] masks) {
+        for (int mask : masks) {
+            if (mask != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean full(int[][] counts) {
+        for (int[] row : counts) {
+            for (int count : row) {
+                if (count != 3) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void place(int[] permutation, int[][] counts, int n) {
+        for (int j = 0; j < 3; j++) {
+            counts[j][permutation[j]] += n;
+        }
+    }
+
+    /**
+     * Usage: BandCounter [input|-]
+     * <p>
+     * Prints the number of solutions of every 9x9 puzzle, one per line, and the time taken to standard error. The
+     * input may hold puzzles in the one line or the .sdk grid format, see {@link PuzzleReader}.
+     */
+    public static void main(String[] args) throws IOException {
+        String input = args.length > 0 ? args[0] : "-";
+        BandCounter counter = new BandCounter();
+        long puzzles = 0;
+        long start = System.nanoTime();
+        try (PuzzleReader in = input.equals("-") ? new PuzzleReader(System.in) : PuzzleReader.open(Paths.get(input))) {
+            while (in.next()) {
+                Board puzzle = in.board();
+                if (puzzle == null || puzzle.geometry() != Geometry.STANDARD) {
+                    System.out.println("Invalid puzzle");
+                    continue;
+                }
+                puzzles++;
+                System.out.println(counter.count(puzzle));
+            }
+        }
+        System.err.printf("Counted %d puzzles in %.3fs%n", puzzles, (System.nanoTime() - start) / 1e9);
+    }
+}
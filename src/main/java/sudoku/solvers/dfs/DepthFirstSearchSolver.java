@@ -1,73 +1,73 @@
 package sudoku.solvers.dfs;
 
+import sudoku.data.Board;
+import sudoku.data.Candidates;
 import sudoku.solvers.Solver;
-import sudoku.util.MatrixUtil;
 
 import java.util.stream.IntStream;
 
 public class DepthFirstSearchSolver extends Solver {
     private final int n;
+    private final Candidates candidates;
     private boolean interrupt;
+    private int depth;
 
-    //TODO: investigate whether keeping a domain matrix is beneficial
-    // Could be used to optimally select the next cell
     public DepthFirstSearchSolver(int[][] board) {
+        this(Board.fromMatrix(board));
+    }
+
+    public DepthFirstSearchSolver(Board board) {
         super(board);
-        n = board.length;
+        n = board.geometry().size;
+        candidates = new Candidates(board.geometry());
     }
 
     @Override
-    public void findAllSolutions() {
+    protected void search() {
         interrupt = false;
-        solve(0, 0, false);
+        depth = 0;
+        if (candidates.load(board)) {
+            solve(0, 0);
+        }
     }
 
     @Override
-    public void findSingleSolution() {
-        interrupt = false;
-        solve(0, 0, true);
+    protected void writeSolution(Board destination) {
+        destination.copyFrom(board);
     }
 
-    private void solve(int c, int r, boolean findSingle) {
+    private void solve(int c, int r) {
         if (interrupt) {
             return;
         }
-        if (c == 9) {
-            solutions.add(MatrixUtil.copyOf(board));
-            if (findSingle) {
+        countNode(depth);
+        if (checkpoint()) {
+            interrupt = true;
+            return;
+        }
+        if (c == n) {
+            if (solutionFound()) {
                 interrupt = true;
             }
-        } else if (board[c][r] != 0) {
-            solve(c + r / (n - 1), (r + 1) % n, findSingle);
+        } else if (board.get(c, r) != 0) {
+            solve(c + r / (n - 1), (r + 1) % n);
         } else {
+            int index = r * n + c;
+            if (candidates.candidates(index) == 0) {
+                countBacktrack();
+                return;
+            }
+            depth++;
             IntStream.rangeClosed(1, n)
-                    .filter(i -> canSelect(c, r, i))
+                    .filter(i -> candidates.canPlace(index, i))
                     .forEach(i -> {
-                        board[c][r] = i;
-                        solve(c + r / (n - 1), (r + 1) % n, findSingle);
-                        board[c][r] = 0;
+                        board.set(index, i);
+                        candidates.place(index, i);
+                        solve(c + r / (n - 1), (r + 1) % n);
+                        candidates.unplace(index);
+                        board.set(index, 0);
                     });
+            depth--;
         }
     }
-
-    private boolean canSelect(int column, int row, int value) {
-        //check column and row
-        for (int i = 0; i < 9; i++) {
-            if (board[column][i] == value
-                    || board[i][row] == value) {
-                return false;
-            }
-        }
-        //check sector
-        int colStart = column / 3 * 3;
-        int rowStart = row / 3 * 3;
-        for (int c = colStart; c < colStart + 3; c++) {
-            for (int r = rowStart; r < rowStart + 3; r++) {
-                if (board[c][r] == value) {
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
 }
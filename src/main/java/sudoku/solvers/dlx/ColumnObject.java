@@ -1,6 +0,0 @@
-package sudoku.solvers.dlx;
-
-public class ColumnObject extends DataObject {
-    int size = 0;
-    String name = "unnamed";
-}
@@ -0,0 +1,28 @@
+package sudoku.solvers.dlx;
+
+/**
+ * One rule of a Sudoku variant, as columns of an {@link ExactCover} and the entries its rows have in them.
+ * <p>
+ * Every row of the cover places values in cells, one value per cell. The cover itself adds a primary column per cell,
+ * so every cell gets exactly one value, and asks every provider for the columns each placement covers.
+ */
+public interface ConstraintProvider {
+    /**
+     * Allocates the columns of the rule with {@link ExactCover#addPrimary(int)} and
+     * {@link ExactCover#addSecondary(int)}, called once before any row is built
+     */
+    void addColumns(ExactCover cover);
+
+    /**
+     * Adds the columns covered by placing the value in the cell to the row being built, with
+     * {@link ExactCover#cover(int)}
+     */
+    void addPlacement(ExactCover cover, int cell, int value);
+
+    /**
+     * Declares cells that are filled together, one row per allowed filling, with
+     * {@link ExactCover#addGroup(int[], int[][], int...)}. Cells outside every group get a row per value.
+     */
+    default void addGroups(ExactCover cover) {
+    }
+}
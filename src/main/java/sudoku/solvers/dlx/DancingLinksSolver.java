@@ -1,24 +1,56 @@
 package sudoku.solvers.dlx;
 
-import sudoku.solvers.Solver;
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+
+/**
+ * Solves standard Sudoku of any supported size with dancing links, https://arxiv.org/pdf/cs/0011047.pdf: an
+ * {@link ExactCoverSolver} whose cover has a column per cell and per value of every row, column and box. The cover of
+ * each size is built once and shared by every instance.
+ */
+public class DancingLinksSolver extends ExactCoverSolver {
+    private static final ExactCover[] COVERS = new ExactCover[Geometry.MAX_BOX + 1];
 
-public class DancingLinksSolver extends Solver {
-    /**
-     * https://arxiv.org/pdf/cs/0011047.pdf
-     *
-     * @param board
-     */
     public DancingLinksSolver(int[][] board) {
-        super(board);
+        this(Board.fromMatrix(board));
     }
 
-    @Override
-    public void findAllSolutions() {
-        //TODO: Implement
+    public DancingLinksSolver(Board board) {
+        super(board, standardCover(board.geometry()));
+    }
+
+    /**
+     * @return the cover of the standard rules, built on first use
+     */
+    public static synchronized ExactCover standardCover(Geometry geometry) {
+        if (COVERS[geometry.box] == null) {
+            COVERS[geometry.box] = new ExactCover(geometry, new UnitConstraint(geometry));
+        }
+        return COVERS[geometry.box];
     }
 
-    @Override
-    public void findSingleSolution() {
-        //TODO: Implement
+    /**
+     * Every row, column and box holds every value once
+     */
+    private static final class UnitConstraint implements ConstraintProvider {
+        private final Geometry geometry;
+        private int first;
+
+        UnitConstraint(Geometry geometry) {
+            this.geometry = geometry;
+        }
+
+        @Override
+        public void addColumns(ExactCover cover) {
+            first = cover.addPrimary(geometry.units.length * geometry.size);
+        }
+
+        @Override
+        public void addPlacement(ExactCover cover, int cell, int value) {
+            int size = geometry.size;
+            cover.cover(first + geometry.row[cell] * size + value - 1);
+            cover.cover(first + (size + geometry.column[cell]) * size + value - 1);
+            cover.cover(first + (2 * size + geometry.sector[cell]) * size + value - 1);
+        }
     }
 }
@@ -1,5 +0,0 @@
-package sudoku.solvers.dlx;
-
-public class DataObject {
-    DataObject L, R, U, D, C;
-}
@@ -1,23 +1,346 @@
 package sudoku.solvers.dlx;
 
+/**
+ * Array-backed implementation of Knuth's dancing links.
+ * <p>
+ * Node 0 is the root, nodes 1..columns are the column headers, the node after them heads the secondary columns and
+ * every following node is a data object. The L/R/U/D/C links of every node are stored in parallel arrays that are
+ * allocated once, so covering, uncovering, searching and {@link #clear() clearing} for the next problem never create
+ * objects.
+ * <p>
+ * The first {@code primary} columns must be covered exactly once by a solution. The secondary columns after them may
+ * be covered at most once: they are linked into their own list, so the search never branches on them, but selecting a
+ * row still covers them and removes every other row sharing one.
+ */
 public class DlxImpl {
-    public DlxImpl() {
+    static final int ROOT = 0;
 
+    final int[] L, R, U, D, C;
+    final int[] size;
+    final int[] row;
+    private final int[] rowStart;
+    private final int[] selected;
+    private final int columns;
+    private final int primary;
+    /**
+     * The root of the secondary columns, and one less than the first data object
+     */
+    private final int secondaryRoot;
+    private int nodes;
+    private int rows;
+    private int depth;
+    private SolutionListener listener;
+
+    public DlxImpl(int columns, int maxRows, int maxNodes) {
+        this(columns, 0, maxRows, maxNodes);
+    }
+
+    /**
+     * @param primary   the number of columns to cover exactly once, numbered first
+     * @param secondary the number of columns to cover at most once, numbered after the primary ones
+     */
+    public DlxImpl(int primary, int secondary, int maxRows, int maxNodes) {
+        columns = primary + secondary;
+        this.primary = primary;
+        secondaryRoot = columns + 1;
+        int capacity = columns + 2 + maxNodes;
+        L = new int[capacity];
+        R = new int[capacity];
+        U = new int[capacity];
+        D = new int[capacity];
+        C = new int[capacity];
+        row = new int[capacity];
+        size = new int[columns + 2];
+        rowStart = new int[maxRows];
+        selected = new int[maxRows];
+        clear();
+    }
+
+    /**
+     * Creates the links for a matrix indexed as matrix[row][column], where any non-zero entry is a 1
+     */
+    public static DlxImpl create(byte[][] matrix) {
+        return create(matrix, 0);
+    }
+
+    /**
+     * Creates the links for a matrix indexed as matrix[row][column], where any non-zero entry is a 1
+     *
+     * @param secondary the number of columns, at the end of every row, that may be covered at most once
+     */
+    public static DlxImpl create(byte[][] matrix, int secondary) {
+        int columns = matrix.length == 0 ? 0 : matrix[0].length;
+        if (secondary < 0 || secondary > columns) {
+            throw new IllegalArgumentException("Cannot make " + secondary + " of " + columns + " columns secondary");
+        }
+        int ones = 0;
+        for (byte[] r : matrix) {
+            for (byte b : r) {
+                if (b != 0) {
+                    ones++;
+                }
+            }
+        }
+        DlxImpl dlx = new DlxImpl(columns - secondary, secondary, matrix.length, ones);
+        int[] buffer = new int[columns];
+        for (byte[] r : matrix) {
+            int count = 0;
+            for (int c = 0; c < columns; c++) {
+                if (r[c] != 0) {
+                    buffer[count++] = c;
+                }
+            }
+            dlx.addRow(buffer, count);
+        }
+        return dlx;
+    }
+
+    /**
+     * Appends a row with a 1 in each of the given (zero-based) columns
+     *
+     * @return the index of the new row
+     */
+    public int addRow(int[] cols, int count) {
+        return addRow(cols, 0, count);
+    }
+
+    /**
+     * Appends a row with a 1 in each of the count (zero-based) columns from the offset in cols
+     *
+     * @return the index of the new row
+     */
+    public int addRow(int[] cols, int offset, int count) {
+        int first = nodes;
+        for (int i = 0; i < count; i++) {
+            int x = nodes++;
+            int c = cols[offset + i] + 1;
+            C[x] = c;
+            row[x] = rows;
+            //vertical: insert above the header, i.e. at the bottom of the column
+            U[x] = U[c];
+            D[x] = c;
+            D[U[c]] = x;
+            U[c] = x;
+            size[c]++;
+            //horizontal: circular list starting at first
+            L[x] = i == 0 ? x : x - 1;
+            R[x] = first;
+            if (i > 0) {
+                R[x - 1] = x;
+                L[first] = x;
+            }
+        }
+        rowStart[rows] = count == 0 ? -1 : first;
+        return rows++;
     }
 
-    //column
-    //row
-    void create(byte[][] matrix) {
-        //Root node
-        ColumnObject root = new ColumnObject();
-        root.U = root;
-        root.D = root;
-        root.L = root;
-        root.R = root;
+    public int addRow(int... cols) {
+        return addRow(cols, cols.length);
+    }
+
+    /**
+     * Removes every row and selection, leaving the columns empty for the rows of another problem of the same shape
+     */
+    public void clear() {
+        //Root node and primary column headers, then the secondary root and its column headers
+        for (int i = 0; i <= columns + 1; i++) {
+            U[i] = i;
+            D[i] = i;
+            C[i] = i;
+            row[i] = -1;
+            size[i] = 0;
+        }
+        linkHeaders(ROOT, 1, primary);
+        linkHeaders(secondaryRoot, primary + 1, columns);
+        nodes = columns + 2;
+        rows = 0;
+        depth = 0;
+    }
+
+    /**
+     * Links the headers from first to last into a circular list with the root
+     */
+    private void linkHeaders(int root, int first, int last) {
+        int previous = root;
+        for (int i = first; i <= last; i++) {
+            L[i] = previous;
+            R[previous] = i;
+            previous = i;
+        }
+        R[previous] = root;
+        L[root] = previous;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public int primaryColumns() {
+        return primary;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of data objects added since the last {@link #clear()}
+     */
+    public int nodes() {
+        return nodes - columns - 2;
+    }
 
-        //Column headers
-        for (int i = 0; i < matrix.length; i++) {
+    void cover(int c) {
+        L[R[c]] = L[c];
+        R[L[c]] = R[c];
+        for (int i = D[c]; i != c; i = D[i]) {
+            for (int j = R[i]; j != i; j = R[j]) {
+                U[D[j]] = U[j];
+                D[U[j]] = D[j];
+                size[C[j]]--;
+            }
+        }
+    }
+
+    void uncover(int c) {
+        for (int i = U[c]; i != c; i = U[i]) {
+            for (int j = L[i]; j != i; j = L[j]) {
+                size[C[j]]++;
+                U[D[j]] = j;
+                D[U[j]] = j;
+            }
+        }
+        L[R[c]] = c;
+        R[L[c]] = c;
+    }
+
+    private boolean isCovered(int c) {
+        return R[L[c]] != c;
+    }
+
+    /**
+     * Forces the given row into the solution, covering all of its columns.
+     *
+     * @return false if one of the columns was already covered, in which case nothing is changed
+     */
+    public boolean select(int r) {
+        int first = rowStart[r];
+        if (first < 0) {
+            return false;
+        }
+        int j = first;
+        do {
+            if (isCovered(C[j])) {
+                return false;
+            }
+            j = R[j];
+        } while (j != first);
+        j = first;
+        do {
+            cover(C[j]);
+            j = R[j];
+        } while (j != first);
+        selected[depth++] = r;
+        return true;
+    }
+
+    /**
+     * Reverts the most recent {@link #select(int)}, restoring the links to their previous state
+     */
+    public void deselect() {
+        int first = rowStart[selected[--depth]];
+        int j = L[first];
+        do {
+            uncover(C[j]);
+            j = L[j];
+        } while (j != L[first]);
+    }
+
+    public int selectedCount() {
+        return depth;
+    }
+
+    /**
+     * @return the only row left in the (zero-based) column, or -1 if the column is covered or has no or several rows
+     */
+    public int onlyRow(int column) {
+        int c = column + 1;
+        return size[c] == 1 && !isCovered(c) ? row[D[c]] : -1;
+    }
+
+    /**
+     * Runs Algorithm X from the current state, passing every exact cover to the listener.
+     * The links are restored to their prior state when this returns.
+     *
+     * @return true if the listener asked for the search to stop
+     */
+    public boolean search(SolutionListener listener) {
+        this.listener = listener;
+        try {
+            return search(depth);
+        } finally {
+            this.listener = null;
+        }
+    }
+
+    private boolean search(int k) {
+        if (listener.abort(k)) {
+            return true;
+        }
+        if (R[ROOT] == ROOT) {
+            return listener.solution(selected, k);
+        }
+        //S heuristic: branch on the primary column with the fewest remaining rows
+        int c = R[ROOT];
+        int s = size[c];
+        for (int j = R[c]; j != ROOT && s > 0; j = R[j]) {
+            if (size[j] < s) {
+                c = j;
+                s = size[j];
+            }
+        }
+        if (s == 0) {
+            listener.deadEnd();
+            return false;
+        }
+        boolean stop = false;
+        cover(c);
+        for (int r = D[c]; r != c && !stop; r = D[r]) {
+            selected[k] = row[r];
+            for (int j = R[r]; j != r; j = R[j]) {
+                cover(C[j]);
+            }
+            stop = search(k + 1);
+            for (int j = L[r]; j != r; j = L[j]) {
+                uncover(C[j]);
+            }
+        }
+        uncover(c);
+        return stop;
+    }
+
+    public interface SolutionListener {
+        /**
+         * @param rows  the selected rows, only the first count entries are valid
+         * @param count the number of rows in the solution
+         * @return true to stop searching
+         */
+        boolean solution(int[] rows, int count);
+
+        /**
+         * Polled once per search node
+         *
+         * @param depth the number of rows selected so far
+         * @return true to abandon the search
+         */
+        default boolean abort(int depth) {
+            return false;
+        }
 
+        /**
+         * Called for every search node with a column that no remaining row covers
+         */
+        default void deadEnd() {
         }
     }
 }
@@ -0,0 +1,306 @@
+package sudoku.solvers.dlx;
+
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The exact cover matrix of a Sudoku variant, built once from its {@link ConstraintProvider}s.
+ * <p>
+ * Columns 0..cells-1 are the cells, each filled exactly once; the providers allocate the rest. Every row places
+ * values in cells: one value in one cell, or a whole filling of a group of cells declared by a provider. Rows that
+ * would cover a column twice can never be selected and are dropped. Primary columns are numbered before secondary
+ * ones in the links, whatever order the providers allocate them in.
+ * <p>
+ * The rows are kept in flat arrays, so {@link #load(DlxImpl, Board, int[])} fills links made by {@link #newLinks()}
+ * with the rows agreeing with a set of givens without allocating. A built cover is not modified and may be shared by
+ * solvers on any number of threads.
+ */
+public final class ExactCover {
+    private final Geometry geometry;
+    private final ConstraintProvider[] providers;
+    private boolean[] secondary = new boolean[64];
+    private int columns;
+    private int primaryColumns;
+    /**
+     * The column of the links for each column allocated, primary columns first
+     */
+    private int[] links;
+    private boolean building;
+
+    private final int[] groupOf;
+    private final List<int[]> groupCells = new ArrayList<>();
+    private final List<int[][]> groupFillings = new ArrayList<>();
+    private final List<int[]> groupColumns = new ArrayList<>();
+
+    //the rows, row r covering rowColumns[columnStart[r]..columnStart[r + 1]) and placing the cells and values from
+    //placementStart[r] to placementStart[r + 1]
+    private int rows;
+    private int[] columnStart = new int[1024];
+    private int[] rowColumns = new int[4096];
+    private int[] placementStart = new int[1024];
+    private int[] placementCells = new int[1024];
+    private int[] placementValues = new int[1024];
+
+    //the row being built
+    private int[] current = new int[64];
+    private int currentSize;
+
+    public ExactCover(Geometry geometry, ConstraintProvider... providers) {
+        this.geometry = geometry;
+        this.providers = providers.clone();
+        addPrimary(geometry.cells);
+        for (ConstraintProvider provider : this.providers) {
+            provider.addColumns(this);
+        }
+        groupOf = new int[geometry.cells];
+        Arrays.fill(groupOf, -1);
+        for (ConstraintProvider provider : this.providers) {
+            provider.addGroups(this);
+        }
+        links = new int[columns];
+        int next = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int c = 0; c < columns; c++) {
+                if (secondary[c] == (pass == 1)) {
+                    links[c] = next++;
+                }
+            }
+        }
+        building = true;
+        for (int g = 0; g < groupCells.size(); g++) {
+            int[] cells = groupCells.get(g);
+            for (int[] filling : groupFillings.get(g)) {
+                currentSize = 0;
+                for (int i = 0; i < cells.length; i++) {
+                    place(cells[i], filling[i]);
+                }
+                for (int column : groupColumns.get(g)) {
+                    cover(column);
+                }
+                endRow();
+            }
+        }
+        for (int cell = 0; cell < geometry.cells; cell++) {
+            if (groupOf[cell] >= 0) {
+                continue;
+            }
+            for (int value = 1; value <= geometry.size; value++) {
+                currentSize = 0;
+                place(cell, value);
+                endRow();
+            }
+        }
+        building = false;
+    }
+
+    /**
+     * Allocates columns that must be covered exactly once
+     *
+     * @return the first of the count columns
+     */
+    public int addPrimary(int count) {
+        primaryColumns += count;
+        return allocate(count, false);
+    }
+
+    /**
+     * Allocates columns that may be covered at most once
+     *
+     * @return the first of the count columns
+     */
+    public int addSecondary(int count) {
+        return allocate(count, true);
+    }
+
+    private int allocate(int count, boolean secondary) {
+        if (links != null) {
+            throw new IllegalStateException("Columns must be allocated before groups and rows");
+        }
+        if (columns + count > this.secondary.length) {
+            this.secondary = Arrays.copyOf(this.secondary, Math.max(2 * this.secondary.length, columns + count));
+        }
+        Arrays.fill(this.secondary, columns, columns + count, secondary);
+        int first = columns;
+        columns += count;
+        return first;
+    }
+
+    /**
+     * Declares cells that are only filled together, by one of the fillings
+     *
+     * @param fillings the values of the cells, in the order of the cells, for every row to add
+     * @param columns  further columns covered by every row of the group
+     * @throws IllegalArgumentException if a cell is already in a group, or a filling does not fit the cells
+     */
+    public void addGroup(int[] cells, int[][] fillings, int... columns) {
+        if (links != null) {
+            throw new IllegalStateException("Groups must be added from ConstraintProvider.addGroups");
+        }
+        for (int cell : cells) {
+            if (cell < 0 || cell >= geometry.cells) {
+                throw new IllegalArgumentException("No cell " + cell + " on a " + geometry + " board");
+            }
+            if (groupOf[cell] >= 0) {
+                throw new IllegalArgumentException("Cell " + cell + " is in two groups");
+            }
+        }
+        for (int[] filling : fillings) {
+            if (filling.length != cells.length) {
+                throw new IllegalArgumentException("A filling of " + filling.length + " values for " + cells.length
+                        + " cells");
+            }
+            for (int value : filling) {
+                if (value < 1 || value > geometry.size) {
+                    throw new IllegalArgumentException("Value " + value + " out of range");
+                }
+            }
+        }
+        for (int column : columns) {
+            checkColumn(column);
+        }
+        for (int cell : cells) {
+            groupOf[cell] = groupCells.size();
+        }
+        groupCells.add(cells.clone());
+        groupFillings.add(fillings);
+        groupColumns.add(columns.clone());
+    }
+
+    /**
+     * Adds a column to the row being built, called from {@link ConstraintProvider#addPlacement}
+     */
+    public void cover(int column) {
+        if (!building) {
+            throw new IllegalStateException("Columns are only covered while rows are built");
+        }
+        checkColumn(column);
+        if (currentSize == current.length) {
+            current = Arrays.copyOf(current, 2 * currentSize);
+        }
+        current[currentSize++] = links[column];
+    }
+
+    private void checkColumn(int column) {
+        if (column < 0 || column >= columns) {
+            throw new IllegalArgumentException("No column " + column + " of " + columns);
+        }
+    }
+
+    private void place(int cell, int value) {
+        int at = placementStart[rows + 1];
+        if (at == placementCells.length) {
+            placementCells = Arrays.copyOf(placementCells, 2 * at);
+            placementValues = Arrays.copyOf(placementValues, 2 * at);
+        }
+        placementCells[at] = cell;
+        placementValues[at] = value;
+        placementStart[rows + 1] = at + 1;
+        cover(cell);
+        for (ConstraintProvider provider : providers) {
+            provider.addPlacement(this, cell, value);
+        }
+    }
+
+    /**
+     * Stores the row being built, unless it covers a column twice
+     */
+    private void endRow() {
+        Arrays.sort(current, 0, currentSize);
+        boolean valid = true;
+        for (int i = 1; i < currentSize && valid; i++) {
+            valid = current[i] != current[i - 1];
+        }
+        if (!valid) {
+            placementStart[rows + 1] = placementStart[rows];
+            return;
+        }
+        int at = columnStart[rows];
+        if (at + currentSize > rowColumns.length) {
+            rowColumns = Arrays.copyOf(rowColumns, Math.max(2 * rowColumns.length, at + currentSize));
+        }
+        System.arraycopy(current, 0, rowColumns, at, currentSize);
+        rows++;
+        if (rows + 1 >= columnStart.length) {
+            columnStart = Arrays.copyOf(columnStart, 2 * columnStart.length);
+            placementStart = Arrays.copyOf(placementStart, 2 * placementStart.length);
+        }
+        columnStart[rows] = at + currentSize;
+        placementStart[rows + 1] = placementStart[rows];
+    }
+
+    public Geometry geometry() {
+        return geometry;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public int primaryColumns() {
+        return primaryColumns;
+    }
+
+    /**
+     * @return links large enough for every row of the cover
+     */
+    public DlxImpl newLinks() {
+        return new DlxImpl(primaryColumns, columns - primaryColumns, rows, columnStart[rows]);
+    }
+
+    /**
+     * Clears the links and adds every row whose placements agree with the givens
+     *
+     * @param links  links made by {@link #newLinks()}
+     * @param rowIds receives the row of the cover for every row of the links, at least {@link #rows()} long
+     */
+    public void load(DlxImpl links, Board givens, int[] rowIds) {
+        links.clear();
+        for (int r = 0; r < rows; r++) {
+            boolean agrees = true;
+            for (int p = placementStart[r]; p < placementStart[r + 1] && agrees; p++) {
+                int given = givens.get(placementCells[p]);
+                agrees = given == 0 || given == placementValues[p];
+            }
+            if (agrees) {
+                rowIds[links.addRow(rowColumns, columnStart[r], columnStart[r + 1] - columnStart[r])] = r;
+            }
+        }
+    }
+
+    /**
+     * Selects the row of every given cell that only one loaded row places, so a search of the links starts below the
+     * givens. A given cell of a group that several fillings agreeing with the givens fill is left to the search.
+     *
+     * @param links  links loaded by {@link #load(DlxImpl, Board, int[])} with the same givens
+     * @return the number of rows selected
+     */
+    public int selectGivens(DlxImpl links, Board givens) {
+        int selected = 0;
+        for (int cell = 0; cell < geometry.cells; cell++) {
+            if (givens.get(cell) != 0) {
+                int row = links.onlyRow(this.links[cell]);
+                if (row >= 0 && links.select(row)) {
+                    selected++;
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Writes the placements of a row of the cover to the board
+     */
+    public void writeRow(int row, Board destination) {
+        for (int p = placementStart[row]; p < placementStart[row + 1]; p++) {
+            destination.set(placementCells[p], placementValues[p]);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package sudoku.solvers.dlx;
+
+import sudoku.data.Board;
+import sudoku.solvers.Solver;
+
+/**
+ * Solves any variant described by an {@link ExactCover} with dancing links.
+ * <p>
+ * Each search clears the links, loads the rows agreeing with the givens and selects the rows of the givens up front,
+ * so search nodes, statistics and polls only count the cells the search fills. Loading reuses the arrays of the links,
+ * so neither it nor the search allocates.
+ */
+public class ExactCoverSolver extends Solver implements DlxImpl.SolutionListener {
+    private final ExactCover cover;
+    private final DlxImpl dlx;
+    /**
+     * The row of the cover for every row of the links
+     */
+    private final int[] rowIds;
+    private int[] solutionRows;
+    private int solutionSize;
+    /**
+     * The number of rows selected for the givens, the depth at which the search starts
+     */
+    private int givens;
+
+    public ExactCoverSolver(Board board, ConstraintProvider... providers) {
+        this(board, new ExactCover(board.geometry(), providers));
+    }
+
+    /**
+     * @param cover the variant, which may be shared with other solvers
+     */
+    public ExactCoverSolver(Board board, ExactCover cover) {
+        super(board);
+        if (cover.geometry() != board.geometry()) {
+            throw new IllegalArgumentException("A " + cover.geometry() + " cover cannot solve a " + board.geometry()
+                    + " board");
+        }
+        this.cover = cover;
+        dlx = cover.newLinks();
+        rowIds = new int[cover.rows()];
+    }
+
+    public ExactCover cover() {
+        return cover;
+    }
+
+    @Override
+    protected void search() {
+        cover.load(dlx, board, rowIds);
+        givens = cover.selectGivens(dlx, board);
+        dlx.search(this);
+    }
+
+    @Override
+    public boolean solution(int[] rows, int count) {
+        solutionRows = rows;
+        solutionSize = count;
+        return solutionFound();
+    }
+
+    @Override
+    protected void writeSolution(Board destination) {
+        for (int i = 0; i < solutionSize; i++) {
+            cover.writeRow(rowIds[solutionRows[i]], destination);
+        }
+    }
+
+    @Override
+    public boolean abort(int depth) {
+        countNode(depth - givens);
+        return checkpoint();
+    }
+
+    @Override
+    public void deadEnd() {
+        countBacktrack();
+    }
+}
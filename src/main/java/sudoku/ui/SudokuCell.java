@@ -1,17 +1,17 @@
-package sudoku.data;
+package sudoku.ui;
 
 import com.sun.javafx.collections.ObservableListWrapper;
-import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.SortedList;
 import javafx.css.PseudoClass;
 import javafx.scene.control.ComboBox;
 
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Shows one cell of a {@link sudoku.data.GameModel}, offering the values of its domain as choices
+ */
 public class SudokuCell extends ComboBox<Integer> {
-    //TODO: Separate ComboBox from CCell
     private static final String SUDOKU_CELL_CLASS = "sudoku-cell";
     private static final PseudoClass INCORRECT = PseudoClass.getPseudoClass("incorrect");
     private static final PseudoClass HINT = PseudoClass.getPseudoClass("hint");
@@ -21,6 +21,7 @@ public class SudokuCell extends ComboBox<Integer> {
     private final int column, row;
     private final Collection<ValueChangeListener> valueChangeListeners = new CopyOnWriteArrayList<>();
     private final Collection<DomainChangeListener> domainChangeListeners = new CopyOnWriteArrayList<>();
+    private int mask = (1 << 9) - 1;
     private boolean deafen;
     SudokuCell(int column, int row) {
         getStyleClass().add(SUDOKU_CELL_CLASS);
@@ -30,58 +31,61 @@ public class SudokuCell extends ComboBox<Integer> {
         this.row = row;
         this.domain.addAll(null, 1, 2, 3, 4, 5, 6, 7, 8, 9);
 
-        setItems(new SortedList<>(domain, Comparator.comparingInt(i -> i == null ? 0 : i)));
+        setItems(domain);
         getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
             if (!deafen) {
                 valueChangeListeners.forEach(l -> l.changed(this, oldVal, newVal));
             }
             pseudoClassStateChanged(HINT, false);
         });
-
-        domain.addListener((ListChangeListener<Integer>) c -> {
-            c.next();
-            if (!deafen) {
-                List<Integer> newDomain = new ArrayList<>(c.getList());
-                List<Integer> oldDomain = new ArrayList<>(newDomain);
-                if (c.wasAdded()) {
-                    oldDomain.removeAll(c.getAddedSubList());
-                } else if (c.wasRemoved()) {
-                    oldDomain.addAll(c.getRemoved());
-                }
-                oldDomain.sort(Comparator.comparingInt(i -> i == null ? 0 : i));
-                newDomain.sort(Comparator.comparingInt(i -> i == null ? 0 : i));
-                domainChangeListeners.forEach(l -> l.changed(this, oldDomain, newDomain));
-            }
-            pseudoClassStateChanged(INCORRECT, c.getList().size() == 1);
-        });
         setCenterShape(true);
     }
 
-    public void reset() {
-        deafen();
-        setValue(null);
-        resetDomain();
-        pseudoClassStateChanged(HINT, false);
-        pseudoClassStateChanged(INCORRECT, false);
-        undeafen();
-    }
-
     public ObservableList<Integer> getDomain() {
         return domain;
     }
 
-    public void resetDomain() {
-        setDomain(Arrays.asList(null, 1, 2, 3, 4, 5, 6, 7, 8, 9));
-    }
-
-    public void setDomain(Collection<Integer> domain) {
-        Integer selection = getValue();
-        this.domain.clear();
-        if (!domain.contains(null)) {
-            this.domain.add(null);
+    /**
+     * Offers the values of a candidate mask, keeping the current value even if it is no longer among them.
+     * The choices are replaced in one list change and domain listeners hear of it once.
+     */
+    public void setDomain(int mask) {
+        if (mask == this.mask) {
+            return;
+        }
+        //the old domain is only copied for listeners that will hear of it
+        boolean report = !deafen && !domainChangeListeners.isEmpty();
+        List<Integer> oldDomain = report ? new ArrayList<>(domain) : null;
+        List<Integer> newDomain = new ArrayList<>(10);
+        newDomain.add(null);
+        for (int value = 1; value <= 9; value++) {
+            if ((mask & 1 << (value - 1)) != 0) {
+                newDomain.add(value);
+            }
         }
-        this.domain.addAll(domain);
+        this.mask = mask;
+        boolean wasDeaf = deafen;
+        Integer selection = getValue();
+        deafen = true;
+        domain.setAll(newDomain);
         setValue(selection);
+        deafen = wasDeaf;
+        pseudoClassStateChanged(INCORRECT, mask == 0);
+        if (report) {
+            domainChangeListeners.forEach(l -> l.changed(this, oldDomain, newDomain));
+        }
+    }
+
+    /**
+     * Shows a value of the game without reporting it as a choice
+     *
+     * @param value the value, 0 for an empty cell
+     */
+    public void showValue(int value) {
+        boolean wasDeaf = deafen;
+        deafen = true;
+        setValue(value == 0 ? null : value);
+        deafen = wasDeaf;
     }
 
     public int getColumn() {
@@ -137,7 +141,7 @@ public class SudokuCell extends ComboBox<Integer> {
     }
 
     public boolean isInvalid() {
-        return domain.size() == 1;
+        return mask == 0;
     }
 
     @Override
@@ -0,0 +1,167 @@
+package sudoku.ui;
+
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import sudoku.data.Board;
+import sudoku.data.GameModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Binds the cells of the board to a {@link GameModel}: a choice made in a cell is played as a move, and every change
+ * of the game is shown in its cell. All the state lives in the game, so it can be used without the JavaFX toolkit.
+ */
+public class SudokuModel implements GameModel.Listener {
+    private final GameModel game = new GameModel();
+    private final SudokuCell[] cells = new SudokuCell[81];
+    private final ReadOnlyBooleanWrapper undoEmpty = new ReadOnlyBooleanWrapper(true);
+    private final ReadOnlyBooleanWrapper redoEmpty = new ReadOnlyBooleanWrapper(true);
+    /**
+     * Set while the whole game is replaced, whose domain changes are not reported by the cells
+     */
+    private boolean replacing;
+
+    public SudokuModel() {
+        SudokuCell.ValueChangeListener mover = (cell, oldValue, newValue) ->
+                game.set(cell.getColumn(), cell.getRow(), newValue == null ? 0 : newValue);
+        for (int c = 0; c < 9; c++) {
+            for (int r = 0; r < 9; r++) {
+                SudokuCell cell = new SudokuCell(c, r);
+                cell.addListener(mover);
+                cells[r * 9 + c] = cell;
+            }
+        }
+        game.addListener(this);
+    }
+
+    public GameModel game() {
+        return game;
+    }
+
+    public SudokuCell get(int c, int r) {
+        return cells[r * 9 + c];
+    }
+
+    public Optional<SudokuCell> getMin(Predicate<SudokuCell> filter, Comparator<SudokuCell> comparator) {
+        return Stream.of(cells).filter(cell -> filter == null || filter.test(cell)).min(comparator);
+    }
+
+    public Optional<SudokuCell> getMin(Comparator<SudokuCell> comparator) {
+        return getMin(null, comparator);
+    }
+
+    public Optional<SudokuCell> getMax(Comparator<SudokuCell> comparator) {
+        return Stream.of(cells).max(comparator);
+    }
+
+    public void reset() {
+        replace(game::reset);
+    }
+
+    public ReadOnlyBooleanProperty undoIsEmpty() {
+        return undoEmpty.getReadOnlyProperty();
+    }
+
+    public void undo() {
+        game.undo();
+    }
+
+    public ReadOnlyBooleanProperty redoIsEmpty() {
+        return redoEmpty.getReadOnlyProperty();
+    }
+
+    public void redo() {
+        game.redo();
+    }
+
+    public boolean isComplete() {
+        return game.isComplete();
+    }
+
+    public void restrictDomains(boolean value) {
+        replace(() -> game.restrictDomains(value));
+    }
+
+    public void save(File saveFile) throws IOException {
+        game.save(saveFile.toPath());
+    }
+
+    public void load(File loadFile) throws IOException {
+        replacing = true;
+        try {
+            game.load(loadFile.toPath());
+        } finally {
+            replacing = false;
+        }
+    }
+
+    public void fromMatrix(int[][] matrix) {
+        Objects.requireNonNull(matrix, "matrix");
+        replace(() -> game.fromMatrix(matrix));
+    }
+
+    public void fromBoard(Board board) {
+        Objects.requireNonNull(board, "board");
+        replace(() -> game.fromBoard(board));
+    }
+
+    public Board toBoard() {
+        return game.toBoard();
+    }
+
+    public int[][] toMatrix() {
+        return game.toMatrix();
+    }
+
+    @Override
+    public void valueChanged(int index, int oldValue, int newValue) {
+        SudokuCell cell = cells[index];
+        Integer shown = cell.getValue();
+        //a choice made in the cell comes back as a move that is already shown
+        if ((shown == null ? 0 : shown) != newValue) {
+            cell.showValue(newValue);
+        }
+    }
+
+    @Override
+    public void domainChanged(int index, int oldDomain, int newDomain) {
+        SudokuCell cell = cells[index];
+        if (replacing) {
+            cell.deafen();
+            cell.setDomain(newDomain);
+            cell.undeafen();
+        } else {
+            cell.setDomain(newDomain);
+        }
+    }
+
+    @Override
+    public void lockChanged(int index, boolean locked) {
+        if (locked) {
+            cells[index].lock();
+        } else {
+            cells[index].unlock();
+        }
+    }
+
+    @Override
+    public void historyChanged() {
+        undoEmpty.set(!game.canUndo());
+        redoEmpty.set(!game.canRedo());
+    }
+
+    private void replace(Runnable change) {
+        replacing = true;
+        try {
+            change.run();
+        } finally {
+            replacing = false;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package sudoku.ui;
 
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -8,15 +9,27 @@ import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import sudoku.data.SudokuCell;
-import sudoku.data.SudokuModel;
-import sudoku.solvers.dfs.DepthFirstSearchSolver;
+import sudoku.data.Board;
+import sudoku.logic.LogicEngine;
+import sudoku.logic.Technique;
+import sudoku.solvers.Solver;
+import sudoku.solvers.SolverStats;
+import sudoku.solvers.bitmask.BitmaskSolver;
 
 import java.io.File;
-import java.util.Comparator;
-import java.util.List;
-
-public class SudokuView extends VBox implements SudokuCell.ValueChangeListener, SudokuCell.DomainChangeListener {
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SudokuView extends VBox {
+    private static final long SOLVE_TIMEOUT_SECONDS = 30;
+    private final Label status = new Label();
+    private CompletableFuture<Board> solving;
     private SudokuCell lastHint;
     private SudokuModel model = new SudokuModel();
     private final Stage stage;
@@ -48,12 +61,11 @@ public class SudokuView extends VBox implements SudokuCell.ValueChangeListener,
                     for (int ir = 0; ir < 3; ir++) {
                         SudokuCell cell = model.get(c * 3 + ic, r * 3 + ir);
                         pane.add(cell, ic, ir);
-                        cell.addListener((SudokuCell.ValueChangeListener) this);
-                        cell.addListener((SudokuCell.DomainChangeListener) this);
                     }
                 }
             }
         }
+        getChildren().add(status);
         autosize();
     }
 
@@ -76,7 +88,12 @@ public class SudokuView extends VBox implements SudokuCell.ValueChangeListener,
             FileChooser chooser = getChooser();
             File saveFile = chooser.showSaveDialog(stage);
             if (saveFile != null) {
-                model.save(saveFile);
+                try {
+                    model.save(saveFile);
+                } catch (IOException ex) {
+                    new Alert(Alert.AlertType.ERROR, "Could not save " + saveFile.getName() + ": " + ex.getMessage())
+                            .show();
+                }
             }
         });
 
@@ -85,7 +102,12 @@ public class SudokuView extends VBox implements SudokuCell.ValueChangeListener,
             FileChooser chooser = getChooser();
             File loadFile = chooser.showOpenDialog(stage);
             if (loadFile != null) {
-                model.load(loadFile);
+                try {
+                    model.load(loadFile);
+                } catch (IOException ex) {
+                    new Alert(Alert.AlertType.ERROR, "Could not load " + loadFile.getName() + ": " + ex.getMessage())
+                            .show();
+                }
             }
         });
 
@@ -108,15 +130,24 @@ public class SudokuView extends VBox implements SudokuCell.ValueChangeListener,
         limitSelections.selectedProperty().addListener((observable, oldValue, newValue) -> model.restrictDomains(newValue));
 
         MenuItem hint = new MenuItem("Hint");
-        hint.setOnAction(e -> model.getMin(cell -> cell.getValue() == null || cell.getDomain().size() > 2,
-                Comparator.comparingInt(cell -> cell.getDomain().size()))
-                .ifPresent(c -> {
-                    if (lastHint != null) {
-                        lastHint.setHint(false);
-                    }
-                    c.setHint(true);
-                    lastHint = c;
-                }));
+        hint.setOnAction(e -> {
+            if (lastHint != null) {
+                lastHint.setHint(false);
+                lastHint = null;
+            }
+            //the engine deduces from the current values, so a wrong entry can leave it without a next step
+            LogicEngine engine = new LogicEngine();
+            int cell = engine.load(model.toBoard()) ? engine.nextPlacement() : -1;
+            if (cell < 0) {
+                status.setText("No logical next step found");
+                return;
+            }
+            lastHint = model.get(Board.COLUMN[cell], Board.ROW[cell]);
+            lastHint.setHint(true);
+            Technique hardest = engine.hardest();
+            status.setText(hardest == engine.lastTechnique() ? "Hint: " + hardest
+                    : "Hint: " + engine.lastTechnique() + " (after " + hardest + ")");
+        });
 
 
         MenuItem check = new MenuItem("Check");
@@ -124,25 +155,64 @@ public class SudokuView extends VBox implements SudokuCell.ValueChangeListener,
             Dialog dialog;
             if (model.isComplete()) {
                 dialog = new Alert(Alert.AlertType.CONFIRMATION, "Game is complete and valid!");
-                System.out.println("Model is complete");
             } else {
-                dialog = new Alert(Alert.AlertType.ERROR, "Game is incomplete or invalid!");
-                System.out.println("Model is not complete");
+                int conflict = model.game().firstConflict();
+                dialog = new Alert(Alert.AlertType.ERROR, conflict < 0 ? "Game is incomplete!"
+                        : "Game is invalid! Column " + (Board.COLUMN[conflict] + 1) + ", row "
+                        + (Board.ROW[conflict] + 1) + " repeats a value");
             }
             dialog.show();
         });
 
         MenuItem solve = new MenuItem("Solve");
+        MenuItem cancelSolve = new MenuItem("Cancel Solve");
+        cancelSolve.setDisable(true);
         solve.setOnAction(e -> {
-            //TODO: Show some indication of progress?
-            DepthFirstSearchSolver s = new DepthFirstSearchSolver(model.toMatrix());
+            solve.setDisable(true);
+            cancelSolve.setDisable(false);
+            status.setText("Solving...");
+            Solver s = new BitmaskSolver(model.toBoard());
+            s.setStatistics(true);
             long start = System.currentTimeMillis();
-            s.findSingleSolution();
-            System.out.println(System.currentTimeMillis() - start + "ms to solve");
-            model.fromMatrix(s.getSolution());
+            //Progress arrives on the solving thread, only one update is queued on the FX thread at a time
+            AtomicLong visited = new AtomicLong();
+            AtomicBoolean updateQueued = new AtomicBoolean();
+            solving = s.solveAsync(ForkJoinPool.commonPool(), SOLVE_TIMEOUT_SECONDS, TimeUnit.SECONDS, nodes -> {
+                visited.set(nodes);
+                if (updateQueued.compareAndSet(false, true)) {
+                    Platform.runLater(() -> {
+                        updateQueued.set(false);
+                        status.setText("Solving... " + visited.get() + " nodes searched");
+                    });
+                }
+            });
+            solving.whenComplete((solution, error) -> Platform.runLater(() -> {
+                long elapsed = System.currentTimeMillis() - start;
+                solve.setDisable(false);
+                cancelSolve.setDisable(true);
+                if (error instanceof CancellationException) {
+                    status.setText("Solve cancelled");
+                } else if (error instanceof TimeoutException) {
+                    status.setText("Gave up after " + SOLVE_TIMEOUT_SECONDS + "s");
+                } else if (error != null) {
+                    status.setText("Solve failed: " + error);
+                } else if (solution == null) {
+                    status.setText("No solution exists");
+                } else {
+                    SolverStats stats = s.statistics();
+                    status.setText("Solved in " + elapsed + "ms, " + stats.nodes() + " nodes, "
+                            + stats.backtracks() + " backtracks, depth " + stats.maxDepth());
+                    model.fromBoard(solution);
+                }
+            }));
+        });
+        cancelSolve.setOnAction(e -> {
+            if (solving != null) {
+                solving.cancel(true);
+            }
         });
 
-        help.getItems().addAll(undo, redo, new SeparatorMenuItem(), limitSelections, hint, check, solve);
+        help.getItems().addAll(undo, redo, new SeparatorMenuItem(), limitSelections, hint, check, solve, cancelSolve);
         return help;
     }
 
@@ -156,14 +226,4 @@ public class SudokuView extends VBox implements SudokuCell.ValueChangeListener,
         }
         return chooser;
     }
-
-    @Override
-    public void changed(SudokuCell cell, Integer oldValue, Integer newValue) {
-        System.out.printf("%s : Previous=%s : Current=%s\n", cell, oldValue, newValue);
-    }
-
-    @Override
-    public void changed(SudokuCell cell, List<Integer> oldDomain, List<Integer> newDomain) {
-        System.out.printf("%s : Previous=%s : Current=%s\n", cell, oldDomain, newDomain);
-    }
 }
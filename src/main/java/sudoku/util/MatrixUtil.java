@@ -8,7 +8,11 @@ public class MatrixUtil {
             dest = new int[source.length][];
         }
         for (int i = 0; i < source.length; i++) {
-            dest[i] = Arrays.copyOf(source[i], source[i].length);
+            if (dest[i] != null && dest[i].length == source[i].length) {
+                System.arraycopy(source[i], 0, dest[i], 0, source[i].length);
+            } else {
+                dest[i] = Arrays.copyOf(source[i], source[i].length);
+            }
         }
         return dest;
     }
@@ -0,0 +1,105 @@
+package sudoku.variants;
+
+import sudoku.data.Geometry;
+import sudoku.solvers.dlx.ConstraintProvider;
+import sudoku.solvers.dlx.ExactCover;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The cages of a Killer Sudoku: groups of cells whose values differ and add up to the cage's sum.
+ * <p>
+ * Every cage is a group of the cover with a row per ordered filling of distinct values of the right sum, so the sums
+ * are never checked during the search: a row either fits the other constraints or is covered away. The number of rows
+ * grows quickly with the size of a cage, to 9! for a whole 9x9 unit, so large cages are best left to a
+ * {@link RegionConstraint}.
+ */
+public final class KillerConstraint implements ConstraintProvider {
+    private final Geometry geometry;
+    private final List<Cage> cages;
+
+    /**
+     * @throws IllegalArgumentException if a cage leaves the board
+     */
+    public KillerConstraint(Geometry geometry, List<Cage> cages) {
+        this.geometry = geometry;
+        this.cages = new ArrayList<>(cages);
+        for (Cage cage : cages) {
+            for (int cell : cage.cells) {
+                if (cell < 0 || cell >= geometry.cells) {
+                    throw new IllegalArgumentException("No cell " + cell + " on a " + geometry + " board");
+                }
+            }
+        }
+    }
+
+    public List<Cage> cages() {
+        return new ArrayList<>(cages);
+    }
+
+    @Override
+    public void addColumns(ExactCover cover) {
+    }
+
+    @Override
+    public void addPlacement(ExactCover cover, int cell, int value) {
+    }
+
+    @Override
+    public void addGroups(ExactCover cover) {
+        for (Cage cage : cages) {
+            cover.addGroup(cage.cells, fillings(cage.cells.length, cage.sum, geometry.size));
+        }
+    }
+
+    /**
+     * @return every ordered choice of count distinct values from 1 to size adding up to sum
+     */
+    static int[][] fillings(int count, int sum, int size) {
+        List<int[]> fillings = new ArrayList<>();
+        fill(new int[count], 0, sum, 0, size, fillings);
+        return fillings.toArray(new int[0][]);
+    }
+
+    private static void fill(int[] filling, int i, int left, int used, int size, List<int[]> fillings) {
+        int remaining = filling.length - i;
+        if (remaining == 0) {
+            if (left == 0) {
+                fillings.add(filling.clone());
+            }
+            return;
+        }
+        //the smallest and largest sums of the remaining cells, ignoring the values used
+        if (left < remaining * (remaining + 1) / 2 || left > remaining * (2 * size - remaining + 1) / 2) {
+            return;
+        }
+        for (int value = 1; value <= size && value <= left; value++) {
+            if ((used & 1 << value) == 0) {
+                filling[i] = value;
+                fill(filling, i + 1, left - value, used | 1 << value, size, fillings);
+            }
+        }
+    }
+
+    /**
+     * Cells whose values differ and add up to the sum
+     */
+    public static final class Cage {
+        final int sum;
+        final int[] cells;
+
+        public Cage(int sum, int... cells) {
+            this.sum = sum;
+            this.cells = cells.clone();
+        }
+
+        public int sum() {
+            return sum;
+        }
+
+        public int[] cells() {
+            return cells.clone();
+        }
+    }
+}
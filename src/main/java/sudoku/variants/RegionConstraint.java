@@ -0,0 +1,85 @@
+package sudoku.variants;
+
+import sudoku.data.Geometry;
+import sudoku.solvers.dlx.ConstraintProvider;
+import sudoku.solvers.dlx.ExactCover;
+
+import java.util.Arrays;
+
+/**
+ * Regions of cells that never repeat a value: rows, columns, boxes, diagonals, windows or jigsaw pieces.
+ * A region of as many cells as there are values gets a primary column per value, as it must hold every value once.
+ * A smaller region gets secondary columns, which only keep its values apart.
+ */
+public final class RegionConstraint implements ConstraintProvider {
+    private final int size;
+    private final int[][] regions;
+    /**
+     * The regions of every cell
+     */
+    private final int[][] regionsOf;
+    private final int[] first;
+
+    /**
+     * @param regions the cell indices of every region
+     * @throws IllegalArgumentException if a region has more cells than values, or repeats or leaves the board
+     */
+    public RegionConstraint(Geometry geometry, int[][] regions) {
+        size = geometry.size;
+        this.regions = new int[regions.length][];
+        int[] counts = new int[geometry.cells];
+        for (int r = 0; r < regions.length; r++) {
+            int[] region = regions[r];
+            if (region.length > size) {
+                throw new IllegalArgumentException("Region " + r + " has " + region.length + " cells, more than the "
+                        + size + " values");
+            }
+            this.regions[r] = region.clone();
+            for (int i = 0; i < region.length; i++) {
+                int cell = region[i];
+                if (cell < 0 || cell >= geometry.cells) {
+                    throw new IllegalArgumentException("No cell " + cell + " on a " + geometry + " board");
+                }
+                for (int j = 0; j < i; j++) {
+                    if (region[j] == cell) {
+                        throw new IllegalArgumentException("Region " + r + " has cell " + cell + " twice");
+                    }
+                }
+                counts[cell]++;
+            }
+        }
+        regionsOf = new int[geometry.cells][];
+        for (int cell = 0; cell < geometry.cells; cell++) {
+            regionsOf[cell] = new int[counts[cell]];
+        }
+        Arrays.fill(counts, 0);
+        for (int r = 0; r < regions.length; r++) {
+            for (int cell : regions[r]) {
+                regionsOf[cell][counts[cell]++] = r;
+            }
+        }
+        first = new int[regions.length];
+    }
+
+    public int[][] regions() {
+        int[][] copy = new int[regions.length][];
+        for (int r = 0; r < regions.length; r++) {
+            copy[r] = regions[r].clone();
+        }
+        return copy;
+    }
+
+    @Override
+    public void addColumns(ExactCover cover) {
+        for (int r = 0; r < regions.length; r++) {
+            first[r] = regions[r].length == size ? cover.addPrimary(size) : cover.addSecondary(size);
+        }
+    }
+
+    @Override
+    public void addPlacement(ExactCover cover, int cell, int value) {
+        for (int r : regionsOf[cell]) {
+            cover.cover(first[r] + value - 1);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package sudoku.variants;
+
+import sudoku.data.Geometry;
+import sudoku.solvers.dlx.ConstraintProvider;
+import sudoku.solvers.dlx.ExactCover;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The constraint providers of the supported Sudoku variants, to build an {@link ExactCover} or an
+ * {@link sudoku.solvers.dlx.ExactCoverSolver} from
+ */
+public final class Variants {
+    private Variants() {
+    }
+
+    /**
+     * Rows, columns and boxes
+     */
+    public static ConstraintProvider[] standard(Geometry geometry) {
+        return new ConstraintProvider[]{rows(geometry), columns(geometry), boxes(geometry)};
+    }
+
+    /**
+     * The standard rules, and both main diagonals hold every value once
+     */
+    public static ConstraintProvider[] xDiagonal(Geometry geometry) {
+        return with(standard(geometry), new RegionConstraint(geometry, diagonals(geometry)));
+    }
+
+    /**
+     * The standard rules, and the windows between the boxes, one cell in from the boxes' corners, hold every value
+     * once
+     */
+    public static ConstraintProvider[] windoku(Geometry geometry) {
+        return with(standard(geometry), new RegionConstraint(geometry, windows(geometry)));
+    }
+
+    /**
+     * Rows and columns, with irregular pieces instead of boxes
+     *
+     * @param pieces the piece of every cell, numbered from 0
+     * @throws IllegalArgumentException if the pieces are not all of the size of a unit
+     */
+    public static ConstraintProvider[] jigsaw(Geometry geometry, int[] pieces) {
+        return new ConstraintProvider[]{rows(geometry), columns(geometry),
+                new RegionConstraint(geometry, pieces(geometry, pieces))};
+    }
+
+    /**
+     * The standard rules, and the cages add up to their sums without repeating a value
+     */
+    public static ConstraintProvider[] killer(Geometry geometry, List<KillerConstraint.Cage> cages) {
+        return with(standard(geometry), new KillerConstraint(geometry, cages));
+    }
+
+    public static RegionConstraint rows(Geometry geometry) {
+        return new RegionConstraint(geometry, Arrays.copyOfRange(geometry.units, 0, geometry.size));
+    }
+
+    public static RegionConstraint columns(Geometry geometry) {
+        return new RegionConstraint(geometry, Arrays.copyOfRange(geometry.units, geometry.size, 2 * geometry.size));
+    }
+
+    public static RegionConstraint boxes(Geometry geometry) {
+        return new RegionConstraint(geometry, Arrays.copyOfRange(geometry.units, 2 * geometry.size,
+                3 * geometry.size));
+    }
+
+    static int[][] diagonals(Geometry geometry) {
+        int size = geometry.size;
+        int[][] diagonals = new int[2][size];
+        for (int i = 0; i < size; i++) {
+            diagonals[0][i] = i * size + i;
+            diagonals[1][i] = i * size + size - 1 - i;
+        }
+        return diagonals;
+    }
+
+    static int[][] windows(Geometry geometry) {
+        int box = geometry.box;
+        int[][] windows = new int[(box - 1) * (box - 1)][geometry.size];
+        for (int w = 0; w < windows.length; w++) {
+            int top = 1 + w / (box - 1) * (box + 1);
+            int left = 1 + w % (box - 1) * (box + 1);
+            for (int i = 0; i < geometry.size; i++) {
+                windows[w][i] = (top + i / box) * geometry.size + left + i % box;
+            }
+        }
+        return windows;
+    }
+
+    static int[][] pieces(Geometry geometry, int[] pieces) {
+        if (pieces.length != geometry.cells) {
+            throw new IllegalArgumentException("Expected a piece for each of the " + geometry.cells + " cells");
+        }
+        int[][] regions = new int[geometry.size][geometry.size];
+        int[] counts = new int[geometry.size];
+        for (int cell = 0; cell < pieces.length; cell++) {
+            int piece = pieces[cell];
+            if (piece < 0 || piece >= geometry.size || counts[piece] == geometry.size) {
+                throw new IllegalArgumentException("Pieces must be numbered from 0 to " + (geometry.size - 1)
+                        + " and have " + geometry.size + " cells each");
+            }
+            regions[piece][counts[piece]++] = cell;
+        }
+        return regions;
+    }
+
+    private static ConstraintProvider[] with(ConstraintProvider[] providers, ConstraintProvider extra) {
+        ConstraintProvider[] all = Arrays.copyOf(providers, providers.length + 1);
+        all[providers.length] = extra;
+        return all;
+    }
+}
@@ -0,0 +1,244 @@
+package sudoku.data;
+
+import sudoku.solvers.bitmask.BitmaskSolver;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks {@link Canonicalizer} against the smallest board over every transformation, found by brute force, on random
+ * 4x4 puzzles and on a few sparse 9x9 puzzles, whose ties are the hard case. Then checks that random transformations of
+ * 9x9 puzzles share one canonical form, and that every returned {@link Transform} maps the puzzle to its canonical form
+ * and back. Exits with status 1 on the first mismatch.
+ * <p>
+ * Usage: CanonicalizerCheck [-boards n] [-brute n] [-seed n]
+ */
+public final class CanonicalizerCheck {
+    public static void main(String[] args) {
+        int boards = 2000;
+        int brute = 3;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-boards":
+                    boards = Integer.parseInt(args[++i]);
+                    break;
+                case "-brute":
+                    brute = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Usage: CanonicalizerCheck [-boards n] [-brute n] [-seed n]");
+                    System.exit(2);
+            }
+        }
+        Random random = new Random(seed);
+        long start = System.nanoTime();
+        Geometry small = Geometry.of(2);
+        Canonicalizer canonicalizer = new Canonicalizer(small);
+        BitmaskSolver solver = new BitmaskSolver(new Board(small));
+        solver.setRandom(random);
+        Board scratch = new Board(small);
+        for (int b = 0; b < boards; b++) {
+            expectMinimum(canonicalizer, puzzle(solver, random.nextInt(small.cells + 1), random));
+            //boards repeating a digit in a unit are not puzzles, and only their transform has to be exact
+            for (int i = 0; i < small.cells; i++) {
+                scratch.set(i, random.nextInt(small.size + 1));
+            }
+            expectTransform(canonicalizer, scratch, new Board(small));
+        }
+        System.out.printf("%d 4x4 puzzles match the brute force minimum in %.3fs%n",
+                boards, (System.nanoTime() - start) / 1e9);
+
+        canonicalizer = new Canonicalizer();
+        solver = new BitmaskSolver(new Board());
+        solver.setRandom(random);
+        for (int b = 0; b < brute; b++) {
+            expectMinimum(canonicalizer, puzzle(solver, 8 + random.nextInt(10), random));
+        }
+        System.out.printf("%d sparse 9x9 puzzles match the brute force minimum, %.3fs in total%n",
+                brute, (System.nanoTime() - start) / 1e9);
+
+        Board canonical = new Board();
+        Board transformed = new Board();
+        Board other = new Board();
+        for (int b = 0; b < boards; b++) {
+            Board puzzle = puzzle(solver, 17 + random.nextInt(30), random);
+            expectTransform(canonicalizer, puzzle, canonical);
+            for (int t = 0; t < 4; t++) {
+                randomTransform(Geometry.STANDARD, random).apply(puzzle, transformed);
+                expectTransform(canonicalizer, transformed, other);
+                if (!other.equals(canonical)) {
+                    fail("Canonical form " + other + " of " + transformed + " differs from " + canonical + " of "
+                            + puzzle);
+                }
+            }
+        }
+        System.out.printf("%d 9x9 puzzles share their canonical form with 4 random transforms each, %.3fs in total%n",
+                boards, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void expectTransform(Canonicalizer canonicalizer, Board puzzle, Board canonical) {
+        Transform transform = canonicalizer.canonicalize(puzzle, canonical);
+        Board mapped = transform.apply(puzzle, new Board(puzzle.geometry()));
+        if (!mapped.equals(canonical)) {
+            fail("The transform maps " + puzzle + " to " + mapped + ", not its canonical form " + canonical);
+        }
+        Board back = transform.invert(canonical, new Board(puzzle.geometry()));
+        if (!back.equals(puzzle)) {
+            fail("The transform maps the canonical form " + canonical + " back to " + back + ", not " + puzzle);
+        }
+    }
+
+    private static void expectMinimum(Canonicalizer canonicalizer, Board board) {
+        Board canonical = new Board(board.geometry());
+        expectTransform(canonicalizer, board, canonical);
+        Board minimum = minimum(board);
+        if (!canonical.equals(minimum)) {
+            fail("Canonical form " + canonical + " of " + board + ", the smallest is " + minimum);
+        }
+    }
+
+    /**
+     * @return the smallest board over every transformation, with digits labeled in order of first appearance
+     */
+    private static Board minimum(Board board) {
+        Geometry geometry = board.geometry();
+        int box = geometry.box;
+        int size = geometry.size;
+        int[][] orders = permutations(box);
+        int[] best = null;
+        int[] candidate = new int[geometry.cells];
+        int[] labels = new int[size + 1];
+        int[] rows = new int[size];
+        int[] columns = new int[size];
+        //one permutation of the bands and one within every band, likewise for stacks
+        int[] choice = new int[2 * (box + 1)];
+        for (int transposed = 0; transposed < 2; transposed++) {
+            Arrays.fill(choice, 0);
+            do {
+                order(orders, choice, 0, rows);
+                order(orders, choice, box + 1, columns);
+                Arrays.fill(labels, 0);
+                int next = 1;
+                int cmp = best == null ? -1 : 0;
+                for (int r = 0; r < size && cmp <= 0; r++) {
+                    for (int c = 0; c < size && cmp <= 0; c++) {
+                        int value = transposed == 1 ? board.get(rows[r], columns[c]) : board.get(columns[c], rows[r]);
+                        if (value != 0 && labels[value] == 0) {
+                            labels[value] = next++;
+                        }
+                        int i = geometry.index(c, r);
+                        candidate[i] = labels[value];
+                        if (cmp == 0) {
+                            cmp = Integer.compare(candidate[i], best[i]);
+                        }
+                    }
+                }
+                if (cmp < 0) {
+                    best = candidate.clone();
+                }
+            } while (advance(choice, orders.length));
+        }
+        Board minimum = new Board(geometry);
+        for (int i = 0; i < geometry.cells; i++) {
+            minimum.set(i, best[i]);
+        }
+        return minimum;
+    }
+
+    /**
+     * Writes the lines chosen by the band permutation at choice[offset] and the permutations within each band after it
+     */
+    private static void order(int[][] orders, int[] choice, int offset, int[] lines) {
+        int box = orders[0].length;
+        int[] bands = orders[choice[offset]];
+        for (int b = 0; b < box; b++) {
+            int[] within = orders[choice[offset + 1 + b]];
+            for (int i = 0; i < box; i++) {
+                lines[b * box + i] = bands[b] * box + within[i];
+            }
+        }
+    }
+
+    private static boolean advance(int[] counter, int radix) {
+        for (int i = 0; i < counter.length; i++) {
+            if (++counter[i] < radix) {
+                return true;
+            }
+            counter[i] = 0;
+        }
+        return false;
+    }
+
+    private static int[][] permutations(int n) {
+        if (n == 1) {
+            return new int[][]{{0}};
+        }
+        int[][] smaller = permutations(n - 1);
+        int[][] result = new int[smaller.length * n][];
+        int k = 0;
+        for (int[] p : smaller) {
+            for (int at = 0; at < n; at++) {
+                int[] q = new int[n];
+                for (int i = 0, j = 0; i < n; i++) {
+                    q[i] = i == at ? n - 1 : p[j++];
+                }
+                result[k++] = q;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return a transformation chosen uniformly at random, digit relabeling included
+     */
+    public static Transform randomTransform(Geometry geometry, Random random) {
+        int[][] orders = permutations(geometry.box);
+        int[] choice = new int[2 * (geometry.box + 1)];
+        for (int i = 0; i < choice.length; i++) {
+            choice[i] = random.nextInt(orders.length);
+        }
+        int[] rows = new int[geometry.size];
+        int[] columns = new int[geometry.size];
+        order(orders, choice, 0, rows);
+        order(orders, choice, geometry.box + 1, columns);
+        int[] digits = new int[geometry.size + 1];
+        for (int v = 1; v <= geometry.size; v++) {
+            digits[v] = v;
+        }
+        for (int v = geometry.size; v > 1; v--) {
+            int k = 1 + random.nextInt(v);
+            int swap = digits[v];
+            digits[v] = digits[k];
+            digits[k] = swap;
+        }
+        return new Transform(geometry, random.nextBoolean(), rows, columns, digits);
+    }
+
+    /**
+     * @return a random solution with all but the given number of clues removed
+     */
+    private static Board puzzle(BitmaskSolver solver, int clues, Random random) {
+        Geometry geometry = solver.geometry();
+        Board solution = new Board(geometry);
+        solver.reset(new Board(geometry));
+        solver.forEachSolution(1, solution::copyFrom);
+        int removed = 0;
+        while (removed < geometry.cells - clues) {
+            int i = random.nextInt(geometry.cells);
+            if (solution.get(i) != 0) {
+                solution.set(i, 0);
+                removed++;
+            }
+        }
+        return solution;
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,140 @@
+package sudoku.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fuzzes {@link History} against a plain list of every board state it should be able to return to: random moves,
+ * undos, redos, seeks of any distance and the odd clear, on histories small enough to wrap around and large enough to
+ * hold several checkpoints. After every operation the board and the undo and redo counts must match the list, and an
+ * undo, redo or seek past either end must be refused. Exits with status 1 on the first mismatch.
+ * <p>
+ * Usage: HistoryCheck [-capacities n] [-operations n] [-seed n]
+ */
+public final class HistoryCheck {
+    public static void main(String[] args) {
+        int capacities = 200;
+        int operations = 3000;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-capacities":
+                    capacities = Integer.parseInt(args[++i]);
+                    break;
+                case "-operations":
+                    operations = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Usage: HistoryCheck [-capacities n] [-operations n] [-seed n]");
+                    System.exit(2);
+            }
+        }
+        Random random = new Random(seed);
+        long start = System.nanoTime();
+        long seeks = 0;
+        for (int c = 0; c < capacities; c++) {
+            //every capacity around the first checkpoints, then random ones spanning a few intervals
+            int capacity = c < 3 * History.CHECKPOINT_INTERVAL ? c + 1
+                    : 1 + random.nextInt(8 * History.CHECKPOINT_INTERVAL);
+            seeks += fuzz(capacity, operations, random);
+        }
+        System.out.printf("%d capacities agree with the list of boards over %d operations each (%d seeks) in %.3fs%n",
+                capacities, operations, seeks, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * @return the number of seeks made
+     */
+    private static long fuzz(int capacity, int operations, Random random) {
+        Geometry geometry = Geometry.STANDARD;
+        History history = new History(geometry, capacity);
+        Board board = new Board(geometry);
+        history.clear(board);
+        //the boards from the oldest position that can be undone to the newest that can be redone
+        List<Board> states = new ArrayList<>();
+        states.add(new Board(board));
+        int position = 0;
+        long seeks = 0;
+        for (int op = 0; op < operations; op++) {
+            String what;
+            int pick = random.nextInt(1000);
+            if (pick < 550) {
+                int index = random.nextInt(geometry.cells);
+                int value = (board.get(index) + 1 + random.nextInt(geometry.size)) % (geometry.size + 1);
+                what = "setting " + index + " to " + value;
+                int move = History.move(index, board.get(index), value);
+                board.set(index, value);
+                history.record(move, board);
+                states.subList(position + 1, states.size()).clear();
+                states.add(new Board(board));
+                position++;
+                if (states.size() > capacity + 1) {
+                    states.remove(0);
+                    position--;
+                }
+            } else if (pick < 670) {
+                what = "undoing";
+                if (position == 0) {
+                    expectRefused(() -> history.undo(), capacity, op, what);
+                } else {
+                    int move = history.undo();
+                    board.set(History.index(move), History.oldValue(move));
+                    position--;
+                }
+            } else if (pick < 790) {
+                what = "redoing";
+                if (position == states.size() - 1) {
+                    expectRefused(() -> history.redo(), capacity, op, what);
+                } else {
+                    int move = history.redo();
+                    board.set(History.index(move), History.newValue(move));
+                    position++;
+                }
+            } else if (pick < 999) {
+                //anywhere in the history, or a few checkpoint intervals either way, one past the ends included
+                int steps = random.nextBoolean() ? -position - 1 + random.nextInt(states.size() + 2)
+                        : random.nextInt(4 * History.CHECKPOINT_INTERVAL + 1) - 2 * History.CHECKPOINT_INTERVAL;
+                what = "seeking " + steps;
+                if (position + steps < 0 || position + steps >= states.size()) {
+                    expectRefused(() -> history.seek(steps, board), capacity, op, what);
+                } else {
+                    history.seek(steps, board);
+                    position += steps;
+                    seeks++;
+                }
+            } else {
+                what = "clearing";
+                history.clear(board);
+                states.clear();
+                states.add(new Board(board));
+                position = 0;
+            }
+            if (!board.equals(states.get(position))) {
+                fail(capacity, op, what, "board " + board + ", expected " + states.get(position));
+            }
+            if (history.undoCount() != position || history.redoCount() != states.size() - 1 - position) {
+                fail(capacity, op, what, history.undoCount() + " undos and " + history.redoCount()
+                        + " redos, expected " + position + " and " + (states.size() - 1 - position));
+            }
+        }
+        return seeks;
+    }
+
+    private static void expectRefused(Runnable operation, int capacity, int op, String what) {
+        try {
+            operation.run();
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            return;
+        }
+        fail(capacity, op, what, "not refused");
+    }
+
+    private static void fail(int capacity, int op, String what, String message) {
+        System.err.println("Capacity " + capacity + ", operation " + op + ", " + what + ": " + message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,115 @@
+package sudoku.data;
+
+import java.util.Random;
+
+/**
+ * Checks the batch mode of {@link Validator} against {@link Validator#firstConflict(Board)} board by board, for every
+ * geometry: random runs of boards, shorter and longer than a batch and at random offsets, mixing valid grids with
+ * cells cleared and grids with a few values changed, which mostly conflict. Every board must get the conflict its
+ * single check finds, the number of valid boards must match, and nothing past the run may be written. Exits with
+ * status 1 on the first mismatch.
+ * <p>
+ * Usage: ValidatorCheck [-runs n] [-seed n]
+ */
+public final class ValidatorCheck {
+    private static final int MAX_RUN = 200;
+
+    public static void main(String[] args) {
+        int runs = 500;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Usage: ValidatorCheck [-runs n] [-seed n]");
+                    System.exit(2);
+            }
+        }
+        Random random = new Random(seed);
+        long start = System.nanoTime();
+        long boards = 0;
+        long valid = 0;
+        for (int box = Geometry.MIN_BOX; box <= Geometry.MAX_BOX; box++) {
+            Geometry geometry = Geometry.of(box);
+            Validator validator = new Validator(geometry);
+            Board[] pool = new Board[MAX_RUN + 10];
+            int[] conflicts = new int[MAX_RUN + 1];
+            for (int r = 0; r < runs; r++) {
+                int count = random.nextInt(MAX_RUN + 1);
+                int offset = random.nextInt(pool.length - count + 1);
+                for (int b = 0; b < count; b++) {
+                    pool[offset + b] = randomBoard(geometry, random);
+                }
+                conflicts[count] = -2;
+                int found = validator.validate(pool, offset, count, conflicts);
+                int expected = 0;
+                for (int b = 0; b < count; b++) {
+                    int conflict = validator.firstConflict(pool[offset + b]);
+                    if (conflicts[b] != conflict) {
+                        fail("Batch conflict " + conflicts[b] + ", expected " + conflict + " in " + pool[offset + b]);
+                    }
+                    expected += conflict < 0 ? 1 : 0;
+                }
+                if (found != expected || conflicts[count] != -2) {
+                    fail("Batch of " + count + " " + geometry + " boards found " + found + " valid, expected "
+                            + expected + (conflicts[count] != -2 ? ", and wrote past the run" : ""));
+                }
+                boards += count;
+                valid += found;
+            }
+        }
+        try {
+            new Validator().validate(new Board[]{new Board(Geometry.of(2))}, 0, 1, new int[1]);
+            fail("A 4x4 board was validated as 9x9");
+        } catch (IllegalArgumentException expected) {
+        }
+        System.out.printf("%d boards in batches agree with the single board check, %d of them valid, in %.3fs%n",
+                boards, valid, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * @return a shuffled pattern grid with some cells cleared, and half the time a few values changed
+     */
+    private static Board randomBoard(Geometry geometry, Random random) {
+        int size = geometry.size;
+        int box = geometry.box;
+        int[] digits = new int[size];
+        for (int d = 0; d < size; d++) {
+            digits[d] = d + 1;
+        }
+        for (int d = size - 1; d > 0; d--) {
+            int k = random.nextInt(d + 1);
+            int swap = digits[d];
+            digits[d] = digits[k];
+            digits[k] = swap;
+        }
+        Board board = new Board(geometry);
+        int shift = random.nextInt(size);
+        for (int i = 0; i < geometry.cells; i++) {
+            int r = geometry.row[i];
+            int c = geometry.column[i];
+            board.set(i, digits[(r % box * box + r / box + c + shift) % size]);
+        }
+        int cleared = random.nextInt(geometry.cells + 1);
+        for (int k = 0; k < cleared; k++) {
+            board.set(random.nextInt(geometry.cells), 0);
+        }
+        if (random.nextBoolean()) {
+            int changed = 1 + random.nextInt(3);
+            for (int k = 0; k < changed; k++) {
+                board.set(random.nextInt(geometry.cells), random.nextInt(size + 1));
+            }
+        }
+        return board;
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,180 @@
+package sudoku.io;
+
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that what {@link PuzzleWriter} writes, {@link PuzzleReader} reads back: random streams mixing boards of every
+ * size in the one line and the grid format, including runs of 4x4 puzzles and 16x16 grids holding only values up to
+ * 4, whose lines look alike. Exits with status 1 on the first mismatch.
+ * <p>
+ * Usage: PuzzleIoCheck [-streams n] [-seed n]
+ */
+public final class PuzzleIoCheck {
+    private static final Geometry SMALL = Geometry.of(Geometry.MIN_BOX);
+    private static final Geometry SIXTEEN = Geometry.of(4);
+
+    public static void main(String[] args) throws IOException {
+        int streams = 500;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-streams":
+                    streams = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Usage: PuzzleIoCheck [-streams n] [-seed n]");
+                    System.exit(2);
+            }
+        }
+        long start = System.nanoTime();
+        for (int box = Geometry.MIN_BOX; box <= Geometry.MAX_BOX; box++) {
+            Geometry geometry = Geometry.of(box);
+            for (Board board : new Board[]{new Board(geometry), scattered(geometry, new Random(box)),
+                    low(geometry, new Random(box))}) {
+                List<Board> one = new ArrayList<>();
+                one.add(board);
+                expect(one, new boolean[]{false}, "a " + geometry + " one line board");
+                expect(one, new boolean[]{true}, "a " + geometry + " grid");
+            }
+        }
+        expectRead("1234\n3412\n2143\n4321\n", SMALL, 1, "a 4x4 grid");
+        expectRead("# a 16x16 grid\n" + rows(16, "1234....12341234") + "\n", SIXTEEN, 1,
+                "sixteen rows and a blank line");
+        expectRead(rows(16, "1234....12341234"), SIXTEEN, 1, "sixteen rows at the end of the input");
+        expectRead(rows(15, "1234....12341234") + "\n", SMALL, 15, "fifteen rows");
+        expectRead(rows(17, "1234....12341234"), SMALL, 17, "seventeen rows");
+        expectRead(rows(3, "1234....12341234") + "# comment\n" + rows(2, "1234....12341234"), SMALL, 5,
+                "rows split by a comment");
+        expectRead(rows(3, "1234....12341234") + "1234....1234123G\n" + rows(12, "1234....12341234"),
+                SIXTEEN, 1, "a row holding a value above 4");
+        expectRead("1.3|...|..9\n" + rows(2, "...|...|...") + "---+---+---\n" + rows(6, "...|4.6|..."),
+                Geometry.STANDARD, 1, "a 9x9 grid with separators");
+        expectRead(rows(4, "1234|....|1234|1234") + "----+----+----+----\n" + rows(12, "1234|....|1234|1234"),
+                SIXTEEN, 1, "a 16x16 grid with separators");
+        System.out.printf("Every geometry and the 16 cell lines read back in %.3fs%n",
+                (System.nanoTime() - start) / 1e9);
+
+        Random random = new Random(seed);
+        long boards = 0;
+        for (int s = 0; s < streams; s++) {
+            int length = 1 + random.nextInt(60);
+            List<Board> written = new ArrayList<>();
+            List<Boolean> grids = new ArrayList<>();
+            int run = 0;
+            for (int i = 0; i < length; i++) {
+                Geometry geometry = Geometry.of(pickBox(random));
+                boolean grid = random.nextInt(3) == 0;
+                boolean small = geometry == SMALL && !grid;
+                if (!small && run == 16) {
+                    //exactly sixteen 4x4 puzzles in a row read as a 16x16 grid, so make it seventeen
+                    written.add(low(SMALL, random));
+                    grids.add(false);
+                }
+                run = small ? run + 1 : 0;
+                written.add(random.nextBoolean() ? low(geometry, random) : scattered(geometry, random));
+                grids.add(grid);
+            }
+            if (run == 16) {
+                written.add(low(SMALL, random));
+                grids.add(false);
+            }
+            boolean[] format = new boolean[grids.size()];
+            for (int i = 0; i < format.length; i++) {
+                format[i] = grids.get(i);
+            }
+            expect(written, format, "stream " + s);
+            boards += written.size();
+        }
+        System.out.printf("%d streams of %d boards read back, %.3fs in total%n",
+                streams, boards, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static int pickBox(Random random) {
+        //mostly the sizes whose lines can be mistaken for each other
+        int pick = random.nextInt(10);
+        return pick < 4 ? 2 : pick < 7 ? 4 : pick < 9 ? 3 : 5;
+    }
+
+    private static void expect(List<Board> boards, boolean[] grid, String what) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (PuzzleWriter out = new PuzzleWriter(bytes)) {
+            for (int i = 0; i < boards.size(); i++) {
+                if (grid[i]) {
+                    out.writeGrid(boards.get(i));
+                } else {
+                    out.write(boards.get(i));
+                }
+            }
+        }
+        try (PuzzleReader in = new PuzzleReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (int i = 0; i < boards.size(); i++) {
+                if (!in.next() || !boards.get(i).equals(in.board())) {
+                    fail(what + ": record " + i + " read as " + in.board() + ", expected " + boards.get(i));
+                }
+            }
+            if (in.next()) {
+                fail(what + ": read " + in.board() + " past the last record");
+            }
+        }
+    }
+
+    private static void expectRead(String text, Geometry geometry, int records, String what) throws IOException {
+        try (PuzzleReader in = new PuzzleReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)))) {
+            for (int i = 0; i < records; i++) {
+                if (!in.next() || in.board() == null || in.board().geometry() != geometry) {
+                    fail(what + ": record " + i + " read as " + in.board() + ", expected a " + geometry + " puzzle");
+                }
+            }
+            if (in.next()) {
+                fail(what + ": read more than " + records + " records");
+            }
+        }
+    }
+
+    private static String rows(int count, String row) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(row).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return a board with random values, some of them removed
+     */
+    private static Board scattered(Geometry geometry, Random random) {
+        Board board = new Board(geometry);
+        for (int i = 0; i < geometry.cells; i++) {
+            board.set(i, random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(geometry.size));
+        }
+        return board;
+    }
+
+    /**
+     * @return a board holding only values a 4x4 board could
+     */
+    private static Board low(Geometry geometry, Random random) {
+        Board board = new Board(geometry);
+        for (int i = 0; i < geometry.cells; i++) {
+            board.set(i, random.nextInt(SMALL.size + 1));
+        }
+        return board;
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,189 @@
+package sudoku.io;
+
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks a round trip through {@link PuzzleStore} for every geometry: random boards are imported from a text file,
+ * read back by random index, given solutions in place, appended to after reopening the store, and exported again, to
+ * be compared with what went in. Each store holds more records than one append buffer, and reads of records still in
+ * the buffer are mixed with reads of records already mapped. Exits with status 1 on the first mismatch.
+ * <p>
+ * Usage: PuzzleStoreCheck [-records n] [-reads n] [-seed n]
+ */
+public final class PuzzleStoreCheck {
+    public static void main(String[] args) throws IOException {
+        int records = 5000;
+        int reads = 5000;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-records":
+                    records = Integer.parseInt(args[++i]);
+                    break;
+                case "-reads":
+                    reads = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Usage: PuzzleStoreCheck [-records n] [-reads n] [-seed n]");
+                    System.exit(2);
+            }
+        }
+        Random random = new Random(seed);
+        long start = System.nanoTime();
+        Path directory = Files.createTempDirectory("puzzle-store");
+        try {
+            for (int box = Geometry.MIN_BOX; box <= Geometry.MAX_BOX; box++) {
+                Geometry geometry = Geometry.of(box);
+                for (boolean solutions : new boolean[]{false, true}) {
+                    check(geometry, solutions, records, reads, directory, random);
+                }
+            }
+        } finally {
+            for (Path file : Files.newDirectoryStream(directory)) {
+                Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+        System.out.printf("Stores of %d records for every geometry, with and without solutions, read back the boards"
+                + " they were given after %d random reads each in %.3fs%n", records, reads,
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void check(Geometry geometry, boolean solutions, int records, int reads, Path directory,
+                              Random random) throws IOException {
+        String what = geometry + (solutions ? " store with solutions" : " store");
+        List<Board> puzzles = new ArrayList<>();
+        List<Board> stored = new ArrayList<>();
+        Path text = directory.resolve("puzzles.txt");
+        try (PuzzleWriter out = PuzzleWriter.create(text, '.')) {
+            //more than sixteen 4x4 lines in a row, so they are not read as a 16x16 grid
+            for (int i = 0; i < Math.max(records, 17); i++) {
+                Board puzzle = scattered(geometry, random);
+                puzzles.add(puzzle);
+                stored.add(new Board(geometry));
+                out.write(puzzle);
+            }
+        }
+        Path path = directory.resolve("puzzles" + PuzzleStore.EXTENSION);
+        quietly("import", solutions ? "-solutions" : "", text.toString(), path.toString());
+
+        Board board = new Board(geometry);
+        try (PuzzleStore store = PuzzleStore.open(path, true)) {
+            if (store.geometry() != geometry || store.hasSolutions() != solutions || store.size() != puzzles.size()) {
+                fail(what + " opened as " + store.size() + " " + store.geometry() + " records, solutions "
+                        + store.hasSolutions());
+            }
+            for (int r = 0; r < reads; r++) {
+                int pick = random.nextInt(10);
+                if (pick == 0) {
+                    //left in the append buffer until a read of it or of a later record flushes it
+                    Board puzzle = scattered(geometry, random);
+                    Board solution = solutions && random.nextBoolean() ? scattered(geometry, random) : null;
+                    long index = store.append(puzzle, solution);
+                    if (index != puzzles.size()) {
+                        fail(what + " appended record " + index + ", expected " + puzzles.size());
+                    }
+                    puzzles.add(puzzle);
+                    stored.add(solution == null || !solutions ? new Board(geometry) : solution);
+                    continue;
+                }
+                int index = random.nextInt(puzzles.size());
+                if (solutions && pick == 1) {
+                    Board solution = random.nextInt(4) == 0 ? null : scattered(geometry, random);
+                    store.writeSolution(index, solution);
+                    stored.set(index, solution == null ? new Board(geometry) : solution);
+                }
+                store.read(index, board);
+                expect(board, puzzles.get(index), what + ", record " + index);
+                if (solutions) {
+                    boolean found = store.readSolution(index, board);
+                    expect(board, stored.get(index), what + ", solution " + index);
+                    if (found != (stored.get(index).get(0) != 0)) {
+                        fail(what + ": solution " + index + " reported as " + (found ? "stored" : "missing"));
+                    }
+                }
+            }
+            try {
+                store.read(store.size(), board);
+                fail(what + ": read record " + store.size() + " of " + store.size());
+            } catch (IndexOutOfBoundsException expected) {
+            }
+        }
+
+        Path exported = directory.resolve("exported.txt");
+        quietly("export", "", path.toString(), exported.toString());
+        expectExported(exported, puzzles, what + " export");
+        if (solutions) {
+            quietly("export", "-solutions", path.toString(), exported.toString());
+            expectExported(exported, stored, what + " solution export");
+        }
+    }
+
+    /**
+     * Runs the command line of {@link PuzzleStore} without its timing line
+     */
+    private static void quietly(String command, String option, String from, String to) throws IOException {
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        try {
+            PuzzleStore.main(option.isEmpty() ? new String[]{command, from, to}
+                    : new String[]{command, option, from, to});
+        } finally {
+            System.setErr(err);
+        }
+    }
+
+    private static void expectExported(Path file, List<Board> boards, String what) throws IOException {
+        try (PuzzleReader in = PuzzleReader.open(file)) {
+            for (int i = 0; i < boards.size(); i++) {
+                if (!in.next()) {
+                    fail(what + ": " + i + " of " + boards.size() + " records");
+                }
+                expect(in.board(), boards.get(i), what + ", record " + i);
+            }
+            if (in.next()) {
+                fail(what + ": more than " + boards.size() + " records");
+            }
+        }
+    }
+
+    private static void expect(Board board, Board expected, String what) {
+        if (!expected.equals(board)) {
+            fail(what + " read as " + board + ", expected " + expected);
+        }
+    }
+
+    /**
+     * @return a board with random values, some of them removed, and the first cell always filled so that an empty
+     * board only ever stands for a missing solution
+     */
+    private static Board scattered(Geometry geometry, Random random) {
+        Board board = new Board(geometry);
+        for (int i = 0; i < geometry.cells; i++) {
+            board.set(i, i > 0 && random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(geometry.size));
+        }
+        return board;
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,226 @@
+package sudoku.logic;
+
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+
+/**
+ * Checks every {@link Technique} of {@link LogicEngine} on a position built for it: givens and candidates removed by
+ * hand so that the technique applies and none of the easier ones do. One step must apply that technique, place the
+ * expected value or remove exactly the expected candidates, and leave every other cell alone. Exits with status 1 on
+ * the first mismatch.
+ * <p>
+ * Usage: LogicEngineCheck
+ */
+public final class LogicEngineCheck {
+    private static final Geometry GEOMETRY = Geometry.STANDARD;
+
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            System.err.println("Usage: LogicEngineCheck");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        LogicEngine engine = new LogicEngine(GEOMETRY);
+
+        //row 5 holds every value but 5, which r5c5 is left with
+        Board board = new Board(GEOMETRY);
+        int[] others = {1, 2, 3, 4, 6, 7, 8, 9};
+        for (int c = 0, v = 0; c < GEOMETRY.size; c++) {
+            if (c != 4) {
+                board.set(cell(4, c), others[v++]);
+            }
+        }
+        load(engine, board);
+        expectPlaced(engine, Technique.NAKED_SINGLE, cell(4, 4), 5);
+
+        //the 5s in rows 2 and 3 and columns 2 and 3 leave r1c1 the only place for a 5 in the first row and box
+        board = new Board(GEOMETRY);
+        board.set(cell(1, 4), 5);
+        board.set(cell(2, 7), 5);
+        board.set(cell(5, 1), 5);
+        board.set(cell(7, 2), 5);
+        load(engine, board);
+        expectPlaced(engine, Technique.HIDDEN_SINGLE, cell(0, 0), 5);
+
+        //the 1s of the first box are all in the first row
+        load(engine, new Board(GEOMETRY));
+        remove(engine, digits(1), cells(1, 0, 1, 2), cells(2, 0, 1, 2));
+        expectEliminated(engine, Technique.POINTING, digits(1), cells(0, 3, 4, 5, 6, 7, 8));
+
+        //the 1s of the first row are all in the first box
+        load(engine, new Board(GEOMETRY));
+        remove(engine, digits(1), cells(0, 3, 4, 5, 6, 7, 8));
+        expectEliminated(engine, Technique.BOX_LINE, digits(1), cells(1, 0, 1, 2), cells(2, 0, 1, 2));
+
+        //r1c1 and r1c2 can only be 1 or 2
+        load(engine, new Board(GEOMETRY));
+        remove(engine, digits(3, 4, 5, 6, 7, 8, 9), cells(0, 0, 1));
+        expectEliminated(engine, Technique.NAKED_PAIR, digits(1, 2), cells(0, 2, 3, 4, 5, 6, 7, 8));
+
+        //the 1s and 2s of the first row only fit in r1c1 and r1c4, in different boxes so that no box/line applies
+        load(engine, new Board(GEOMETRY));
+        remove(engine, digits(1, 2), cells(0, 1, 2, 4, 5, 6, 7, 8));
+        expectEliminated(engine, Technique.HIDDEN_PAIR, digits(3, 4, 5, 6, 7, 8, 9), cells(0, 0, 3));
+
+        //r1c1, r1c2 and r1c3 hold 12, 23 and 13
+        load(engine, new Board(GEOMETRY));
+        remove(engine, digits(3, 4, 5, 6, 7, 8, 9), cells(0, 0));
+        remove(engine, digits(1, 4, 5, 6, 7, 8, 9), cells(0, 1));
+        remove(engine, digits(2, 4, 5, 6, 7, 8, 9), cells(0, 2));
+        expectEliminated(engine, Technique.NAKED_TRIPLE, digits(1, 2, 3), cells(0, 3, 4, 5, 6, 7, 8));
+
+        //the 1s, 2s and 3s of the first row only fit in r1c1, r1c4 and r1c7
+        load(engine, new Board(GEOMETRY));
+        remove(engine, digits(1, 2, 3), cells(0, 1, 2, 4, 5, 7, 8));
+        expectEliminated(engine, Technique.HIDDEN_TRIPLE, digits(4, 5, 6, 7, 8, 9), cells(0, 0, 3, 6));
+
+        //the 1s of rows 1 and 5 are in columns 1 and 5
+        load(engine, new Board(GEOMETRY));
+        remove(engine, digits(1), cells(0, 1, 2, 3, 5, 6, 7, 8), cells(4, 1, 2, 3, 5, 6, 7, 8));
+        expectEliminated(engine, Technique.X_WING, digits(1), column(0, 0, 4), column(4, 0, 4));
+
+        //the 1s of rows 1, 4 and 7 are in columns 1, 4 and 7, two in each row so that no X-wing hides among them
+        load(engine, new Board(GEOMETRY));
+        remove(engine, digits(1), cells(0, 1, 2, 4, 5, 6, 7, 8), cells(3, 0, 1, 2, 4, 5, 7, 8),
+                cells(6, 1, 2, 3, 4, 5, 7, 8));
+        expectEliminated(engine, Technique.SWORDFISH, digits(1), column(0, 0, 3, 6), column(3, 0, 3, 6),
+                column(6, 0, 3, 6));
+
+        //pivot r1c1 holds 12, pincers r1c5 and r5c1 hold 13 and 23, and r5c5 sees both pincers
+        load(engine, new Board(GEOMETRY));
+        remove(engine, digits(3, 4, 5, 6, 7, 8, 9), cells(0, 0));
+        remove(engine, digits(2, 4, 5, 6, 7, 8, 9), cells(0, 4));
+        remove(engine, digits(1, 4, 5, 6, 7, 8, 9), cells(4, 0));
+        expectEliminated(engine, Technique.XY_WING, digits(3), cells(4, 4));
+
+        System.out.printf("%d techniques each remove exactly the expected candidates from their position in %.3fs%n",
+                Technique.values().length, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void load(LogicEngine engine, Board board) {
+        if (!engine.load(board)) {
+            fail("Conflicting givens in " + board);
+        }
+        engine.resetStatistics();
+    }
+
+    private static void remove(LogicEngine engine, int mask, int[]... cells) {
+        for (int[] group : cells) {
+            for (int i : group) {
+                engine.eliminate(i, mask);
+            }
+        }
+    }
+
+    private static void expectPlaced(LogicEngine engine, Technique technique, int cell, int value) {
+        int bit = 1 << (value - 1);
+        int[] expected = candidates(engine);
+        expected[cell] = 0;
+        for (int peer : GEOMETRY.peers[cell]) {
+            expected[peer] &= ~bit;
+        }
+        step(engine, technique, expected, 1);
+        if (engine.lastCell() != cell || engine.lastValue() != value || engine.value(cell) != value) {
+            fail(technique + " placed " + engine.lastValue() + " in cell " + engine.lastCell() + ", expected "
+                    + value + " in cell " + cell);
+        }
+    }
+
+    private static void expectEliminated(LogicEngine engine, Technique technique, int mask, int[]... cells) {
+        int[] expected = candidates(engine);
+        int removed = 0;
+        for (int[] group : cells) {
+            for (int i : group) {
+                removed += Integer.bitCount(expected[i] & mask);
+                expected[i] &= ~mask;
+            }
+        }
+        step(engine, technique, expected, removed);
+        boolean first = false;
+        for (int[] group : cells) {
+            for (int i : group) {
+                first |= i == engine.lastCell();
+            }
+        }
+        if (!first || engine.lastValue() != 0) {
+            fail(technique + " reported cell " + engine.lastCell() + " and value " + engine.lastValue()
+                    + ", expected one of the cells it changed and no value");
+        }
+    }
+
+    private static void step(LogicEngine engine, Technique technique, int[] expected, int removed) {
+        Technique applied = engine.step();
+        if (applied != technique) {
+            fail("Expected " + technique + ", got " + applied);
+        }
+        for (int i = 0; i < GEOMETRY.cells; i++) {
+            if (engine.candidates(i) != expected[i]) {
+                fail(technique + " left cell " + i + " with candidates " + Integer.toBinaryString(engine.candidates(i))
+                        + ", expected " + Integer.toBinaryString(expected[i]));
+            }
+        }
+        if (engine.fired(technique) != 1 || engine.eliminated(technique) != removed
+                || engine.hardest() != technique || engine.isBroken()) {
+            fail(technique + " fired " + engine.fired(technique) + " times and removed "
+                    + engine.eliminated(technique) + " candidates, expected once and " + removed);
+        }
+    }
+
+    private static int[] candidates(LogicEngine engine) {
+        int[] candidates = new int[GEOMETRY.cells];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = engine.candidates(i);
+        }
+        return candidates;
+    }
+
+    /**
+     * @param r zero-based row
+     * @param c zero-based column
+     */
+    private static int cell(int r, int c) {
+        return r * GEOMETRY.size + c;
+    }
+
+    /**
+     * @return the given zero-based columns of a zero-based row
+     */
+    private static int[] cells(int r, int... columns) {
+        int[] cells = new int[columns.length];
+        for (int j = 0; j < columns.length; j++) {
+            cells[j] = cell(r, columns[j]);
+        }
+        return cells;
+    }
+
+    /**
+     * @return the cells of a zero-based column outside the given rows
+     */
+    private static int[] column(int c, int... rows) {
+        int[] cells = new int[GEOMETRY.size - rows.length];
+        int count = 0;
+        for (int r = 0; r < GEOMETRY.size; r++) {
+            boolean skipped = false;
+            for (int skip : rows) {
+                skipped |= skip == r;
+            }
+            if (!skipped) {
+                cells[count++] = cell(r, c);
+            }
+        }
+        return cells;
+    }
+
+    private static int digits(int... values) {
+        int mask = 0;
+        for (int value : values) {
+            mask |= 1 << (value - 1);
+        }
+        return mask;
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,152 @@
+package sudoku.server;
+
+import sudoku.io.PuzzleReader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a {@link SudokuServer} with concurrent clients, each sending the puzzles of a file to one endpoint in a
+ * closed loop, and prints the throughput, the client side latencies and the server's statistics.
+ * Without {@code -url} it starts a server on a free port of localhost and stops it afterwards.
+ * <p>
+ * Usage: LoadGenerator puzzles [-url http://host:port] [-endpoint solve] [-clients n] [-requests n]
+ */
+public final class LoadGenerator {
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+        }
+        String url = null;
+        String endpoint = "solve";
+        int clients = 16;
+        int requests = 10_000;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "-url":
+                    url = args[++i];
+                    break;
+                case "-endpoint":
+                    endpoint = args[++i];
+                    break;
+                case "-clients":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                case "-requests":
+                    requests = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    usage();
+            }
+        }
+        List<String> puzzles = new ArrayList<>();
+        try (PuzzleReader reader = PuzzleReader.open(Paths.get(args[0]))) {
+            while (reader.next()) {
+                if (reader.board() != null) {
+                    puzzles.add(reader.board().toString());
+                }
+            }
+        }
+        if (puzzles.isEmpty()) {
+            throw new IllegalArgumentException("No puzzles in " + args[0]);
+        }
+
+        SudokuServer server = null;
+        if (url == null) {
+            System.getProperties().putIfAbsent("sun.net.httpserver.nodelay", "true");
+            server = new SudokuServer(0, Runtime.getRuntime().availableProcessors(), 1024);
+            server.start();
+            url = "http://localhost:" + server.port();
+        }
+        URL target = new URL(url + "/" + endpoint);
+        LatencyHistogram latencies = new LatencyHistogram();
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong busy = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        int total = requests;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            pool.execute(() -> {
+                int request;
+                while ((request = next.getAndIncrement()) < total) {
+                    long sent = System.nanoTime();
+                    try {
+                        int status = post(target, puzzles.get(request % puzzles.size()));
+                        if (status == 503) {
+                            busy.incrementAndGet();
+                        } else if (status != 200 && status != 422) {
+                            failed.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                    }
+                    latencies.record((System.nanoTime() - sent) / 1000);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.DAYS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d requests to %s from %d clients in %.2fs, %.0f requests/s%n", total, target, clients,
+                seconds, total / seconds);
+        System.out.println("busy=" + busy.get() + " failed=" + failed.get());
+        System.out.println("client " + latencies);
+        System.out.print(get(new URL(url + "/stats")));
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private static int post(URL url, String puzzle) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(puzzle.getBytes(StandardCharsets.US_ASCII));
+        }
+        int status = connection.getResponseCode();
+        //drain the body so the connection goes back to the keep-alive pool
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (in != null) {
+                byte[] buffer = new byte[1024];
+                while (in.read(buffer) > 0) {
+                }
+            }
+        }
+        return status;
+    }
+
+    private static String get(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                body.write(buffer, 0, read);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static void usage() {
+        System.err.println("Usage: LoadGenerator puzzles [-url http://host:port] [-endpoint solve] [-clients n]"
+                + " [-requests n]");
+        System.exit(1);
+    }
+}
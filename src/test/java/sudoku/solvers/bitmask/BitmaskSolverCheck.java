@@ -0,0 +1,190 @@
+package sudoku.solvers.bitmask;
+
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+import sudoku.data.Validator;
+import sudoku.solvers.Solver;
+import sudoku.solvers.Solvers;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks the solution counts of {@link BitmaskSolver} and {@link ParallelBitmaskSolver} against the dancing links and
+ * depth first search solvers: on boards cut down from random solutions until they have up to {@code -max} solutions,
+ * on half of such a solution with a clue changed so that it mostly has none, and on boards whose givens conflict. The
+ * parallel solver runs with several split depths, from a single task to a fork at every level of the first few, and is
+ * also checked with a limit and with every solution passed to a consumer. Exits with status 1 on the first mismatch.
+ * <p>
+ * Usage: BitmaskSolverCheck [-boards n] [-max solutions] [-seed n]
+ */
+public final class BitmaskSolverCheck {
+    private static final int[] SPLIT_DEPTHS = {0, 1, 3, 8};
+
+    public static void main(String[] args) {
+        int boards = 100;
+        long max = 200;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-boards":
+                    boards = Integer.parseInt(args[++i]);
+                    break;
+                case "-max":
+                    max = Long.parseLong(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Usage: BitmaskSolverCheck [-boards n] [-max solutions] [-seed n]");
+                    System.exit(2);
+            }
+        }
+        Random random = new Random(seed);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        long start = System.nanoTime();
+        //every 4x4 grid, a first row that leaves no place for the 9 of column 9, and two 1s in the first row
+        compare(new Board(Geometry.of(2)), true, pool, random);
+        Board unsolvable = new Board();
+        for (int c = 0; c < 8; c++) {
+            unsolvable.set(c, 0, c + 1);
+        }
+        unsolvable.set(8, 4, 9);
+        compare(unsolvable, false, pool, random);
+        Board conflicting = new Board();
+        conflicting.set(0, 0, 1);
+        conflicting.set(1, 0, 1);
+        compare(conflicting, true, pool, random);
+
+        BitmaskSolver generator = new BitmaskSolver(new Board());
+        generator.setRandom(random);
+        Solver reference = Solvers.byName("dlx").apply(new Board());
+        Validator validator = new Validator();
+        long solutions = 0;
+        long none = 0;
+        for (int b = 0; b < boards; b++) {
+            Board solution = new Board();
+            generator.reset(new Board());
+            generator.forEachSolution(1, solution::copyFrom);
+            int[] order = shuffledCells(random);
+            solutions += compare(cutDown(solution, order, reference, max), true, pool, random);
+            //half the clues of the solution, one of them changed without a conflict, which rarely leaves a solution
+            Board changed = new Board(solution);
+            for (int i = 0; i < Board.CELLS / 2; i++) {
+                changed.set(order[i], 0);
+            }
+            while (true) {
+                int cell = order[Board.CELLS / 2 + random.nextInt(Board.CELLS - Board.CELLS / 2)];
+                changed.set(cell, 1 + (solution.get(cell) + random.nextInt(8)) % 9);
+                if (validator.isValid(changed)) {
+                    break;
+                }
+                changed.set(cell, solution.get(cell));
+            }
+            if (compare(changed, false, pool, random) == 0) {
+                none++;
+            }
+        }
+        pool.shutdown();
+        System.out.printf("%d boards with %d solutions in all agree with dlx and dfs, and %d without a solution"
+                        + " with dlx, for split depths %s in %.3fs%n", boards, solutions, none,
+                Arrays.toString(SPLIT_DEPTHS), (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * @param dfs whether to include the depth first search solver, which takes far too long to rule out every
+     *            completion of a sparse board without a solution
+     * @return the number of solutions of the board, after checking that every solver agrees on it
+     */
+    private static long compare(Board board, boolean dfs, ForkJoinPool pool, Random random) {
+        long expected = count(Solvers.byName("dlx").apply(board), board, "dlx", -1);
+        if (dfs) {
+            count(Solvers.byName("dfs").apply(board), board, "dfs", expected);
+        }
+        count(new BitmaskSolver(board), board, "bitmask", expected);
+        for (int depth : SPLIT_DEPTHS) {
+            ParallelBitmaskSolver parallel = new ParallelBitmaskSolver(board, pool, depth);
+            String name = "parallel with split depth " + depth;
+            count(parallel, board, name, expected);
+            long limit = 1 + random.nextInt((int) Math.min(expected + 2, Integer.MAX_VALUE));
+            parallel.reset(board);
+            long limited = parallel.countSolutions(limit);
+            if (limited != Math.min(expected, limit)) {
+                fail(name + " counted " + limited + " solutions with a limit of " + limit + ", expected "
+                        + Math.min(expected, limit) + " of " + board);
+            }
+            Set<Board> solutions = new HashSet<>();
+            Validator validator = new Validator(board.geometry());
+            parallel.reset(board);
+            parallel.forEachSolution(solution -> {
+                if (!validator.isComplete(solution) || !keepsClues(board, solution)
+                        || !solutions.add(new Board(solution))) {
+                    fail(name + " passed an invalid or repeated solution " + solution + " of " + board);
+                }
+            });
+            if (solutions.size() != expected) {
+                fail(name + " passed " + solutions.size() + " solutions, expected " + expected + " of " + board);
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * @param expected the number of solutions the solver must find, -1 to take its count as the reference
+     */
+    private static long count(Solver solver, Board board, String name, long expected) {
+        long count = solver.countSolutions();
+        if (expected >= 0 && count != expected) {
+            fail(name + " counted " + count + " solutions, expected " + expected + " of " + board);
+        }
+        return count;
+    }
+
+    private static boolean keepsClues(Board board, Board solution) {
+        for (int i = 0; i < board.geometry().cells; i++) {
+            if (board.get(i) != 0 && board.get(i) != solution.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the solution with clues removed in the given order for as long as it keeps at most max solutions
+     */
+    private static Board cutDown(Board solution, int[] order, Solver reference, long max) {
+        Board board = new Board(solution);
+        for (int i : order) {
+            board.set(i, 0);
+            reference.reset(board);
+            if (reference.countSolutions(max + 1) > max) {
+                board.set(i, solution.get(i));
+                break;
+            }
+        }
+        return board;
+    }
+
+    private static int[] shuffledCells(Random random) {
+        int[] cells = new int[Board.CELLS];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = i;
+        }
+        for (int i = cells.length - 1; i > 0; i--) {
+            int k = random.nextInt(i + 1);
+            int swap = cells[i];
+            cells[i] = cells[k];
+            cells[k] = swap;
+        }
+        return cells;
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
@@ -0,0 +1,127 @@
+package sudoku.solvers.cache;
+
+import sudoku.data.Board;
+import sudoku.data.CanonicalizerCheck;
+import sudoku.data.Geometry;
+import sudoku.data.Validator;
+import sudoku.solvers.Solver;
+import sudoku.solvers.bitmask.BitmaskSolver;
+
+import java.util.Random;
+
+/**
+ * Checks {@link CachingSolver} on random puzzles and random transformations of them: every solution, whether solved
+ * or mapped back from the cache, must solve the puzzle it was returned for, and the cache must count a miss for each
+ * new puzzle and a hit for every transformation of it. Then checks that a puzzle without a solution is cached too, and
+ * that searches for more than one solution go straight to the delegate. Exits with status 1 on the first mismatch.
+ * <p>
+ * Usage: CachingSolverCheck [-puzzles n] [-seed n]
+ */
+public final class CachingSolverCheck {
+    private static final int TRANSFORMS = 4;
+
+    public static void main(String[] args) {
+        int puzzles = 2000;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-puzzles":
+                    puzzles = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Usage: CachingSolverCheck [-puzzles n] [-seed n]");
+                    System.exit(2);
+            }
+        }
+        Random random = new Random(seed);
+        long start = System.nanoTime();
+        SolutionCache cache = new SolutionCache(puzzles + 1);
+        Solver solver = CachingSolver.factory(BitmaskSolver::new, cache).apply(new Board());
+        BitmaskSolver generator = new BitmaskSolver(new Board());
+        generator.setRandom(random);
+        Validator validator = new Validator();
+        Board transformed = new Board();
+        for (int p = 0; p < puzzles; p++) {
+            Board puzzle = puzzle(generator, 20 + random.nextInt(30), random);
+            long misses = cache.misses();
+            long hits = cache.hits();
+            expectSolved(solver, puzzle, validator);
+            expect(cache.misses() == misses + 1 && cache.hits() == hits, "a miss for a new puzzle", cache);
+            for (int t = 0; t < TRANSFORMS; t++) {
+                CanonicalizerCheck.randomTransform(Geometry.STANDARD, random).apply(puzzle, transformed);
+                expectSolved(solver, transformed, validator);
+            }
+            expect(cache.misses() == misses + 1 && cache.hits() == hits + TRANSFORMS,
+                    "a hit for every transformation", cache);
+        }
+        System.out.printf("%d puzzles and %d transformations solved through the cache in %.3fs, %s%n",
+                puzzles, puzzles * TRANSFORMS, (System.nanoTime() - start) / 1e9, cache);
+
+        //the last cell of the first row can only hold a 9, which its column already holds
+        Board unsolvable = new Board();
+        for (int c = 0; c < 8; c++) {
+            unsolvable.set(c, 0, c + 1);
+        }
+        unsolvable.set(8, 4, 9);
+        long misses = cache.misses();
+        long hits = cache.hits();
+        solver.reset(unsolvable);
+        expect(solver.countSolutions(1) == 0, "no solution of " + unsolvable, cache);
+        CanonicalizerCheck.randomTransform(Geometry.STANDARD, random).apply(unsolvable, transformed);
+        solver.reset(transformed);
+        expect(solver.countSolutions(1) == 0, "no solution of " + transformed, cache);
+        expect(cache.misses() == misses + 1 && cache.hits() == hits + 1, "the missing solution to be cached", cache);
+
+        solver.reset(new Board());
+        expect(solver.countSolutions(2) == 2, "two solutions of the empty board", cache);
+        expect(cache.misses() == misses + 1 && cache.hits() == hits + 1,
+                "a search for two solutions to bypass the cache", cache);
+        System.out.println("Puzzles without a solution are cached and counting bypasses the cache");
+    }
+
+    private static void expectSolved(Solver solver, Board puzzle, Validator validator) {
+        solver.reset(puzzle);
+        solver.findSingleSolution();
+        Board solution = solver.getSolution();
+        if (solution == null || !validator.isComplete(solution)) {
+            fail("No valid solution of " + puzzle + ": " + solution);
+        }
+        for (int i = 0; i < Board.CELLS; i++) {
+            if (puzzle.get(i) != 0 && puzzle.get(i) != solution.get(i)) {
+                fail("The solution " + solution + " does not keep the clues of " + puzzle);
+            }
+        }
+    }
+
+    private static void expect(boolean condition, String what, SolutionCache cache) {
+        if (!condition) {
+            fail("Expected " + what + ", cache: " + cache);
+        }
+    }
+
+    /**
+     * @return a random solution with all but the given number of clues removed
+     */
+    private static Board puzzle(BitmaskSolver generator, int clues, Random random) {
+        Board solution = new Board();
+        generator.reset(new Board());
+        generator.forEachSolution(1, solution::copyFrom);
+        int removed = 0;
+        while (removed < Board.CELLS - clues) {
+            int i = random.nextInt(Board.CELLS);
+            if (solution.get(i) != 0) {
+                solution.set(i, 0);
+                removed++;
+            }
+        }
+        return solution;
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
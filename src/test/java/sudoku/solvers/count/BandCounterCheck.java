@@ -0,0 +1,118 @@
+package sudoku.solvers.count;
+
+import sudoku.data.Board;
+import sudoku.solvers.Solver;
+import sudoku.solvers.bitmask.BitmaskSolver;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Checks {@link BandCounter} against the known number of 9x9 grids, and against enumeration by the
+ * {@link BitmaskSolver} on boards cut down from random solutions until they have up to {@code -max} solutions.
+ * Exits with status 1 on the first mismatch.
+ * <p>
+ * Usage: BandCounterCheck [-boards n] [-max solutions] [-seed n]
+ */
+public final class BandCounterCheck {
+    private static final BigInteger GRIDS = new BigInteger("6670903752021072936960");
+    /**
+     * The grids with a given first box, 9! times fewer
+     */
+    private static final BigInteger FIRST_BOX = new BigInteger("18383222420692992");
+
+    public static void main(String[] args) {
+        int boards = 200;
+        long max = 100_000;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-boards":
+                    boards = Integer.parseInt(args[++i]);
+                    break;
+                case "-max":
+                    max = Long.parseLong(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Usage: BandCounterCheck [-boards n] [-max solutions] [-seed n]");
+                    System.exit(2);
+            }
+        }
+        BandCounter counter = new BandCounter();
+        long start = System.nanoTime();
+        expect(counter, new Board(), GRIDS);
+        expect(counter, Board.parse("123......456......789............................................................"),
+                FIRST_BOX);
+        expect(counter, Board.parse("11..............................................................................."),
+                BigInteger.ZERO);
+        System.out.printf("Empty grid, first box and conflict checks passed in %.3fs%n",
+                (System.nanoTime() - start) / 1e9);
+
+        Random random = new Random(seed);
+        Solver solver = new BitmaskSolver(new Board());
+        long compared = 0;
+        for (int b = 0; b < boards; b++) {
+            Board board = randomSolution(solver, random);
+            int[] order = shuffledCells(random);
+            long solutions = 1;
+            for (int i = 0; i < order.length; i++) {
+                int value = board.get(order[i]);
+                board.set(order[i], 0);
+                solver.reset(board);
+                long next = solver.countSolutions(max + 1);
+                if (next > max) {
+                    board.set(order[i], value);
+                    break;
+                }
+                solutions = next;
+            }
+            expect(counter, board, BigInteger.valueOf(solutions));
+            compared += solutions;
+        }
+        System.out.printf("%d boards with %d solutions in all match enumeration, %.3fs in total%n",
+                boards, compared, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void expect(BandCounter counter, Board board, BigInteger expected) {
+        BigInteger count = counter.count(board);
+        if (!count.equals(expected)) {
+            System.err.println("Counted " + count + " solutions of " + board + ", expected " + expected);
+            System.exit(1);
+        }
+    }
+
+    private static Board randomSolution(Solver solver, Random random) {
+        Board seedBoard = new Board();
+        int[] digits = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+        for (int i = digits.length - 1; i > 0; i--) {
+            int k = random.nextInt(i + 1);
+            int swap = digits[i];
+            digits[i] = digits[k];
+            digits[k] = swap;
+        }
+        for (int c = 0; c < 9; c++) {
+            seedBoard.set(c, 0, digits[c]);
+        }
+        solver.reset(seedBoard);
+        Board solution = new Board();
+        solver.forEachSolution(1 + random.nextInt(1000), solution::copyFrom);
+        return solution;
+    }
+
+    private static int[] shuffledCells(Random random) {
+        int[] cells = new int[Board.CELLS];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = i;
+        }
+        for (int i = cells.length - 1; i > 0; i--) {
+            int k = random.nextInt(i + 1);
+            int swap = cells[i];
+            cells[i] = cells[k];
+            cells[k] = swap;
+        }
+        return cells;
+    }
+}
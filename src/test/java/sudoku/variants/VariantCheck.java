@@ -0,0 +1,307 @@
+package sudoku.variants;
+
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+import sudoku.data.Validator;
+import sudoku.io.PuzzleReader;
+import sudoku.solvers.Solver;
+import sudoku.solvers.Solvers;
+import sudoku.solvers.bitmask.BitmaskSolver;
+import sudoku.solvers.dlx.ConstraintProvider;
+import sudoku.solvers.dlx.DancingLinksSolver;
+import sudoku.solvers.dlx.ExactCover;
+import sudoku.solvers.dlx.ExactCoverSolver;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Checks the {@link ExactCoverSolver} on every variant and exits with status 1 on the first mismatch.
+ * <p>
+ * With the standard rules, the {@link DancingLinksSolver} must agree with the {@link BitmaskSolver} on random 4x4, 9x9
+ * and 16x16 puzzles, some with several solutions or none, and on the puzzles of the given files. Every other
+ * variant adds rules to a weaker set (Latin squares for Jigsaw, the standard rules for the rest), so on boards cut
+ * down from a variant solution until the weaker rules leave at most {@code -max} solutions, the variant's count must
+ * equal the number of those solutions that keep the added rules.
+ * <p>
+ * Usage: VariantCheck [-boards n] [-puzzles n] [-max solutions] [-seed n] [puzzles...]
+ */
+public final class VariantCheck {
+    private static final Geometry GEOMETRY = Geometry.STANDARD;
+    private static final int[] JIGSAW = {
+            0, 0, 0, 1, 1, 1, 2, 2, 2,
+            0, 0, 0, 1, 1, 1, 2, 2, 2,
+            0, 0, 3, 1, 1, 1, 2, 2, 2,
+            3, 0, 3, 4, 4, 4, 5, 5, 5,
+            3, 3, 3, 4, 4, 4, 5, 5, 5,
+            3, 3, 3, 4, 4, 4, 5, 8, 5,
+            6, 6, 6, 7, 7, 7, 8, 8, 8,
+            6, 6, 6, 7, 7, 7, 8, 8, 8,
+            6, 6, 6, 7, 7, 7, 5, 8, 8};
+
+    public static void main(String[] args) throws IOException {
+        int boards = 20;
+        int generated = 300;
+        long max = 2_000;
+        long seed = 1;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-boards":
+                    boards = Integer.parseInt(args[++i]);
+                    break;
+                case "-puzzles":
+                    generated = Integer.parseInt(args[++i]);
+                    break;
+                case "-max":
+                    max = Long.parseLong(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    files.add(args[i]);
+            }
+        }
+        long start = System.nanoTime();
+        Random random = new Random(seed);
+        //puzzles with no solution, one, and several
+        int[] counts = new int[3];
+        for (int box = Geometry.MIN_BOX; box <= 4; box++) {
+            //16x16 puzzles take far longer, so fewer of them
+            int count = box == 4 ? generated / 10 : generated;
+            Geometry geometry = Geometry.of(box);
+            BitmaskSolver generator = new BitmaskSolver(new Board(geometry));
+            generator.setRandom(random);
+            for (int p = 0; p < count; p++) {
+                counts[(int) checkStandard(puzzle(generator, random))]++;
+            }
+        }
+        for (String file : files) {
+            try (PuzzleReader reader = PuzzleReader.open(Paths.get(file))) {
+                while (reader.next()) {
+                    if (reader.board() != null) {
+                        counts[(int) checkStandard(reader.board())]++;
+                    }
+                }
+            }
+        }
+        System.out.printf("%d puzzles with one solution, %d with several and %d with none agree with the bitmask solver"
+                + " in %.3fs%n", counts[1], counts[2], counts[0], (System.nanoTime() - start) / 1e9);
+
+        ExactCover standard = new ExactCover(GEOMETRY, Variants.standard(GEOMETRY));
+        ExactCover latin = new ExactCover(GEOMETRY, Variants.rows(GEOMETRY), Variants.columns(GEOMETRY));
+        int[][] diagonals = Variants.diagonals(GEOMETRY);
+        int[][] windows = Variants.windows(GEOMETRY);
+        int[][] pieces = Variants.pieces(GEOMETRY, JIGSAW);
+        for (int b = 0; b < boards; b++) {
+            check("X-diagonal", new ExactCover(GEOMETRY, Variants.xDiagonal(GEOMETRY)), standard,
+                    board -> distinct(board, diagonals), max, random);
+            check("Windoku", new ExactCover(GEOMETRY, Variants.windoku(GEOMETRY)), standard,
+                    board -> distinct(board, windows), max, random);
+            check("Jigsaw", new ExactCover(GEOMETRY, Variants.jigsaw(GEOMETRY, JIGSAW)), latin,
+                    board -> distinct(board, pieces), max, random);
+            Board solution = solution(standard, random);
+            List<KillerConstraint.Cage> cages = cages(solution, random);
+            check("Killer", new ExactCover(GEOMETRY, Variants.killer(GEOMETRY, cages)), standard,
+                    board -> sums(board, cages), max, random);
+        }
+        System.out.printf("X-diagonal, Windoku, Jigsaw and Killer agree on %d boards each, %.3fs in total%n",
+                boards, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * @return the number of solutions of the puzzle, at most 2
+     */
+    private static long checkStandard(Board puzzle) {
+        Solver expected = new BitmaskSolver(puzzle);
+        Solver actual = Solvers.byName("dlx").apply(puzzle);
+        long count = expected.countSolutions(2);
+        long found = actual.countSolutions(2);
+        if (found != count) {
+            fail("Standard", puzzle, count, found);
+        }
+        if (count == 1) {
+            expected.findSingleSolution();
+            actual.findSingleSolution();
+            if (!actual.getSolution().equals(expected.getSolution())) {
+                fail("Standard solution of", puzzle, 1, 0);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return a random solution with a third to three quarters of its cells cleared, and in one case out of four a
+     * clue changed to another value its peers do not hold, which usually leaves no solution
+     */
+    private static Board puzzle(BitmaskSolver generator, Random random) {
+        Geometry geometry = generator.geometry();
+        Board puzzle = new Board(geometry);
+        generator.reset(puzzle);
+        generator.forEachSolution(1, puzzle::copyFrom);
+        int cleared = geometry.cells / 3 + random.nextInt(geometry.cells * 5 / 12);
+        for (int i = 0; i < cleared; i++) {
+            puzzle.set(random.nextInt(geometry.cells), 0);
+        }
+        if (random.nextInt(4) == 0) {
+            Validator validator = new Validator(geometry);
+            int cell = random.nextInt(geometry.cells);
+            int value = puzzle.get(cell);
+            for (int v = 1; v <= geometry.size && value != 0; v++) {
+                puzzle.set(cell, v);
+                if (v != value && validator.isValid(puzzle)) {
+                    break;
+                }
+                puzzle.set(cell, value);
+            }
+        }
+        return puzzle;
+    }
+
+    /**
+     * Cuts a random solution of the variant down until the weaker rules have at most max solutions, and compares the
+     * counts
+     */
+    private static void check(String name, ExactCover variant, ExactCover weaker, Predicate<Board> rules, long max,
+                              Random random) {
+        Board board = solution(variant, random);
+        if (board == null) {
+            fail(name + " has no solution:", new Board(), 1, 0);
+        }
+        Solver weak = new ExactCoverSolver(board, weaker);
+        for (int cell : shuffledCells(random)) {
+            int value = board.get(cell);
+            board.set(cell, 0);
+            weak.reset(board);
+            if (weak.countSolutions(max + 1) > max) {
+                board.set(cell, value);
+                break;
+            }
+        }
+        weak.reset(board);
+        long[] expected = new long[1];
+        weak.forEachSolution(solution -> {
+            if (rules.test(solution)) {
+                expected[0]++;
+            }
+        });
+        Solver solver = new ExactCoverSolver(board, variant);
+        long[] actual = new long[1];
+        solver.forEachSolution(solution -> {
+            if (!rules.test(solution)) {
+                fail(name + " solution breaking its rules of", board, 0, 1);
+            }
+            actual[0]++;
+        });
+        if (actual[0] != expected[0]) {
+            fail(name, board, expected[0], actual[0]);
+        }
+    }
+
+    /**
+     * @return a solution of the empty board, picked at random among the first thousand
+     */
+    private static Board solution(ExactCover cover, Random random) {
+        Board solution = new Board();
+        Solver solver = new ExactCoverSolver(new Board(), cover);
+        return solver.forEachSolution(1 + random.nextInt(1000), solution::copyFrom) > 0 ? solution : null;
+    }
+
+    /**
+     * Splits the board into cages of 1 to 4 cells grown from random cells, summing the solution's values
+     */
+    private static List<KillerConstraint.Cage> cages(Board solution, Random random) {
+        boolean[] used = new boolean[GEOMETRY.cells];
+        List<KillerConstraint.Cage> cages = new ArrayList<>();
+        for (int start : shuffledCells(random)) {
+            if (used[start]) {
+                continue;
+            }
+            int[] cells = new int[1 + random.nextInt(4)];
+            int count = 0;
+            int seen = 0;
+            cells[count++] = start;
+            used[start] = true;
+            seen |= 1 << solution.get(start);
+            for (int tries = 0; count < cells.length && tries < 16; tries++) {
+                int from = cells[random.nextInt(count)];
+                int next = neighbour(from, random.nextInt(4));
+                if (next >= 0 && !used[next] && (seen & 1 << solution.get(next)) == 0) {
+                    cells[count++] = next;
+                    used[next] = true;
+                    seen |= 1 << solution.get(next);
+                }
+            }
+            int sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += solution.get(cells[i]);
+            }
+            cages.add(new KillerConstraint.Cage(sum, Arrays.copyOf(cells, count)));
+        }
+        return cages;
+    }
+
+    private static int neighbour(int cell, int direction) {
+        int r = GEOMETRY.row[cell] + (direction == 0 ? -1 : direction == 1 ? 1 : 0);
+        int c = GEOMETRY.column[cell] + (direction == 2 ? -1 : direction == 3 ? 1 : 0);
+        return r < 0 || c < 0 || r >= GEOMETRY.size || c >= GEOMETRY.size ? -1 : r * GEOMETRY.size + c;
+    }
+
+    private static boolean distinct(Board board, int[][] regions) {
+        for (int[] region : regions) {
+            int seen = 0;
+            for (int cell : region) {
+                int bit = 1 << board.get(cell);
+                if ((seen & bit) != 0) {
+                    return false;
+                }
+                seen |= bit;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sums(Board board, List<KillerConstraint.Cage> cages) {
+        for (KillerConstraint.Cage cage : cages) {
+            int sum = 0;
+            int seen = 0;
+            for (int cell : cage.cells()) {
+                int bit = 1 << board.get(cell);
+                if ((seen & bit) != 0) {
+                    return false;
+                }
+                seen |= bit;
+                sum += board.get(cell);
+            }
+            if (sum != cage.sum()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] shuffledCells(Random random) {
+        int[] cells = new int[GEOMETRY.cells];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = i;
+        }
+        for (int i = cells.length - 1; i > 0; i--) {
+            int k = random.nextInt(i + 1);
+            int swap = cells[i];
+            cells[i] = cells[k];
+            cells[k] = swap;
+        }
+        return cells;
+    }
+
+    private static void fail(String what, Board board, long expected, long actual) {
+        System.err.println(what + " " + board + ": expected " + expected + ", got " + actual);
+        System.exit(1);
+    }
+}
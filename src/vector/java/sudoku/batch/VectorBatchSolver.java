@@ -0,0 +1,455 @@
+package sudoku.batch;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import sudoku.data.Board;
+import sudoku.data.Geometry;
+import sudoku.io.PuzzleReader;
+import sudoku.io.PuzzleWriter;
+import sudoku.solvers.Solver;
+import sudoku.solvers.Solvers;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A {@link BatchSolver} that propagates many 9x9 puzzles at once, one puzzle per lane of a {@link ShortVector}.
+ * <p>
+ * The placed digits and the row, column and box masks of a group of puzzles are kept lane by lane, and naked and
+ * hidden singles are placed in every lane in lockstep, a sweep over the board at a time. A lane whose puzzle a sweep
+ * solves, finds unsolvable or leaves unchanged is refilled with the next puzzle at once. Puzzles solved by propagation
+ * are done, since every placement was forced; puzzles that still need branching are finished by the scalar
+ * {@link Solver} from where propagation left them. Puzzles of other sizes go to the scalar solver directly.
+ * <p>
+ * On an AVX-512 machine (32 lanes) it solved easy puzzles about 5.8 times as fast as the bitmask solver on one thread,
+ * a mix of easy and hard ones 2.8 times and hard ones 1.3 times, boards in memory; with parsing and writing included,
+ * a file of easy puzzles went about 3 times as fast as {@link BatchSolver}. {@code VectorBatchCheck} measures the
+ * in-memory speedup.
+ * <p>
+ * Needs the incubating Vector API: build with the {@code vector} profile and run with
+ * {@code --add-modules jdk.incubator.vector}.
+ */
+public class VectorBatchSolver extends BatchSolver {
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final short ALL = (short) Board.ALL_CANDIDATES;
+    /**
+     * Puzzles per task of a block, as a multiple of the number of lanes
+     */
+    private static final int TASK_LANES = 8;
+
+    private final Function<Board, Solver> fallback;
+    private final ThreadLocal<Lanes> lanes = ThreadLocal.withInitial(Lanes::new);
+    private final LongAdder propagated = new LongAdder();
+    private final LongAdder searched = new LongAdder();
+
+    /**
+     * @param fallback creates the solvers finishing the puzzles propagation does not
+     */
+    public VectorBatchSolver(Function<Board, Solver> fallback, int threads) {
+        super(fallback, threads);
+        this.fallback = fallback;
+    }
+
+    /**
+     * @return the number of puzzles in a group propagated together, the number of 16 bit lanes of the widest vector
+     */
+    public static int lanes() {
+        return LANES;
+    }
+
+    /**
+     * @return the number of puzzles solved or found unsolvable by propagation alone
+     */
+    public long propagated() {
+        return propagated.sum();
+    }
+
+    /**
+     * @return the number of puzzles handed to the scalar solver
+     */
+    public long searched() {
+        return searched.sum();
+    }
+
+    /**
+     * Solves the blocks of {@link #solve(PuzzleReader, PuzzleWriter)} {@link #TASK_LANES} lanes' worth of puzzles per
+     * task, so the lanes are refilled many times before a task runs dry
+     */
+    @Override
+    int tasks(int size) {
+        return (size + TASK_LANES * LANES - 1) / (TASK_LANES * LANES);
+    }
+
+    @Override
+    void solve(Block block, int task) {
+        int from = task * TASK_LANES * LANES;
+        lanes.get().solve(block.puzzles, from, Math.min(block.size - from, TASK_LANES * LANES), block.solutions,
+                block.solved);
+    }
+
+    /**
+     * Solves puzzles on the calling thread, {@link #lanes()} at a time
+     *
+     * @param puzzles   the puzzles from {@code offset}, null entries are skipped
+     * @param solutions boards receiving the solutions, of the same sizes as the puzzles
+     * @param solved    set to whether each puzzle has a solution
+     * @return the number of puzzles solved
+     */
+    public int solve(Board[] puzzles, int offset, int count, Board[] solutions, boolean[] solved) {
+        lanes.get().solve(puzzles, offset, count, solutions, solved);
+        int found = 0;
+        for (int i = offset; i < offset + count; i++) {
+            if (solved[i]) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The lane state of the puzzles being propagated and the scalar solver finishing them, confined to a worker
+     * thread. Arrays hold one vector per cell or unit, lane by lane, and vectors are only ever kept in locals so the
+     * JIT can keep them in registers. A digit is stored as its bit, {@code 1 << (d - 1)}, and an empty cell as 0.
+     * <p>
+     * Every lane holds its own puzzle: once a sweep leaves a lane solved, dead or unchanged, its puzzle is finished and
+     * the next one loaded in its place, so a group costs the sweeps of an average puzzle rather than of its slowest.
+     */
+    private final class Lanes {
+        private final Geometry geometry = Geometry.STANDARD;
+        private final short[] cells = new short[geometry.cells * LANES];
+        /**
+         * The candidates of every cell as of its last naked single check, 0 once it is filled. Later placements only
+         * remove candidates, so these may hold too many, which is safe for finding hidden singles.
+         */
+        private final short[] candidates = new short[geometry.cells * LANES];
+        /**
+         * The digits of every unit, rows then columns then boxes like {@link Geometry#units}
+         */
+        private final short[] units = new short[3 * geometry.size * LANES];
+        /**
+         * -1 in the lanes found to have no solution, and in lanes without a puzzle
+         */
+        private final short[] dead = new short[LANES];
+        /**
+         * Non-zero in the lanes the last sweep placed a digit in
+         */
+        private final short[] moved = new short[LANES];
+        /**
+         * The index of the puzzle in every lane, -1 for none
+         */
+        private final int[] lane = new int[LANES];
+        private final int[] rowUnit = new int[geometry.cells];
+        private final int[] columnUnit = new int[geometry.cells];
+        private final int[] boxUnit = new int[geometry.cells];
+        private final Board partial = new Board(geometry);
+        private Solver solver;
+
+        Lanes() {
+            for (int i = 0; i < geometry.cells; i++) {
+                rowUnit[i] = geometry.row[i] * LANES;
+                columnUnit[i] = (geometry.size + geometry.column[i]) * LANES;
+                boxUnit[i] = (2 * geometry.size + geometry.sector[i]) * LANES;
+            }
+        }
+
+        /**
+         * Solves the {@code count} puzzles from {@code from}
+         */
+        void solve(Board[] puzzles, int from, int count, Board[] solutions, boolean[] solved) {
+            int next = from;
+            int end = from + count;
+            int live = 0;
+            for (int l = 0; l < LANES; l++) {
+                next = fill(l, puzzles, next, end, solutions, solved);
+                if (lane[l] >= 0) {
+                    live++;
+                }
+            }
+            while (live > 0) {
+                sweep();
+                for (int l = 0; l < LANES; l++) {
+                    int i = lane[l];
+                    if (i < 0 || dead[l] == 0 && moved[l] != 0 && !full(l)) {
+                        continue;
+                    }
+                    if (dead[l] != 0) {
+                        solved[i] = false;
+                        propagated.increment();
+                    } else if (unpack(l, solutions[i])) {
+                        solved[i] = true;
+                        propagated.increment();
+                    } else {
+                        partial.copyFrom(solutions[i]);
+                        solved[i] = search(partial, solutions[i]);
+                    }
+                    next = fill(l, puzzles, next, end, solutions, solved);
+                    if (lane[l] < 0) {
+                        live--;
+                    }
+                }
+            }
+        }
+
+        private boolean search(Board puzzle, Board solution) {
+            searched.increment();
+            if (solver == null || solver.geometry() != puzzle.geometry()) {
+                solver = fallback.apply(puzzle);
+            } else {
+                solver.reset(puzzle);
+            }
+            return solver.forEachSolution(1, solution::copyFrom) > 0;
+        }
+
+        /**
+         * Loads the next 9x9 puzzle with givens that do not repeat a digit into the lane, or leaves it empty and dead
+         * if there is none. The puzzles skipped on the way are finished at once.
+         *
+         * @return the index after the puzzle loaded
+         */
+        private int fill(int l, Board[] puzzles, int next, int end, Board[] solutions, boolean[] solved) {
+            for (; next < end; next++) {
+                Board puzzle = puzzles[next];
+                if (puzzle == null) {
+                    solved[next] = false;
+                } else if (puzzle.geometry() != geometry) {
+                    solved[next] = search(puzzle, solutions[next]);
+                } else if (load(l, puzzle)) {
+                    lane[l] = next;
+                    return next + 1;
+                } else {
+                    solved[next] = false;
+                    propagated.increment();
+                }
+            }
+            lane[l] = -1;
+            dead[l] = -1;
+            return next;
+        }
+
+        /**
+         * Fills the lane with the givens of the puzzle
+         *
+         * @return false if the givens repeat a digit in a unit
+         */
+        private boolean load(int l, Board puzzle) {
+            for (int u = 0; u < geometry.units.length; u++) {
+                units[u * LANES + l] = 0;
+            }
+            for (int i = 0; i < geometry.cells; i++) {
+                int value = puzzle.get(i);
+                if (value == 0) {
+                    cells[i * LANES + l] = 0;
+                    candidates[i * LANES + l] = ALL;
+                    continue;
+                }
+                short bit = (short) (1 << (value - 1));
+                if (((units[rowUnit[i] + l] | units[columnUnit[i] + l] | units[boxUnit[i] + l]) & bit) != 0) {
+                    return false;
+                }
+                cells[i * LANES + l] = bit;
+                candidates[i * LANES + l] = 0;
+                units[rowUnit[i] + l] |= bit;
+                units[columnUnit[i] + l] |= bit;
+                units[boxUnit[i] + l] |= bit;
+            }
+            dead[l] = 0;
+            return true;
+        }
+
+        /**
+         * @return true if every row of the lane holds every digit
+         */
+        private boolean full(int l) {
+            for (int r = 0; r < geometry.size; r++) {
+                if (units[r * LANES + l] != ALL) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Places naked and hidden singles once over the board in every live lane, recording the lanes that moved
+         */
+        private void sweep() {
+            Arrays.fill(moved, (short) 0);
+            for (int i = 0; i < geometry.cells; i++) {
+                nakedSingle(i);
+            }
+            for (int u = 0; u < geometry.units.length; u++) {
+                hiddenSingles(u);
+            }
+        }
+
+        /**
+         * @return the digit of the cell, or -1 in dead lanes: 0 in the lanes where the cell is open
+         */
+        private ShortVector occupied(int i) {
+            return ShortVector.fromArray(SPECIES, cells, i * LANES).or(ShortVector.fromArray(SPECIES, dead, 0));
+        }
+
+        /**
+         * @return the digits not yet used by the units of the cell
+         */
+        private ShortVector free(int i) {
+            return ShortVector.fromArray(SPECIES, units, rowUnit[i])
+                    .or(ShortVector.fromArray(SPECIES, units, columnUnit[i]))
+                    .or(ShortVector.fromArray(SPECIES, units, boxUnit[i]))
+                    .not().and(ALL);
+        }
+
+        /*
+         * Lane conditions are combined as vectors and only turned into a mask at the end: operations between masks
+         * of 512 bit shorts are not intrinsified by every JDK, and fall back to a lane by lane loop.
+         */
+
+        /**
+         * Updates the candidates of the cell, places its only candidate in the lanes that have one, and kills the
+         * lanes where it has none
+         */
+        private void nakedSingle(int i) {
+            ShortVector occupied = occupied(i);
+            VectorMask<Short> open = occupied.compare(VectorOperators.EQ, (short) 0);
+            if (!open.anyTrue()) {
+                return;
+            }
+            ShortVector free = free(i);
+            ShortVector.fromArray(SPECIES, candidates, i * LANES).blend(free, open).intoArray(candidates, i * LANES);
+            VectorMask<Short> none = free.or(occupied).compare(VectorOperators.EQ, (short) 0);
+            if (none.anyTrue()) {
+                ShortVector.fromArray(SPECIES, dead, 0).blend((short) -1, none).intoArray(dead, 0);
+            }
+            //a single candidate clears its lowest bit to 0, and so does no candidate, which places nothing
+            VectorMask<Short> single = free.and(free.sub((short) 1)).or(occupied)
+                    .compare(VectorOperators.EQ, (short) 0);
+            place(i, ShortVector.zero(SPECIES).blend(free, single));
+        }
+
+        /**
+         * Places the digits that fit only one cell of the unit, and kills the lanes where a digit fits nowhere or two
+         * digits fit only the same cell
+         */
+        private void hiddenSingles(int u) {
+            ShortVector used = ShortVector.fromArray(SPECIES, units, u * LANES);
+            ShortVector dead = ShortVector.fromArray(SPECIES, this.dead, 0);
+            //dead lanes count as full units
+            if (!used.or(dead).and(ALL).compare(VectorOperators.NE, ALL).anyTrue()) {
+                return;
+            }
+            int[] unit = geometry.units[u];
+            ShortVector once = ShortVector.zero(SPECIES);
+            ShortVector twice = once;
+            for (int i : unit) {
+                ShortVector candidates = ShortVector.fromArray(SPECIES, this.candidates, i * LANES);
+                twice = twice.or(once.and(candidates));
+                once = once.or(candidates);
+            }
+            VectorMask<Short> missing = once.or(used).or(dead).and(ALL).compare(VectorOperators.NE, ALL);
+            if (missing.anyTrue()) {
+                dead = dead.blend((short) -1, missing);
+                dead.intoArray(this.dead, 0);
+            }
+            ShortVector hidden = once.and(twice.not()).and(dead.not());
+            if (!hidden.compare(VectorOperators.NE, (short) 0).anyTrue()) {
+                return;
+            }
+            for (int i : unit) {
+                if (!ShortVector.fromArray(SPECIES, candidates, i * LANES).and(hidden)
+                        .compare(VectorOperators.NE, (short) 0).anyTrue()) {
+                    continue;
+                }
+                VectorMask<Short> open = occupied(i).compare(VectorOperators.EQ, (short) 0);
+                ShortVector digits = ShortVector.zero(SPECIES).blend(free(i).and(hidden), open);
+                VectorMask<Short> several = digits.and(digits.sub((short) 1)).compare(VectorOperators.NE, (short) 0);
+                if (several.anyTrue()) {
+                    ShortVector.fromArray(SPECIES, this.dead, 0).blend((short) -1, several).intoArray(this.dead, 0);
+                    digits = digits.blend((short) 0, several);
+                }
+                place(i, digits);
+            }
+        }
+
+        /**
+         * Places the digit bits in the cell and its units in the lanes where they are not 0, and records the lanes as
+         * moved
+         */
+        private void place(int i, ShortVector placed) {
+            VectorMask<Short> lanes = placed.compare(VectorOperators.NE, (short) 0);
+            if (!lanes.anyTrue()) {
+                return;
+            }
+            int at = i * LANES;
+            ShortVector.fromArray(SPECIES, cells, at).or(placed).intoArray(cells, at);
+            ShortVector.fromArray(SPECIES, candidates, at).blend((short) 0, lanes).intoArray(candidates, at);
+            add(rowUnit[i], placed);
+            add(columnUnit[i], placed);
+            add(boxUnit[i], placed);
+            add(moved, 0, placed);
+        }
+
+        private void add(int unit, ShortVector placed) {
+            add(units, unit, placed);
+        }
+
+        private void add(short[] lanes, int at, ShortVector placed) {
+            ShortVector.fromArray(SPECIES, lanes, at).or(placed).intoArray(lanes, at);
+        }
+
+        /**
+         * Writes the digits of a lane to the board
+         *
+         * @return true if the lane is full
+         */
+        private boolean unpack(int l, Board board) {
+            boolean full = true;
+            for (int i = 0; i < geometry.cells; i++) {
+                int bit = cells[i * LANES + l];
+                board.set(i, bit == 0 ? 0 : Integer.numberOfTrailingZeros(bit) + 1);
+                full &= bit != 0;
+            }
+            return full;
+        }
+    }
+
+    /**
+     * Usage: VectorBatchSolver [-threads n] [-solver bitmask|parallel|dlx|dfs] [input|-] [output|-]
+     * <p>
+     * The solver finishes the puzzles propagation leaves open. Run with {@code --add-modules jdk.incubator.vector}.
+     */
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String solver = "bitmask";
+        String input = "-";
+        String output = "-";
+        int positional = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-solver":
+                    solver = args[++i];
+                    break;
+                default:
+                    if (positional++ == 0) {
+                        input = args[i];
+                    } else {
+                        output = args[i];
+                    }
+            }
+        }
+        VectorBatchSolver batch = new VectorBatchSolver(Solvers.byName(solver), threads);
+        try (PuzzleReader in = openPuzzles(input); PuzzleWriter out = createPuzzles(output)) {
+            long start = System.nanoTime();
+            long count = batch.solve(in, out);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf("Solved %d puzzles in %.3fs (%.0f puzzles/sec), %d lanes, %d by propagation, %d by %s%n",
+                    count, seconds, count / seconds, lanes(), batch.propagated(), batch.searched(), solver);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package sudoku.batch;
+
+import sudoku.data.Board;
+import sudoku.generator.Difficulty;
+import sudoku.generator.PuzzleGenerator;
+import sudoku.io.PuzzleReader;
+import sudoku.solvers.Solver;
+import sudoku.solvers.bitmask.BitmaskSolver;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that {@link VectorBatchSolver} finds the same solutions as the {@link BitmaskSolver} and solves puzzles
+ * faster than it on a single thread. Exits with status 1 on a mismatch, or if the best round is less than
+ * {@code -min} times as fast as the best scalar round.
+ * <p>
+ * The puzzles come from the given files, or are generated at the given difficulty, and are repeated up to
+ * {@code -puzzles}. Both sides work on boards in memory, so the rates leave out parsing and writing.
+ * <p>
+ * Usage: VectorBatchCheck [-puzzles n] [-rounds n] [-min speedup] [-distinct n] [-difficulty easy|medium|hard]
+ * [-seed n] [puzzles...]
+ * <p>
+ * Run with {@code --add-modules jdk.incubator.vector}.
+ */
+public final class VectorBatchCheck {
+    public static void main(String[] args) throws IOException {
+        int count = 100_000;
+        int rounds = 5;
+        double min = 1.0;
+        int distinct = 500;
+        Difficulty difficulty = Difficulty.EASY;
+        long seed = 1;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-puzzles":
+                    count = Integer.parseInt(args[++i]);
+                    break;
+                case "-rounds":
+                    rounds = Integer.parseInt(args[++i]);
+                    break;
+                case "-min":
+                    min = Double.parseDouble(args[++i]);
+                    break;
+                case "-distinct":
+                    distinct = Integer.parseInt(args[++i]);
+                    break;
+                case "-difficulty":
+                    difficulty = Difficulty.valueOf(args[++i].toUpperCase());
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    files.add(args[i]);
+            }
+        }
+
+        List<Board> source = files.isEmpty() ? generate(distinct, difficulty, seed) : read(files);
+        if (source.isEmpty()) {
+            System.err.println("No puzzles");
+            System.exit(1);
+        }
+        Board[] puzzles = new Board[count];
+        Board[] expected = new Board[count];
+        Board[] actual = new Board[count];
+        boolean[] found = new boolean[count];
+        boolean[] solved = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            puzzles[i] = new Board(source.get(i % source.size()));
+            expected[i] = new Board(puzzles[i].geometry());
+            actual[i] = new Board(puzzles[i].geometry());
+        }
+
+        VectorBatchSolver vector = new VectorBatchSolver(BitmaskSolver::new, 1);
+        long vectorBest = Long.MAX_VALUE;
+        long scalarBest = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            vector.solve(puzzles, 0, count, actual, solved);
+            long vectorTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            scalar(puzzles, expected, found);
+            long scalarTime = System.nanoTime() - start;
+
+            vectorBest = Math.min(vectorBest, vectorTime);
+            scalarBest = Math.min(scalarBest, scalarTime);
+            System.out.printf("round %d: vector %.0f/s, scalar %.0f/s%n",
+                    round + 1, count / (vectorTime / 1e9), count / (scalarTime / 1e9));
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (solved[i] != found[i] || found[i] && !actual[i].equals(expected[i])) {
+                System.err.printf("Mismatch on puzzle %d: %s%n", i, puzzles[i]);
+                System.exit(1);
+            }
+        }
+        double speedup = (double) scalarBest / vectorBest;
+        System.out.printf("%d puzzles agree, %d lanes, best vector %.0f/s, scalar %.0f/s, %.2fx%n", count,
+                VectorBatchSolver.lanes(), count / (vectorBest / 1e9), count / (scalarBest / 1e9), speedup);
+        if (speedup < min) {
+            System.err.printf("Vector path is %.2fx the scalar path, below %.2fx%n", speedup, min);
+            System.exit(1);
+        }
+    }
+
+    private static void scalar(Board[] puzzles, Board[] solutions, boolean[] found) {
+        Solver solver = new BitmaskSolver(puzzles[0]);
+        for (int i = 0; i < puzzles.length; i++) {
+            if (solver.geometry() == puzzles[i].geometry()) {
+                solver.reset(puzzles[i]);
+            } else {
+                solver = new BitmaskSolver(puzzles[i]);
+            }
+            found[i] = solver.forEachSolution(1, solutions[i]::copyFrom) > 0;
+        }
+    }
+
+    private static List<Board> generate(int count, Difficulty difficulty, long seed) {
+        PuzzleGenerator generator = new PuzzleGenerator(new Random(seed));
+        List<Board> puzzles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            puzzles.add(generator.generate(difficulty));
+        }
+        return puzzles;
+    }
+
+    private static List<Board> read(List<String> files) throws IOException {
+        List<Board> puzzles = new ArrayList<>();
+        for (String file : files) {
+            try (PuzzleReader reader = PuzzleReader.open(Paths.get(file))) {
+                while (reader.next()) {
+                    Board puzzle = reader.board();
+                    if (puzzle != null) {
+                        puzzles.add(new Board(puzzle));
+                    }
+                }
+            }
+        }
+        return puzzles;
+    }
+}